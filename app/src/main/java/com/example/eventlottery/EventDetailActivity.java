@@ -38,6 +38,7 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import com.google.firebase.firestore.FieldValue;
 import com.example.eventlottery.managers.WaitlistManager;
+import com.example.eventlottery.managers.WaitlistRankService;
 
 import java.util.HashMap;
 import java.util.List;
@@ -70,6 +71,12 @@ public class EventDetailActivity extends AppCompatActivity {
 
     private boolean hasJoined = false;
 
+    // the user's place in line, only kept while they're on the waitlist
+    private WaitlistRankService rankService;
+    private boolean watchingRank = false;
+    private String waitlistLimitText = "";
+    private final WaitlistRankService.Listener rankListener = eventId -> updateWaitlistInfo();
+
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -93,6 +100,7 @@ public class EventDetailActivity extends AppCompatActivity {
             return;
         }
         waitlistManager = WaitlistManager.getInstance();
+        rankService = WaitlistRankService.getInstance();
         currentEventId = eventId;
 
         loadEvent(eventId);
@@ -150,24 +158,19 @@ public class EventDetailActivity extends AppCompatActivity {
                         statusBadge.setText("Open");
 
                         int waitlistLimit = waitlistLimitStr != null ? Integer.parseInt(waitlistLimitStr) : 0;
-                        waitlistInfo.setText("Waitlist limit: " + waitlistLimit);
+                        waitlistLimitText = "Waitlist limit: " + waitlistLimit;
+                        updateWaitlistInfo();
 
                         int entrantMax = entrantMaxStr != null ? Integer.parseInt(entrantMaxStr) : 0;
                         spotsText.setText(entrantMax + " spots");
 
 
                         if (auth.getCurrentUser() != null) {
-                            List<String> waitlistUsers = (List<String>) doc.get("waitlistUsers");
-                            String currentUserId = auth.getCurrentUser().getUid();
-
-                            // Check if list exists and contains user ID
-                            if (waitlistUsers != null && waitlistUsers.contains(currentUserId)) {
-                                hasJoined = true;
-                            } else {
-                                hasJoined = false;
-                            }
-                            // Update button immediately
-                            updateButtonState();
+                            // membership is the user's own waitlist entry, the event doesn't list entrants
+                            waitlistManager.isCurrentUserOnWaitlist(eventId, isOnWaitlist -> {
+                                hasJoined = isOnWaitlist;
+                                updateButtonState();
+                            });
                         }
 
                         // Set Join Button Listener
@@ -204,6 +207,7 @@ public class EventDetailActivity extends AppCompatActivity {
             joinButtonProgress.setVisibility(View.VISIBLE);
         } else {
             joinButtonProgress.setVisibility(View.GONE);
+            updateRankWatch();
             if (hasJoined) {
                 joinWaitlistButton.setText("Leave Waitlist");
                 joinWaitlistButton.setEnabled(true);
@@ -214,6 +218,44 @@ public class EventDetailActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Keeps the user's position up to date while they're on the waitlist, nothing is read
+     * for people just looking at the event
+     */
+    private void updateRankWatch() {
+        if (hasJoined && !watchingRank) {
+            rankService.watch(currentEventId, rankListener);
+            watchingRank = true;
+        } else if (!hasJoined && watchingRank) {
+            rankService.unwatch(currentEventId, rankListener);
+            watchingRank = false;
+        }
+        updateWaitlistInfo();
+    }
+
+    /**
+     * Shows the waitlist limit, plus the user's place in line once it's known
+     */
+    private void updateWaitlistInfo() {
+        String text = waitlistLimitText;
+        if (hasJoined && auth.getCurrentUser() != null) {
+            int position = rankService.getPosition(currentEventId, auth.getCurrentUser().getUid());
+            if (position > 0) {
+                text += " · You're #" + position + " of " + rankService.getCount(currentEventId);
+            }
+        }
+        waitlistInfo.setText(text);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (watchingRank) {
+            rankService.unwatch(currentEventId, rankListener);
+            watchingRank = false;
+        }
+    }
+
     /**
      * Decides whether to join or leave the waitlist based on current state
      */
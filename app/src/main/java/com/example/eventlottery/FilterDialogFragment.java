@@ -3,12 +3,15 @@ package com.example.eventlottery;
 import android.app.DatePickerDialog;
 import android.app.Dialog;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -21,12 +24,17 @@ import java.util.Calendar;
  */
 public class FilterDialogFragment extends DialogFragment {
 
+    // category names, in the order of categoryLabels
+    private static final String[] CATEGORIES = {"Sports", "Music", "Arts", "Tech", "Educational", "Workshops", "Other"};
+
     // UI components
     private CheckBox cbSports, cbMusic, cbArts, cbTech, cbEducational, cbWorkshops, cbOther;
     private EditText editStartDate, editEndDate;
     private EditText editMinPrice, editMaxPrice;
     private EditText editLocation;
     private Button btnApplyFilters, btnClearFilters;
+    private final TextView[] categoryLabels = new TextView[CATEGORIES.length];
+    private TextView textMatchCount;
 
     // Current filter
     private EventFilter currentFilter;
@@ -40,6 +48,15 @@ public class FilterDialogFragment extends DialogFragment {
     }
 
     private FilterAppliedListener listener;
+
+    /**
+     * Counts how many events a filter would show, for live counts while filters are picked
+     */
+    public interface MatchCounter {
+        int countMatches(EventFilter filter);
+    }
+
+    private MatchCounter matchCounter;
     /**
      * Creates a new instance of FilterDialogFragment.
      *
@@ -62,6 +79,14 @@ public class FilterDialogFragment extends DialogFragment {
     public void setFilterAppliedListener(FilterAppliedListener listener) {
         this.listener = listener;
     }
+    /**
+     * Sets what counts matching events, without one no counts are shown.
+     *
+     * @param matchCounter The counter to use.
+     */
+    public void setMatchCounter(MatchCounter matchCounter) {
+        this.matchCounter = matchCounter;
+    }
     /**
      * Inflates the layout for the filter dialog.
      *
@@ -89,6 +114,7 @@ public class FilterDialogFragment extends DialogFragment {
         initializeViews(view);
         populateCurrentFilters();
         setupListeners();
+        updateMatchCounts();
     }
     /**
      * Called when the Fragment is visible to the user.
@@ -134,6 +160,16 @@ public class FilterDialogFragment extends DialogFragment {
         // Buttons
         btnApplyFilters = view.findViewById(R.id.btn_apply_filters);
         btnClearFilters = view.findViewById(R.id.btn_clear_filters);
+
+        // Match counts
+        categoryLabels[0] = view.findViewById(R.id.label_sports);
+        categoryLabels[1] = view.findViewById(R.id.label_music);
+        categoryLabels[2] = view.findViewById(R.id.label_arts);
+        categoryLabels[3] = view.findViewById(R.id.label_tech);
+        categoryLabels[4] = view.findViewById(R.id.label_educational);
+        categoryLabels[5] = view.findViewById(R.id.label_workshops);
+        categoryLabels[6] = view.findViewById(R.id.label_other);
+        textMatchCount = view.findViewById(R.id.text_match_count);
     }
     /**
      * Populates the dialog fields with values from the current filter object.
@@ -197,6 +233,7 @@ public class FilterDialogFragment extends DialogFragment {
                 if (buttonView != cbWorkshops) cbWorkshops.setChecked(false);
                 if (buttonView != cbOther) cbOther.setChecked(false);
             }
+            updateMatchCounts();
         };
 
         cbSports.setOnCheckedChangeListener(categoryCheckListener);
@@ -211,6 +248,29 @@ public class FilterDialogFragment extends DialogFragment {
         editStartDate.setOnClickListener(v -> showDatePicker(editStartDate));
         editEndDate.setOnClickListener(v -> showDatePicker(editEndDate));
 
+        // Recount as prices, dates and location are typed or picked
+        TextWatcher recountWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                // Not needed
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                // Not needed
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                updateMatchCounts();
+            }
+        };
+        editStartDate.addTextChangedListener(recountWatcher);
+        editEndDate.addTextChangedListener(recountWatcher);
+        editMinPrice.addTextChangedListener(recountWatcher);
+        editMaxPrice.addTextChangedListener(recountWatcher);
+        editLocation.addTextChangedListener(recountWatcher);
+
         // Apply button
         btnApplyFilters.setOnClickListener(v -> {
             applyFilters();
@@ -250,11 +310,41 @@ public class FilterDialogFragment extends DialogFragment {
 
         datePickerDialog.show();
     }
+    /**
+     * Shows how many events the filters as they are now would match, overall and for each
+     * category with everything else left as it is.
+     */
+    private void updateMatchCounts() {
+        if (matchCounter == null || textMatchCount == null) return;
+
+        EventFilter filter = buildFilter();
+        int total = matchCounter.countMatches(filter);
+        textMatchCount.setText(total == 1 ? "1 event matches" : total + " events match");
+        textMatchCount.setVisibility(View.VISIBLE);
+
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            filter.setActivityType(CATEGORIES[i]);
+            categoryLabels[i].setText(CATEGORIES[i] + " (" + matchCounter.countMatches(filter) + ")");
+        }
+    }
     /**
      * Collects all input data from the dialog, creates an EventFilter object,
      * and notifies the listener to apply the filter.
      */
     private void applyFilters() {
+        EventFilter filter = buildFilter();
+
+        // Notify listener
+        if (listener != null) {
+            listener.onFiltersApplied(filter);
+        }
+    }
+    /**
+     * Builds an EventFilter from what's currently entered in the dialog.
+     *
+     * @return The filter, with only the fields that were filled in set.
+     */
+    private EventFilter buildFilter() {
         EventFilter filter = new EventFilter();
 
         // Get activity type from selected checkbox
@@ -311,10 +401,7 @@ public class FilterDialogFragment extends DialogFragment {
             filter.setLocation(location);
         }
 
-        // Notify listener
-        if (listener != null) {
-            listener.onFiltersApplied(filter);
-        }
+        return filter;
     }
     /**
      * Resets all input fields in the dialog to their default empty or unchecked state.
@@ -21,6 +21,9 @@ import com.example.eventlottery.fragments.EventHistoryFragment;
 import com.example.eventlottery.fragments.NotificationFragment;
 import com.example.eventlottery.fragments.OrganizerDashboardFragment;
 import com.example.eventlottery.fragments.ProfileFragment;
+import com.example.eventlottery.managers.InvitationSweeper;
+import com.example.eventlottery.managers.WaitlistCounter;
+import com.example.eventlottery.managers.WaitlistManager;
 
 /**
  * Holds the global top bar and bottom nav bar
@@ -44,6 +47,9 @@ public class MainActivity extends AppCompatActivity {
 
         requestLocationPermission();
 
+        // joins and leaves made offline are saved and sent when the connection is back
+        WaitlistManager.getInstance().enableOutbox(this);
+
         profileIcon = findViewById(R.id.profileIcon);
         notificationIcon = findViewById(R.id.notificationIcon);
 
@@ -63,6 +69,27 @@ public class MainActivity extends AppCompatActivity {
                     .commit();
         }
     }
+    /**
+     * Organizers keep overdue invitations expiring while the app is open
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
+        if ("organizer".equals(prefs.getString("userRole", "entrant"))) {
+            InvitationSweeper.getInstance().start();
+        }
+        WaitlistCounter.getInstance().start();
+        WaitlistManager.getInstance().replayOutbox();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        InvitationSweeper.getInstance().stop();
+        WaitlistCounter.getInstance().stop();
+    }
+
     private void requestLocationPermission() {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
                 != PackageManager.PERMISSION_GRANTED) {
@@ -0,0 +1,470 @@
+package com.example.eventlottery;
+
+import android.util.Log;
+
+import com.example.eventlottery.managers.LotteryManager;
+import com.example.eventlottery.managers.LotteryOrderReader;
+import com.example.eventlottery.managers.NotificationManager;
+import com.example.eventlottery.managers.SelectionStore;
+import com.example.eventlottery.managers.WaitlistCounter;
+import com.example.eventlottery.managers.WaitlistStore;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the database with production sized test data, for reproducing slowness that the 20
+ * events from {@link Seeder} never show: users, events, waitlists, drawn lotteries, images
+ * and notifications.
+ * Everything is generated from the seed, each user and event from its own random stream, so
+ * the same config always writes the same documents with the same IDs and a rerun overwrites
+ * instead of duplicating. Writes go out in WriteBatch chunks with a few committing at a time,
+ * and are generated as they're needed so a million users never sit in memory.
+ * Point it at the emulator with {@link #emulator} unless you really mean production.
+ */
+public class ScaleSeeder {
+    private static final String TAG = "ScaleSeeder";
+
+    /** Firestore limit on writes in one batch */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private static final String[] CATEGORIES = {"Sports", "Music", "Arts", "Educational", "Workshops", "Other"};
+    private static final String[] CITIES = {"Edmonton", "Calgary", "Red Deer", "St. Albert", "Sherwood Park",
+            "Lethbridge", "Banff", "Jasper"};
+    private static final String[] FIRST_NAMES = {"Alex", "Sam", "Jordan", "Taylor", "Morgan", "Casey", "Riley",
+            "Jamie", "Avery", "Quinn", "Harper", "Rowan", "Emerson", "Skyler", "Drew", "Parker"};
+    private static final String[] LAST_NAMES = {"Smith", "Nguyen", "Brown", "Singh", "Wilson", "Martin", "Lee",
+            "Chen", "Patel", "Tremblay", "Roy", "Campbell", "Anderson", "Wong", "Kaur", "Gagnon"};
+    // a tiny gray jpeg, enough for the image code paths without megabytes per event
+    private static final String PLACEHOLDER_IMAGE = "/9j/4AAQSkZJRgABAQEASABIAAD/2wBDAP////////////////"
+            + "//////////////////////////////////////////////////////////////////////wgALCAABAAEBAREA/8QAFBABAAAAAAAA"
+            + "AAAAAAAAAAAAAP/aAAgBAQABPxA=";
+
+    /**
+     * What to generate. The defaults are production scale, shrink them for a quick run
+     */
+    public static class Config {
+        public long seed = 42;
+        public int users = 1_000_000;
+        public int events = 100_000;
+        /** share of users that are organizers, each event belongs to one of them */
+        public double organizerShare = 0.01;
+        /** median waitlist size, sizes are log-normal so a few events are very popular */
+        public double medianWaitlist = 12;
+        /** spread of the waitlist sizes, larger means a longer tail of popular events */
+        public double waitlistSpread = 1.3;
+        /** share of events whose lottery has already been drawn */
+        public double drawnShare = 0.3;
+        /** share of events with a poster image */
+        public double imageShare = 0.6;
+        /** average notifications per user */
+        public double notificationsPerUser = 3;
+        /** first day events can start, they're spread over the following year */
+        public long startEpochMs = 1767225600000L; // 2026-01-01
+        public int batchSize = MAX_BATCH_SIZE;
+        public int maxInFlight = 4;
+    }
+
+    /**
+     * Progress and result of a run
+     */
+    public interface SeedListener {
+        void onProgress(long written, String phase);
+
+        void onComplete(long written, int failedBatches);
+    }
+
+    /** One document write */
+    private static class Write {
+        final DocumentReference ref;
+        final Map<String, Object> data;
+        final boolean merge;
+
+        Write(DocumentReference ref, Map<String, Object> data, boolean merge) {
+            this.ref = ref;
+            this.data = data;
+            this.merge = merge;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final Config config;
+    private final int organizerCount;
+
+    // where generation is up to, only touched while holding the lock on this
+    private final Deque<Write> buffer = new ArrayDeque<>();
+    private int nextUser;
+    private int nextEvent;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicInteger failedBatches = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile SeedListener listener;
+
+    /**
+     * Connects to the local Firestore emulator instead of the real project. Has to be called
+     * before anything else uses Firestore in the process
+     * @param host 10.0.2.2 from the Android emulator, localhost on a device with adb reverse
+     * @param port emulator port, 8080 by default
+     */
+    public static FirebaseFirestore emulator(String host, int port) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        db.useEmulator(host, port);
+        // no local cache, the seeded data is only ever read back from the emulator
+        db.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                .setPersistenceEnabled(false)
+                .build());
+        return db;
+    }
+
+    /**
+     * Creates a seeder
+     * @param db where to write, usually from {@link #emulator}
+     * @param config what to generate
+     */
+    public ScaleSeeder(FirebaseFirestore db, Config config) {
+        if (config.batchSize <= 0 || config.maxInFlight <= 0 || config.users <= 0) {
+            throw new IllegalArgumentException("Batch size, concurrency and users must be greater than 0");
+        }
+        this.db = db;
+        this.config = config;
+        this.organizerCount = Math.max(1, (int) (config.users * config.organizerShare));
+    }
+
+    /**
+     * Writes everything: users (with their notifications) first, then each event with its
+     * waitlist, lottery and image
+     */
+    public void seed(SeedListener listener) {
+        this.listener = listener;
+        for (int i = 0; i < config.maxInFlight; i++) {
+            commitNext();
+        }
+    }
+
+    private void commitNext() {
+        WriteBatch batch = db.batch();
+        int size = 0;
+        String phase;
+        synchronized (this) {
+            while (size < Math.min(config.batchSize, MAX_BATCH_SIZE)) {
+                Write write = nextWrite();
+                if (write == null) break;
+                if (write.merge) {
+                    batch.set(write.ref, write.data, SetOptions.merge());
+                } else {
+                    batch.set(write.ref, write.data);
+                }
+                size++;
+            }
+            phase = nextUser < config.users ? "users" : "events";
+            if (size == 0) {
+                if (inFlight.get() == 0 && listener != null) {
+                    SeedListener done = listener;
+                    listener = null;
+                    Log.d(TAG, "Seeding finished: " + written.get() + " writes");
+                    done.onComplete(written.get(), failedBatches.get());
+                }
+                return;
+            }
+            inFlight.incrementAndGet();
+        }
+
+        int batchWrites = size;
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    long total = written.addAndGet(batchWrites);
+                    SeedListener current = listener;
+                    if (current != null) current.onProgress(total, phase);
+                    batchDone();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Seed batch failed", e);
+                    failedBatches.incrementAndGet();
+                    batchDone();
+                });
+    }
+
+    private void batchDone() {
+        inFlight.decrementAndGet();
+        commitNext();
+    }
+
+    /**
+     * @return the next write, generating the next user or event when the buffer runs out,
+     * null once everything has been handed out
+     */
+    private Write nextWrite() {
+        while (buffer.isEmpty()) {
+            if (nextUser < config.users) {
+                generateUser(nextUser++);
+            } else if (nextEvent < config.events) {
+                generateEvent(nextEvent++);
+            } else {
+                return null;
+            }
+        }
+        return buffer.poll();
+    }
+
+    private void generateUser(int index) {
+        Random random = random(1, index);
+        String userId = userId(index);
+        boolean organizer = index < organizerCount;
+
+        Map<String, Object> user = new HashMap<>();
+        String name = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        user.put("userId", userId);
+        user.put("name", name);
+        user.put("email", name.toLowerCase(Locale.ROOT).replace(' ', '.') + index + "@example.com");
+        user.put("phone", random.nextDouble() < 0.4 ? String.format(Locale.ROOT, "780555%04d", random.nextInt(10000)) : null);
+        user.put("role", organizer ? "organizer" : "entrant");
+        user.put("notificationsEnabled", random.nextDouble() < 0.85);
+        user.put("createdAt", config.startEpochMs - TimeUnit.DAYS.toMillis(random.nextInt(365)));
+        if (organizer) {
+            user.put("eventsCreated", new HashMap<>());
+        } else {
+            user.put("eventHistory", new HashMap<>());
+            user.put("waitingLists", new HashMap<>());
+        }
+        buffer.add(new Write(db.collection("users").document(userId), user, false));
+
+        int notifications = poisson(random, config.notificationsPerUser);
+        for (int i = 0; i < notifications && config.events > 0; i++) {
+            int event = random.nextInt(config.events);
+            double roll = random.nextDouble();
+            String type = roll < 0.7 ? NotificationManager.TYPE_LOSS
+                    : roll < 0.9 ? NotificationManager.TYPE_WIN : NotificationManager.TYPE_REPLACEMENT;
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("type", type);
+            notification.put("eventId", eventId(event));
+            notification.put("eventName", eventName(event));
+            notification.put("message", NotificationManager.TYPE_LOSS.equals(type)
+                    ? "You were not selected this time" : "You've been selected!");
+            notification.put("timestamp", config.startEpochMs - TimeUnit.HOURS.toMillis(random.nextInt(24 * 90)));
+            notification.put("read", random.nextDouble() < 0.6);
+            notification.put("responded", !NotificationManager.TYPE_LOSS.equals(type) && random.nextBoolean());
+            notification.put("organizerName", "Seed Organizer");
+            buffer.add(new Write(db.collection("notifications").document(userId)
+                    .collection("messages").document(userId + "-" + i), notification, false));
+        }
+    }
+
+    private void generateEvent(int index) {
+        Random random = random(2, index);
+        String eventId = eventId(index);
+        String organizerId = userId(random.nextInt(organizerCount));
+        long createdAt = config.startEpochMs - TimeUnit.DAYS.toMillis(random.nextInt(60));
+        long start = config.startEpochMs + TimeUnit.DAYS.toMillis(random.nextInt(365));
+        long end = start + TimeUnit.DAYS.toMillis(random.nextDouble() < 0.8 ? 0 : 1 + random.nextInt(3));
+
+        int capacity = 5 + (int) Math.round(Math.exp(2.5 + random.nextGaussian()));
+        int waitlistLimit = random.nextDouble() < 0.3 ? 0 : capacity * (2 + random.nextInt(8));
+        int waitlistSize = (int) Math.round(config.medianWaitlist * Math.exp(config.waitlistSpread * random.nextGaussian()));
+        waitlistSize = Math.min(waitlistSize, config.users - organizerCount);
+        if (waitlistLimit > 0) waitlistSize = Math.min(waitlistSize, waitlistLimit);
+        boolean free = random.nextDouble() < 0.4;
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventName", eventName(index));
+        event.put("organizer", organizerId);
+        event.put("organizerName", "Seed Organizer " + organizerId.substring(organizerId.length() - 4));
+        event.put("location", pick(random, CITIES) + ", AB");
+        event.put("description", "Generated event " + index);
+        event.put("eligibility", "Open to everyone");
+        event.put("startDate", date(start));
+        event.put("endDate", date(end));
+        event.put("price", free ? "0" : String.valueOf(5 * (1 + (int) Math.exp(1.5 + random.nextGaussian()))));
+        event.put("waitlistLimit", String.valueOf(waitlistLimit));
+        event.put("entrantMaxCapacity", String.valueOf(capacity));
+        event.put("geolocationRequired", random.nextDouble() < 0.15);
+        event.put("category", pick(random, CATEGORIES));
+        event.put("createdAt", createdAt);
+        event.put(WaitlistCounter.COUNT_FIELD, waitlistSize);
+        // counted in shards from the start like events made in the app, nothing to migrate
+        event.put(WaitlistCounter.SHARD_COUNT_FIELD, WaitlistCounter.DEFAULT_SHARDS);
+        buffer.add(new Write(db.collection("events").document(eventId), event, false));
+
+        // entrants are picked from the non-organizers, in the order they joined
+        List<String> entrants = new ArrayList<>(pickEntrants(random, waitlistSize));
+        long joinedAt = createdAt;
+        for (String userId : entrants) {
+            joinedAt += 1 + (long) (-Math.log(1 - random.nextDouble()) * TimeUnit.HOURS.toMillis(2));
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("userId", userId);
+            entry.put("joinedAt", joinedAt);
+            entry.put("status", "waiting");
+            entry.put("deviceId", null);
+            buffer.add(new Write(WaitlistStore.entryRef(db, eventId, userId), entry, false));
+
+            Map<String, Object> membership = new HashMap<>();
+            membership.put("joinedAt", joinedAt);
+            membership.put("status", "waiting");
+            buffer.add(new Write(db.collection("users").document(userId),
+                    Collections.singletonMap("waitingLists", Collections.singletonMap(eventId, membership)), true));
+        }
+        // the whole count in shard 0, the other shards start empty
+        buffer.add(new Write(WaitlistCounter.shardRef(db, eventId, 0),
+                Collections.singletonMap("count", (long) waitlistSize), false));
+
+        if (!entrants.isEmpty() && random.nextDouble() < config.drawnShare) {
+            generateLottery(random, eventId, entrants, capacity);
+        }
+
+        if (random.nextDouble() < config.imageShare) {
+            String imageId = eventId + "-poster";
+            Map<String, Object> image = new HashMap<>();
+            image.put("imageId", imageId);
+            image.put("eventId", eventId);
+            image.put("organizerId", organizerId);
+            image.put("organizerName", event.get("organizerName"));
+            image.put("imageData", PLACEHOLDER_IMAGE);
+            image.put("uploadedAt", createdAt);
+            image.put("fileName", "image_" + createdAt + ".jpg");
+            buffer.add(new Write(db.collection("images").document(imageId), image, false));
+        }
+    }
+
+    /**
+     * A drawn lottery: order pages, one selection per winner with a mix of responses, and the
+     * counters to match
+     */
+    private void generateLottery(Random random, String eventId, List<String> entrants, int capacity) {
+        List<String> order = new ArrayList<>(entrants);
+        Collections.shuffle(order, random);
+        int sampleSize = Math.min(capacity, order.size());
+
+        DocumentReference lotteryRef = db.collection(LotteryManager.LOTTERIES_COLLECTION).document(eventId);
+        int pageSize = LotteryOrderReader.PAGE_SIZE;
+        int pageCount = LotteryOrderReader.pageCount(order.size(), pageSize);
+        String drawId = eventId + "-draw";
+        for (int page = 0; page < pageCount; page++) {
+            Map<String, Object> pageData = LotteryOrderReader.pageData(order, page, pageSize);
+            pageData.put(LotteryManager.DRAW_ID_FIELD, drawId);
+            buffer.add(new Write(LotteryOrderReader.pageRef(lotteryRef, page), pageData, false));
+        }
+
+        int pending = 0, accepted = 0, declined = 0, expired = 0;
+        long drawnAt = config.startEpochMs - TimeUnit.DAYS.toMillis(1 + random.nextInt(14));
+        for (int i = 0; i < sampleSize; i++) {
+            String userId = order.get(i);
+            double roll = random.nextDouble();
+            Map<String, Object> selection;
+            if (roll < 0.5) {
+                selection = SelectionStore.selectionData(eventId, userId, SelectionStore.STATUS_ACCEPTED, String.valueOf(drawnAt));
+                accepted++;
+            } else if (roll < 0.7) {
+                selection = SelectionStore.selectionData(eventId, userId, SelectionStore.STATUS_DECLINED, String.valueOf(drawnAt));
+                declined++;
+            } else if (roll < 0.8) {
+                selection = SelectionStore.selectionData(eventId, userId, SelectionStore.STATUS_EXPIRED, String.valueOf(drawnAt));
+                expired++;
+            } else {
+                selection = SelectionStore.pendingSelectionData(eventId, userId, drawnAt);
+                pending++;
+            }
+            selection.put(LotteryManager.DRAW_ID_FIELD, drawId);
+            buffer.add(new Write(SelectionStore.selectionRef(db, eventId, userId), selection, false));
+        }
+
+        Map<String, Object> counters = new HashMap<>();
+        counters.put(SelectionStore.STATUS_PENDING, pending);
+        counters.put(SelectionStore.STATUS_ACCEPTED, accepted);
+        counters.put(SelectionStore.STATUS_DECLINED, declined);
+        counters.put(SelectionStore.STATUS_EXPIRED, expired);
+        buffer.add(new Write(SelectionStore.countersRef(db, eventId), counters, false));
+
+        Map<String, Object> lottery = new HashMap<>();
+        lottery.put("eventId", eventId);
+        lottery.put("status", LotteryManager.STATUS_DRAWN);
+        lottery.put(LotteryManager.DRAW_ID_FIELD, drawId);
+        lottery.put("entrantCount", order.size());
+        lottery.put("pageSize", pageSize);
+        lottery.put("pageCount", pageCount);
+        lottery.put("currentDrawIndex", sampleSize);
+        lottery.put("lotterySampleSize", sampleSize);
+        lottery.put("lotterySeed", random.nextLong());
+        lottery.put("mode", "uniform");
+        lottery.put("createdAt", drawnAt);
+        buffer.add(new Write(lotteryRef, lottery, false));
+    }
+
+    /**
+     * Distinct random entrants, never organizers
+     */
+    private Set<String> pickEntrants(Random random, int count) {
+        int entrantPool = config.users - organizerCount;
+        Set<String> picked = new LinkedHashSet<>();
+        while (picked.size() < count) {
+            picked.add(userId(organizerCount + random.nextInt(entrantPool)));
+        }
+        return picked;
+    }
+
+    /**
+     * Random stream for one user or event, independent of the order things are generated in.
+     * The index is scrambled (SplitMix64) since neighbouring seeds give java.util.Random
+     * correlated first draws
+     */
+    private Random random(int kind, int index) {
+        long z = config.seed + kind * 0x632BE59BD9B4E019L + index * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new Random(z ^ (z >>> 31));
+    }
+
+    private static int poisson(Random random, double mean) {
+        // Knuth, fine for the small means used here
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String userId(int index) {
+        return String.format(Locale.ROOT, "seed-user-%07d", index);
+    }
+
+    private static String eventId(int index) {
+        return String.format(Locale.ROOT, "seed-event-%06d", index);
+    }
+
+    private static String eventName(int index) {
+        return "Seed Event " + index;
+    }
+
+    /** MM/dd/yyyy like the events made in the app, in UTC so the seed decides the date */
+    private static String date(long epochMs) {
+        SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(epochMs));
+    }
+}
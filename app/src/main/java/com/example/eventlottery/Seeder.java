@@ -13,6 +13,7 @@ import java.util.Map;
 /**
  * Seeder for populating the database with test events for search functionality testing.
  * Creates diverse events across different categories, price ranges, locations, and dates.
+ * For production sized data (users, waitlists, lotteries and all) use {@link ScaleSeeder}.
  */
 public class Seeder {
 
@@ -116,6 +116,16 @@ public class Event {
 
     public String getCategory() { return category; }
 
+    /**
+     * Creates a copy of this event with different waitlist information.
+     * @param newWaitlist updated waitlist
+     * @return new Event with the same details and the new waitlist
+     */
+    public Event withWaitlist(Waitlist newWaitlist) {
+        return new Event(id, title, organizationName, description, eligibility, location, dates,
+                imageUrl, newWaitlist, price, status, geolocationRequired, category);
+    }
+
     /**
      * Checks if event is accepting new signups.
      * @return true if status is OPEN and spots are available
@@ -140,6 +150,11 @@ public class Event {
         return id.equals(event.id);
     }
 
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
     @Override
     public String toString() {
         return "Event{" +
@@ -8,6 +8,8 @@ import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.eventlottery.managers.ImageManager;
 import com.example.eventlottery.models.Image;
@@ -19,14 +21,46 @@ import com.example.eventlottery.R;
 import com.example.eventlottery.utils.ImageCompressionHelper;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Adapter for displaying a list of events in a RecyclerView.
  * Connects event data to the RecyclerView by creating and binding ViewHolders.
+ * New lists are diffed against the shown one on a background thread, so only cards that
+ * changed are redrawn, and a card whose waitlist count or button changed only updates those
+ * views instead of rebinding everything and reloading its image.
  */
 public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHolder> {
-    private List<EventViewModel> eventViewModels; // Models
+    /** Payload for a card whose join button state changed */
+    static final String PAYLOAD_BUTTON = "button";
+    /** Payload for a card whose waitlist count changed */
+    static final String PAYLOAD_WAITLIST = "waitlist";
+
+    private static final DiffUtil.ItemCallback<EventViewModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<EventViewModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull EventViewModel oldItem, @NonNull EventViewModel newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull EventViewModel oldItem, @NonNull EventViewModel newItem) {
+            return sameDetails(oldItem, newItem) && sameWaitlist(oldItem, newItem) && sameButton(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull EventViewModel oldItem, @NonNull EventViewModel newItem) {
+            if (!sameDetails(oldItem, newItem)) {
+                return null; // full rebind
+            }
+            return sameWaitlist(oldItem, newItem) ? PAYLOAD_BUTTON : PAYLOAD_WAITLIST;
+        }
+    };
+
+    private final AsyncListDiffer<EventViewModel> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // event ID -> stable item ID, handed out in order so two events never share one
+    private final Map<String, Long> itemIds = new HashMap<>();
     private OnEventClickListener listener; // Listeners
 
     /**
@@ -55,8 +89,11 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
      * @param listener        callback for button clicks
      */
     public EventAdapter(List<EventViewModel> eventViewModels, OnEventClickListener listener) {
-        this.eventViewModels = eventViewModels != null ? eventViewModels : new ArrayList<>();
         this.listener = listener;
+        setHasStableIds(true);
+        if (eventViewModels != null && !eventViewModels.isEmpty()) {
+            differ.submitList(new ArrayList<>(eventViewModels));
+        }
     }
 
     /**
@@ -84,10 +121,46 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
      */
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
-        EventViewModel viewModel = eventViewModels.get(position);
+        EventViewModel viewModel = differ.getCurrentList().get(position);
         holder.bind(viewModel, listener);
     }
 
+    /**
+     * Binds only the parts of a card named by the payloads, or the whole card if there are none.
+     *
+     * @param holder   the ViewHolder to bind data to
+     * @param position the position in the data list
+     * @param payloads what changed, from the diff
+     */
+    @Override
+    public void onBindViewHolder(@NonNull EventViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        EventViewModel viewModel = differ.getCurrentList().get(position);
+        if (payloads.contains(PAYLOAD_WAITLIST)) {
+            holder.bindWaitlist(viewModel);
+        }
+        // always, so the click listeners act on the latest version of the event
+        holder.setupButtons(viewModel, listener);
+    }
+
+    /**
+     * @param position the position in the data list
+     * @return an ID that stays with the event wherever it moves in the list
+     */
+    @Override
+    public long getItemId(int position) {
+        String eventId = differ.getCurrentList().get(position).getId();
+        Long itemId = itemIds.get(eventId);
+        if (itemId == null) {
+            itemId = (long) itemIds.size();
+            itemIds.put(eventId, itemId);
+        }
+        return itemId;
+    }
+
     /**
      * Returns the total number of items in the list.
      *
@@ -95,17 +168,41 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
      */
     @Override
     public int getItemCount() {
-        return eventViewModels.size();
+        return differ.getCurrentList().size();
     }
 
     /**
-     * Updates the adapter with a new list of events and refreshes the RecyclerView.
+     * Shows a new list of events. The differences from the current list are worked out in the
+     * background and only the cards that changed are redrawn.
      *
      * @param newEventViewModels new list of events to display
      */
     public void updateEvents(List<EventViewModel> newEventViewModels) {
-        this.eventViewModels = newEventViewModels != null ? newEventViewModels : new ArrayList<>();
-        notifyDataSetChanged();
+        // own copy, the differ needs a list nobody changes afterwards
+        differ.submitList(newEventViewModels != null ? new ArrayList<>(newEventViewModels) : new ArrayList<>());
+    }
+
+    /** @return true if nothing that's only shown on the card's text changed */
+    private static boolean sameDetails(EventViewModel a, EventViewModel b) {
+        return a.getTitle().equals(b.getTitle())
+                && a.getFormattedOrganization().equals(b.getFormattedOrganization())
+                && a.getLocationText().equals(b.getLocationText())
+                && a.getDateRange().equals(b.getDateRange())
+                && a.getFormattedPrice().equals(b.getFormattedPrice())
+                && a.getStatusText().equals(b.getStatusText());
+    }
+
+    private static boolean sameWaitlist(EventViewModel a, EventViewModel b) {
+        return a.getWaitlistInfo().equals(b.getWaitlistInfo())
+                && a.getSpotsText().equals(b.getSpotsText());
+    }
+
+    private static boolean sameButton(EventViewModel a, EventViewModel b) {
+        return a.isUserOnWaitlist() == b.isUserOnWaitlist()
+                && a.isLoadingLocation() == b.isLoadingLocation()
+                && a.getJoinButtonText().equals(b.getJoinButtonText())
+                && a.isJoinButtonEnabled() == b.isJoinButtonEnabled()
+                && a.isGeolocationRequired() == b.isGeolocationRequired();
     }
 
     /**
@@ -167,8 +264,7 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
             organizationName.setText(viewModel.getFormattedOrganization());
             locationText.setText(viewModel.getLocationText());
             dateRangeText.setText(viewModel.getDateRange());
-            waitlistInfo.setText(viewModel.getWaitlistInfo());
-            spotsText.setText(viewModel.getSpotsText());
+            bindWaitlist(viewModel);
             eventImage.setVisibility(View.GONE);
 
             // Image Binding
@@ -179,7 +275,12 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
 
         }
 
-        private void setupButtons(EventViewModel vm, OnEventClickListener listener) {
+        void bindWaitlist(EventViewModel viewModel) {
+            waitlistInfo.setText(viewModel.getWaitlistInfo());
+            spotsText.setText(viewModel.getSpotsText());
+        }
+
+        void setupButtons(EventViewModel vm, OnEventClickListener listener) {
             // Handle loading state
             if (vm.isLoadingLocation()) {
                 joinWaitlistButton.setText("");
@@ -3,10 +3,17 @@ package com.example.eventlottery.event_classes;
 /**
  * Represents an event's date range.
  * Immutable value object storing start and end dates.
+ * The dates are also parsed once into epoch days (days since 1970-01-01) so they can be
+ * compared in calendar order; text that isn't a date, like "Every Friday", is flagged instead.
  */
 public class EventDates {
+    /** Epoch day for a date that couldn't be parsed */
+    public static final long NOT_A_DATE = Long.MIN_VALUE;
+
     private final String startDate;
     private final String endDate;
+    private final long startDay;
+    private final long endDay;
 
     /**
      * Creates an EventDates object.
@@ -23,6 +30,8 @@ public class EventDates {
         }
         this.startDate = startDate;
         this.endDate = endDate;
+        this.startDay = parseEpochDay(startDate);
+        this.endDay = parseEpochDay(endDate);
     }
 
     /** @return start date */
@@ -31,6 +40,76 @@ public class EventDates {
     /** @return end date */
     public String getEndDate() { return endDate; }
 
+    /** @return start date in epoch days, {@link #NOT_A_DATE} if it isn't a date */
+    public long getStartDay() { return startDay; }
+
+    /** @return end date in epoch days, {@link #NOT_A_DATE} if it isn't a date */
+    public long getEndDay() { return endDay; }
+
+    /** @return true if both dates are real dates */
+    public boolean isParsed() {
+        return startDay != NOT_A_DATE && endDay != NOT_A_DATE;
+    }
+
+    /**
+     * Parses a date as entered in the app (MM/dd/yyyy, month and day may be one digit) or from
+     * the date picker (yyyy-MM-dd)
+     * @param date the date text
+     * @return days since 1970-01-01, {@link #NOT_A_DATE} if it isn't a valid date
+     */
+    public static long parseEpochDay(String date) {
+        if (date == null) {
+            return NOT_A_DATE;
+        }
+        String[] parts;
+        int year, month, day;
+        try {
+            if ((parts = date.trim().split("/")).length == 3) {
+                month = Integer.parseInt(parts[0]);
+                day = Integer.parseInt(parts[1]);
+                year = Integer.parseInt(parts[2]);
+            } else if ((parts = date.trim().split("-")).length == 3) {
+                year = Integer.parseInt(parts[0]);
+                month = Integer.parseInt(parts[1]);
+                day = Integer.parseInt(parts[2]);
+            } else {
+                return NOT_A_DATE;
+            }
+        } catch (NumberFormatException e) {
+            return NOT_A_DATE;
+        }
+        if (year < 1000 || year > 9999 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return NOT_A_DATE;
+        }
+        return epochDay(year, month, day);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar (java.time's LocalDate.toEpochDay
+     * needs API 26)
+     */
+    private static long epochDay(int year, int month, int day) {
+        // count years from March so the leap day is the last day of the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
     /**
      * Formats dates as a range string.
      * @return formatted range (e.g., "10/15/2025 - 10/21/2025")
@@ -47,6 +126,11 @@ public class EventDates {
         return startDate.equals(that.startDate) && endDate.equals(that.endDate);
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * startDate.hashCode() + endDate.hashCode();
+    }
+
     @Override
     public String toString() {
         return toRangeString();
@@ -208,6 +208,17 @@ public class EventViewModel {
         return new EventViewModel(event, isUserOnWaitlist, imageData, loading);
     }
 
+    /**
+     * Creates a new ViewModel with an updated waitlist count.
+     * @param count number of people on the waitlist
+     * @return new EventViewModel with the new count
+     */
+    public EventViewModel withWaitlistCount(int count) {
+        Waitlist waitlist = event.getWaitlist();
+        Waitlist updated = new Waitlist(Math.max(0, count), waitlist.getCapacity(), waitlist.getAvailableSpots());
+        return new EventViewModel(event.withWaitlist(updated), isUserOnWaitlist, imageData, isLoadingLocation);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -216,4 +227,9 @@ public class EventViewModel {
         return isUserOnWaitlist == that.isUserOnWaitlist && event.equals(that.event);
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * event.hashCode() + (isUserOnWaitlist ? 1 : 0);
+    }
+
 }
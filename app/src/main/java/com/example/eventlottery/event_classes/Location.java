@@ -30,6 +30,11 @@ public class  Location {
         return address.equals(location.address);
     }
 
+    @Override
+    public int hashCode() {
+        return address.hashCode();
+    }
+
     @Override
     public String toString() {
         return address;
@@ -42,6 +42,11 @@ public class Money {
         return Double.compare(money.amount, amount) == 0;
     }
 
+    @Override
+    public int hashCode() {
+        return Double.hashCode(amount);
+    }
+
     @Override
     public String toString() {
         return toDisplayString();
@@ -90,6 +90,11 @@ public class Waitlist {
                availableSpots == waitlist.availableSpots;
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * (31 * currentCount + capacity) + availableSpots;
+    }
+
 
     @Override
     public String toString() {
@@ -40,20 +40,29 @@ import com.example.eventlottery.FilterDialogFragment;
 import com.example.eventlottery.event_classes.Event;
 import com.example.eventlottery.event_classes.EventAdapter;
 import com.example.eventlottery.event_classes.EventViewModel;
-import com.example.eventlottery.event_classes.EventDates;
-import com.example.eventlottery.event_classes.EventStatus;
-import com.example.eventlottery.event_classes.Location;
-import com.example.eventlottery.event_classes.Money;
-import com.example.eventlottery.event_classes.Waitlist;
 import com.example.eventlottery.R;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import com.example.eventlottery.managers.EventFeed;
+import com.example.eventlottery.managers.WaitlistCounter;
 import com.example.eventlottery.managers.WaitlistManager;
+import com.example.eventlottery.managers.MembershipCache;
 import com.example.eventlottery.managers.ImageManager;
 import com.example.eventlottery.models.Image;
+import com.example.eventlottery.utils.EventColumns;
+import com.example.eventlottery.utils.EventFacets;
+import com.example.eventlottery.utils.EventSearchIndex;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -65,6 +74,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class BrowseFragment extends Fragment implements EventAdapter.OnEventClickListener {
 
     private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
     private EventAdapter eventAdapter;
     private EditText searchEditText;
     private Button allEventsButton;
@@ -75,15 +85,46 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
     private String currentUserId;
     private List<EventViewModel> currentEventViewModels = new ArrayList<>();
     private List<EventViewModel> allEventViewModels = new ArrayList<>(); // Store all events for filtering
+    // eventId -> position in allEventViewModels, redone whenever events are added or removed
+    private Map<String, Integer> positionById = new HashMap<>();
+    // exact counts read after joining or leaving, shown until the feed brings a new rolled up count
+    private final Map<String, ExactCount> exactCounts = new HashMap<>();
+    private MembershipCache membershipCache;
+    private final MembershipCache.Listener membershipListener = this::applyWaitlistStatus;
     private EventFilter currentFilter = new EventFilter(); // Current filter criteria
+    private EventFeed eventFeed;
+    private final EventFeed.Listener feedListener = new EventFeed.Listener() {
+        @Override
+        public void onEventsChanged(Set<String> changedIds) {
+            BrowseFragment.this.onEventsChanged(changedIds);
+        }
+
+        @Override
+        public void onFeedError(Exception e) {
+            Toast.makeText(getContext(), "Failed to load events: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+        }
+    };
 
     private  static final String TAG = "BrowseFragment";
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
     private static final int SEARCH_DEBOUNCE_DELAY_MS = 300; // 300ms debounce delay
+    // more changes than this at once (e.g. after being offline) just rebuilds the list
+    private static final int MAX_INCREMENTAL_CHANGES = 50;
+    // start loading the next page this many cards before the end
+    private static final int PREFETCH_DISTANCE = 5;
 
     private FusedLocationProviderClient fusedLocationClient;
     private Handler searchHandler = new Handler(Looper.getMainLooper());
     private Runnable searchRunnable;
+    private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor();
+    private EventSearchIndex searchIndex;
+    // what filters read, always built from the current list
+    private EventColumns columns = new EventColumns(new ArrayList<>());
+    private EventFacets facets;
+    private int indexVersion = -1;
+    // bumped whenever events in allEventViewModels are added, removed or changed
+    private int eventsVersion;
 
     private EventViewModel pendingJoinEvent = null;
 
@@ -110,6 +151,8 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         waitlistManager = WaitlistManager.getInstance();
+        membershipCache = MembershipCache.getInstance();
+        membershipCache.addListener(membershipListener);
 
         if (auth.getCurrentUser() != null) {
             currentUserId = auth.getCurrentUser().getUid();
@@ -119,8 +162,11 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
         initViews(view);
         setupRecyclerView();
 
-
-        loadEventsFromFirebase();
+        // the feed keeps listening after this view is gone, so coming back shows what it
+        // already has and only changes cost reads
+        eventFeed = EventFeed.getInstance();
+        eventFeed.addListener(feedListener);
+        showFeed();
 
 
         setupClickListeners();
@@ -130,16 +176,11 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
         return view;
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-        // Reload events when fragment becomes visible to catch newly created events
-        loadEventsFromFirebase();
-    }
-
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        membershipCache.removeListener(membershipListener);
+        eventFeed.removeListener(feedListener);
         // Remove any pending search callbacks to prevent memory leaks
         if (searchHandler != null && searchRunnable != null) {
             searchHandler.removeCallbacks(searchRunnable);
@@ -160,103 +201,188 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
 
     private void setupRecyclerView() {
         // Set layout manager
-        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager = new LinearLayoutManager(getContext());
         recyclerView.setLayoutManager(layoutManager);
 
         // Initialize adapter with empty list
         eventAdapter = new EventAdapter(new ArrayList<>(), this);
         recyclerView.setAdapter(eventAdapter);
+
+        // also called with 0, 0 after a layout, so a short (e.g. filtered) list pulls more too
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                prefetchIfNearEnd();
+            }
+        });
     }
 
     /**
-     * Loads events from Firestore and displays them.
+     * Asks the feed for the next page once the last few cards are on screen, so it's usually
+     * there before the user gets to the end
      */
-    private void loadEventsFromFirebase() {
-        db.collection("events")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        Toast.makeText(getContext(), "No events found.", Toast.LENGTH_LONG).show();
-                        return;
-                    }
+    private void prefetchIfNearEnd() {
+        if (eventFeed == null || !eventFeed.isLoaded() || !eventFeed.hasMore()) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= eventAdapter.getItemCount() - PREFETCH_DISTANCE) {
+            eventFeed.loadMore();
+        }
+    }
 
-                    List<EventViewModel> eventViewModels = new ArrayList<>();
-
-                    // Loop through all documents
-                    queryDocumentSnapshots.forEach(document -> {
-                        try {
-                            // 1. Extract fields (Same logic as before)
-                            String id = document.getId();
-                            String eventName = document.getString("eventName");
-                            String organizationName = document.getString("organizerName");
-                            String description = document.getString("description");
-                            String eligibility = document.getString("eligibility");
-                            String locationStr = document.getString("location");
-                            String startDate = document.getString("startDate");
-                            String endDate = document.getString("endDate");
-                            String priceStr = document.getString("price");
-                            String waitlistLimitStr = document.getString("waitlistLimit");
-                            String entrantMaxStr = document.getString("entrantMaxCapacity");
-                            Boolean geolocationRequired = document.getBoolean("geolocationRequired");
-                            String category = document.getString("category");
-
-                            // 2. Check Waitlist Status
-                            boolean isUserOnWaitlist = false;
-                            Object waitlistUsersObj = document.get("waitlistUsers");
-                            if (currentUserId != null && waitlistUsersObj instanceof java.util.List) {
-                                isUserOnWaitlist = ((java.util.List<?>) waitlistUsersObj).contains(currentUserId);
-                            }
-
-                            // 3. Parse Numbers
-                            double price = (priceStr != null && !priceStr.isEmpty()) ? Double.parseDouble(priceStr) : 0.0;
-                            int waitlistLimit = (waitlistLimitStr != null && !waitlistLimitStr.isEmpty()) ? Integer.parseInt(waitlistLimitStr) : 0;
-                            int entrantMax = (entrantMaxStr != null && !entrantMaxStr.isEmpty()) ? Integer.parseInt(entrantMaxStr) : 0;
-                            Long waitlistCountLong = document.getLong("waitlistCount");
-                            int waitlistCount = waitlistCountLong != null ? waitlistCountLong.intValue() : 0;
-
-                            // 4. Create Event Object
-                            Event event = new Event(
-                                    id,
-                                    eventName != null ? eventName : "Untitled Event",
-                                    organizationName != null ? organizationName : "Unknown Organizer",
-                                    description != null ? description : "",
-                                    eligibility != null ? eligibility : "",
-                                    new Location(locationStr != null ? locationStr : "TBD"),
-                                    new EventDates(startDate != null ? startDate : "", endDate != null ? endDate : ""),
-                                    "", // Image URL is empty/unused here
-                                    new Waitlist(waitlistCount, waitlistLimit, entrantMax),
-                                    new Money(price),
-                                    EventStatus.OPEN,
-                                    geolocationRequired != null ? geolocationRequired : false,
-                                    category != null ? category : "Other"
-                            );
-
-                            // 5. Create ViewModel without waiting for image
-                            // Pass 'null' for image data implicitly by using this constructor
-                            EventViewModel viewModel = new EventViewModel(event, isUserOnWaitlist);
-
-                            eventViewModels.add(viewModel);
-
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error processing event document", e);
-                        }
-                    });
-
-                    // 6. Update the list immediately after parsing is done
-                    updateEventsList(eventViewModels);
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(getContext(), "Failed to load events: " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                });
+    /**
+     * Shows every event in the feed, used when the view is (re)created and the feed already has
+     * them in memory, or when too much changed at once to patch the list
+     */
+    private void showFeed() {
+        if (!eventFeed.isLoaded()) {
+            return;
+        }
+        List<Event> events = eventFeed.getEvents();
+        if (events.isEmpty() && allEventViewModels.isEmpty()) {
+            Toast.makeText(getContext(), "No events found.", Toast.LENGTH_LONG).show();
+        }
+
+        Map<String, EventViewModel> previous = new HashMap<>();
+        for (EventViewModel vm : allEventViewModels) {
+            previous.put(vm.getId(), vm);
+        }
+        List<EventViewModel> eventViewModels = new ArrayList<>(events.size());
+        for (Event event : events) {
+            eventViewModels.add(toViewModel(event, previous.get(event.getId())));
+        }
+        allEventViewModels = eventViewModels;
+        indexPositions();
+        rebuildIndexes();
+        applyFiltersAndSearch();
+    }
+
+    /**
+     * Patches only the events that changed into the lists, the adapter then redraws just
+     * their cards. Changed events are swapped in place, new ones go in at their feed position
+     * @param changedIds events added, changed or removed in the feed
+     */
+    private void onEventsChanged(Set<String> changedIds) {
+        if (allEventViewModels.isEmpty() || changedIds.size() > MAX_INCREMENTAL_CHANGES) {
+            showFeed();
+            return;
+        }
+
+        Set<String> removed = new HashSet<>();
+        List<EventViewModel> added = new ArrayList<>();
+        for (String id : changedIds) {
+            Event event = eventFeed.get(id);
+            Integer index = positionById.get(id);
+            if (event == null) {
+                if (index != null) removed.add(id);
+            } else if (index != null) {
+                allEventViewModels.set(index, toViewModel(event, allEventViewModels.get(index)));
+            } else {
+                added.add(toViewModel(event, null));
+            }
+        }
+        if (!removed.isEmpty() || !added.isEmpty()) {
+            allEventViewModels = merge(allEventViewModels, removed, added);
+            indexPositions();
+        }
+        rebuildIndexes();
+        if (isFiltering()) {
+            applyFiltersAndSearch();
+        } else {
+            // unfiltered the shown list is the whole list in the same order
+            currentEventViewModels = new ArrayList<>(allEventViewModels);
+            eventAdapter.updateEvents(currentEventViewModels);
+        }
+    }
+
+    /**
+     * One pass over the list, the feed is in document ID order so that's where new events go
+     * @return the list without the removed events and with the added ones in order
+     */
+    private static List<EventViewModel> merge(List<EventViewModel> viewModels, Set<String> removed,
+                                              List<EventViewModel> added) {
+        Collections.sort(added, (a, b) -> a.getId().compareTo(b.getId()));
+        List<EventViewModel> merged = new ArrayList<>(viewModels.size() + added.size());
+        int next = 0;
+        for (EventViewModel vm : viewModels) {
+            if (removed.contains(vm.getId())) continue;
+            while (next < added.size() && added.get(next).getId().compareTo(vm.getId()) < 0) {
+                merged.add(added.get(next++));
+            }
+            merged.add(vm);
+        }
+        while (next < added.size()) {
+            merged.add(added.get(next++));
+        }
+        return merged;
+    }
+
+    private void indexPositions() {
+        positionById = new HashMap<>(allEventViewModels.size() * 2);
+        for (int i = 0; i < allEventViewModels.size(); i++) {
+            positionById.put(allEventViewModels.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * @return the card for a feed event, keeping the image and loading state of the card it
+     * replaces
+     */
+    private EventViewModel toViewModel(Event event, EventViewModel previous) {
+        // from the cached user document, event documents don't carry entrant lists
+        boolean isUserOnWaitlist = membershipCache.contains(event.getId());
+        EventViewModel vm = previous == null
+                ? new EventViewModel(event, isUserOnWaitlist)
+                : new EventViewModel(event, isUserOnWaitlist, previous.getImageData(), previous.isLoadingLocation());
+
+        ExactCount exact = exactCounts.get(event.getId());
+        if (exact == null) {
+            return vm;
+        }
+        if (exact.rolledUp != event.getWaitlist().getCurrentCount()) {
+            // a newer rollup came in, it already counts the join or leave
+            exactCounts.remove(event.getId());
+            return vm;
+        }
+        return vm.withWaitlistCount(exact.count);
+    }
+
+    /** @return true if a search or filter is narrowing the list */
+    private boolean isFiltering() {
+        String searchQuery = searchEditText != null ? searchEditText.getText().toString() : "";
+        return !searchQuery.trim().isEmpty() || currentFilter.hasFilters();
     }
+
+    /**
+     * Marks every loaded event card as joined or not from the membership cache, called when
+     * the cache loads or changes
+     */
+    private void applyWaitlistStatus() {
+        List<EventViewModel> updatedAll = withMembership(allEventViewModels);
+        List<EventViewModel> updatedCurrent = withMembership(currentEventViewModels);
+        if (updatedAll == allEventViewModels && updatedCurrent == currentEventViewModels) {
+            return;
+        }
+        allEventViewModels = updatedAll;
+        currentEventViewModels = updatedCurrent;
+        eventAdapter.updateEvents(updatedCurrent);
+    }
+
     /**
-     * Updates the events list and adapter with loaded events
+     * @return the list with each card's joined flag from the cache, the same list if none changed
      */
-    private void updateEventsList(List<EventViewModel> eventViewModels) {
-        allEventViewModels = new ArrayList<>(eventViewModels);
-        currentEventViewModels = eventViewModels;
-        eventAdapter.updateEvents(eventViewModels);
+    private List<EventViewModel> withMembership(List<EventViewModel> viewModels) {
+        List<EventViewModel> updated = null;
+        for (int i = 0; i < viewModels.size(); i++) {
+            EventViewModel vm = viewModels.get(i);
+            boolean joined = membershipCache.contains(vm.getId());
+            if (joined != vm.isUserOnWaitlist()) {
+                if (updated == null) updated = new ArrayList<>(viewModels);
+                updated.set(i, vm.withWaitlistStatus(joined));
+            }
+        }
+        return updated != null ? updated : viewModels;
     }
 
     /**
@@ -509,6 +635,7 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
 
                 // Update the list
                 updateEventViewModel(eventId, updatedViewModel);
+                refreshWaitlistCount(eventId);
             }
 
             @Override
@@ -539,6 +666,7 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
 
                 // Update the list
                 updateEventViewModel(eventId, updatedViewModel);
+                refreshWaitlistCount(eventId);
             }
 
             @Override
@@ -572,6 +700,12 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
     }
 
     private void updateEventViewModel(String eventId, EventViewModel updatedViewModel) {
+        // the full list too, the shown list is rebuilt from it on every search or feed change
+        Integer index = positionById.get(eventId);
+        if (index != null) {
+            allEventViewModels.set(index, updatedViewModel);
+        }
+
         List<EventViewModel> updatedList = new ArrayList<>();
 
         for (EventViewModel vm : currentEventViewModels) {
@@ -586,6 +720,35 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
         eventAdapter.updateEvents(updatedList);
     }
 
+    /**
+     * Replaces the rolled up count on an event card with the exact count from the counter shards
+     * @param eventId the event that was just joined or left
+     */
+    private void refreshWaitlistCount(String eventId) {
+        WaitlistCounter.getInstance().getCount(eventId, count -> {
+            Event event = eventFeed.get(eventId);
+            Integer index = positionById.get(eventId);
+            if (event == null || index == null) {
+                return;
+            }
+            exactCounts.put(eventId, new ExactCount(event.getWaitlist().getCurrentCount(), count.intValue()));
+            updateEventViewModel(eventId, allEventViewModels.get(index).withWaitlistCount(count.intValue()));
+        }, e -> Log.e(TAG, "Error refreshing waitlist count", e));
+    }
+
+    /**
+     * An exact waitlist count and the rolled up count it was read over
+     */
+    private static class ExactCount {
+        final int rolledUp;
+        final int count;
+
+        ExactCount(int rolledUp, int count) {
+            this.rolledUp = rolledUp;
+            this.count = count;
+        }
+    }
+
     /**
      * Opens the filter dialog
      */
@@ -595,90 +758,97 @@ public class BrowseFragment extends Fragment implements EventAdapter.OnEventClic
             currentFilter = filter;
             applyFiltersAndSearch();
         });
+        // live "N events match" counts while filters are being picked
+        filterDialog.setMatchCounter(filter -> matchingPositions(filter).cardinality());
         filterDialog.show(getParentFragmentManager(), "FilterDialog");
     }
 
     /**
-     * Applies both search query and filters to the event list
+     * Applies both search query and filters to the events loaded so far
      */
     private void applyFiltersAndSearch() {
-        String searchQuery = searchEditText != null ? searchEditText.getText().toString() : "";
-
-        // Start with all events
-        List<EventViewModel> filteredEvents = new ArrayList<>(allEventViewModels);
-
-        // Apply search filter first
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            String lowerCaseQuery = searchQuery.toLowerCase().trim();
-            List<EventViewModel> searchFiltered = new ArrayList<>();
-            for (EventViewModel event : filteredEvents) {
-                if (event.getTitle().toLowerCase().contains(lowerCaseQuery)) {
-                    searchFiltered.add(event);
-                }
-            }
-            filteredEvents = searchFiltered;
+        BitSet matching = matchingPositions(currentFilter);
+        List<EventViewModel> filteredEvents = new ArrayList<>(matching.cardinality());
+        for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+            filteredEvents.add(allEventViewModels.get(i));
         }
 
-        // Apply category filter
-        if (currentFilter.getActivityType() != null) {
-            List<EventViewModel> categoryFiltered = new ArrayList<>();
-            for (EventViewModel eventVM : filteredEvents) {
-                if (eventVM.getCategory() != null &&
-                    eventVM.getCategory().equals(currentFilter.getActivityType())) {
-                    categoryFiltered.add(eventVM);
+        // Update the current list and adapter
+        currentEventViewModels = filteredEvents;
+        eventAdapter.updateEvents(filteredEvents);
+        // searches and filters only see loaded pages, keep pulling while few match
+        prefetchIfNearEnd();
+    }
+
+    /**
+     * @param filter the filter, not necessarily the applied one
+     * @return positions in allEventViewModels of the events matching the search box and filter
+     */
+    private BitSet matchingPositions(EventFilter filter) {
+        String searchQuery = searchEditText != null ? searchEditText.getText().toString() : "";
+        boolean searching = !EventSearchIndex.normalize(searchQuery).isEmpty();
+        String locationQuery = filter.getLocation() != null ? filter.getLocation().toLowerCase().trim() : "";
+
+        BitSet matching;
+        if (searchIndex != null && indexVersion == eventsVersion) {
+            // the filter is an AND of facet bitsets, the search matches are one more
+            matching = facets.match(filter);
+            if (searching) {
+                BitSet found = new BitSet(allEventViewModels.size());
+                for (int position : searchIndex.search(searchQuery)) {
+                    found.set(position);
                 }
+                matching.and(found);
             }
-            filteredEvents = categoryFiltered;
-        }
-
-        // Apply price filter
-        if (currentFilter.getMinPrice() != null || currentFilter.getMaxPrice() != null) {
-            List<EventViewModel> priceFiltered = new ArrayList<>();
-            for (EventViewModel eventVM : filteredEvents) {
-                double price = eventVM.getPrice();
-                boolean matchesMin = currentFilter.getMinPrice() == null || price >= currentFilter.getMinPrice();
-                boolean matchesMax = currentFilter.getMaxPrice() == null || price <= currentFilter.getMaxPrice();
-                if (matchesMin && matchesMax) {
-                    priceFiltered.add(eventVM);
+        } else {
+            // indexes aren't built for this list yet, scan the columns and check titles one by one
+            matching = columns.filter(filter);
+            if (searching) {
+                for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                    if (!EventSearchIndex.matches(allEventViewModels.get(i).getTitle(), searchQuery)) {
+                        matching.clear(i);
+                    }
                 }
             }
-            filteredEvents = priceFiltered;
         }
 
-        // Apply date filter
-        if (currentFilter.getStartDate() != null || currentFilter.getEndDate() != null) {
-            List<EventViewModel> dateFiltered = new ArrayList<>();
-            for (EventViewModel eventVM : filteredEvents) {
-                String eventStartDate = eventVM.getStartDate();
-                String eventEndDate = eventVM.getEndDate();
-
-                boolean matchesStartDate = currentFilter.getStartDate() == null ||
-                    (eventStartDate != null && eventStartDate.compareTo(currentFilter.getStartDate()) >= 0);
-                boolean matchesEndDate = currentFilter.getEndDate() == null ||
-                    (eventEndDate != null && eventEndDate.compareTo(currentFilter.getEndDate()) <= 0);
-
-                if (matchesStartDate && matchesEndDate) {
-                    dateFiltered.add(eventVM);
+        // Location filter, only on what's left
+        if (!locationQuery.isEmpty()) {
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                if (!allEventViewModels.get(i).getLocationText().toLowerCase().contains(locationQuery)) {
+                    matching.clear(i);
                 }
             }
-            filteredEvents = dateFiltered;
         }
+        return matching;
+    }
 
-        // Apply location filter
-        if (currentFilter.getLocation() != null && !currentFilter.getLocation().trim().isEmpty()) {
-            String locationQuery = currentFilter.getLocation().toLowerCase().trim();
-            List<EventViewModel> locationFiltered = new ArrayList<>();
-            for (EventViewModel eventVM : filteredEvents) {
-                if (eventVM.getLocationText().toLowerCase().contains(locationQuery)) {
-                    locationFiltered.add(eventVM);
-                }
-            }
-            filteredEvents = locationFiltered;
+    /**
+     * Rebuilds the title search index and filter facets for the current list of events in the
+     * background. Until they're ready searches and filters check events one by one
+     */
+    private void rebuildIndexes() {
+        int version = ++eventsVersion;
+        List<String> titles = new ArrayList<>(allEventViewModels.size());
+        List<Event> events = new ArrayList<>(allEventViewModels.size());
+        for (EventViewModel vm : allEventViewModels) {
+            titles.add(vm.getTitle());
+            events.add(vm.getEvent());
         }
-
-        // Update the current list and adapter
-        currentEventViewModels = filteredEvents;
-        eventAdapter.updateEvents(filteredEvents);
+        // the columns are a few array writes per event, cheap enough to keep current right away
+        EventColumns builtColumns = new EventColumns(events);
+        columns = builtColumns;
+        INDEX_EXECUTOR.execute(() -> {
+            EventSearchIndex builtSearchIndex = new EventSearchIndex(titles);
+            EventFacets builtFacets = new EventFacets(builtColumns);
+            searchHandler.post(() -> {
+                // the list changed again while these were building
+                if (version != eventsVersion) return;
+                searchIndex = builtSearchIndex;
+                facets = builtFacets;
+                indexVersion = version;
+            });
+        });
     }
 
 
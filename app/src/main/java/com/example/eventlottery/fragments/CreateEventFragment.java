@@ -37,6 +37,7 @@ import com.bumptech.glide.Glide;
 import com.example.eventlottery.R;
 import com.example.eventlottery.QrGenerator;
 import com.example.eventlottery.managers.ImageManager;
+import com.example.eventlottery.managers.WaitlistCounter;
 import com.example.eventlottery.models.Image;
 import com.example.eventlottery.utils.ImageCompressionHelper;
 import com.google.firebase.auth.FirebaseAuth;
@@ -429,6 +430,8 @@ public class CreateEventFragment extends Fragment {
 
         if (!isEditMode) {
             eventData.put("createdAt", System.currentTimeMillis());
+            // new events count their waitlist in shards from the start, nothing to migrate
+            eventData.put(WaitlistCounter.SHARD_COUNT_FIELD, WaitlistCounter.DEFAULT_SHARDS);
 
             db.collection("events")
                     .add(eventData)
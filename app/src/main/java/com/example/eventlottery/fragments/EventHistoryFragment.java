@@ -19,7 +19,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.eventlottery.EventDetailActivity;
 import com.example.eventlottery.R;
 import com.example.eventlottery.adapters.HistoryEventAdapter;
+import com.example.eventlottery.managers.SelectionStore;
+import com.example.eventlottery.managers.MembershipCache;
 import com.example.eventlottery.models.HistoryEventViewModel;
+import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.button.MaterialButtonToggleGroup;
 import com.google.firebase.auth.FirebaseAuth;
@@ -29,6 +32,7 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * EventHistoryFragment - Displays user's event history in three tabs
@@ -154,40 +158,30 @@ public class EventHistoryFragment extends Fragment {
     }
 
     /**
-     * PENDING: User in waitlistUsers OR in selected with status "pending"
+     * PENDING: User has a waitlist entry OR has a selection with status "pending"
      */
     private void loadPendingEvents() {
         Log.d(TAG, "Loading pending events for userId: " + userId);
         eventsList.clear();
 
-        // Query ALL events and check if user is in waitlistUsers or selected
-        db.collection("events")
+        // Query ALL events and check if user is on the waitlist or has a pending selection
+        loadSelectionStatuses(statuses -> loadWaitlistedEventIds(waitlisted -> db.collection("events")
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     Log.d(TAG, "Found " + queryDocumentSnapshots.size() + " total events");
 
                     for (DocumentSnapshot eventDoc : queryDocumentSnapshots) {
-                        @SuppressWarnings("unchecked")
-                        List<String> waitlistUsers = (List<String>) eventDoc.get("waitlistUsers");
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> selected = (Map<String, Object>) eventDoc.get("selected");
-
                         boolean isPending = false;
 
                         // Check if user is on waitlist
-                        if (waitlistUsers != null && waitlistUsers.contains(userId)) {
+                        if (waitlisted.contains(eventDoc.getId())) {
                             isPending = true;
                             Log.d(TAG, "User is on waitlist for: " + eventDoc.getId());
                         }
                         // Check if user has pending selection
-                        else if (selected != null && selected.containsKey(userId)) {
-                            @SuppressWarnings("unchecked")
-                            Map<String, Object> userSelection = (Map<String, Object>) selected.get(userId);
-                            String status = userSelection != null ? (String) userSelection.get("status") : null;
-                            if ("pending".equals(status)) {
-                                isPending = true;
-                                Log.d(TAG, "User has pending selection for: " + eventDoc.getId());
-                            }
+                        else if (SelectionStore.STATUS_PENDING.equals(SelectionStore.statusFor(statuses, eventDoc, userId))) {
+                            isPending = true;
+                            Log.d(TAG, "User has pending selection for: " + eventDoc.getId());
                         }
 
                         if (isPending) {
@@ -205,34 +199,25 @@ public class EventHistoryFragment extends Fragment {
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error loading pending events", e);
                     showEmptyState("Error loading events");
-                });
+                })));
     }
 
     /**
-     * WON: User in selected with status "accepted"
+     * WON: User has a selection with status "accepted"
      */
     private void loadWonEvents() {
         Log.d(TAG, "Loading won events for userId: " + userId);
         eventsList.clear();
 
-        db.collection("events")
+        loadSelectionStatuses(statuses -> db.collection("events")
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     for (DocumentSnapshot eventDoc : queryDocumentSnapshots) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> selected = (Map<String, Object>) eventDoc.get("selected");
-
-                        if (selected != null && selected.containsKey(userId)) {
-                            @SuppressWarnings("unchecked")
-                            Map<String, Object> userSelection = (Map<String, Object>) selected.get(userId);
-                            String status = userSelection != null ? (String) userSelection.get("status") : null;
-
-                            if ("accepted".equals(status)) {
-                                HistoryEventViewModel event = documentToEvent(eventDoc);
-                                if (event != null) {
-                                    eventsList.add(event);
-                                    Log.d(TAG, "User won event: " + eventDoc.getId());
-                                }
+                        if (SelectionStore.STATUS_ACCEPTED.equals(SelectionStore.statusFor(statuses, eventDoc, userId))) {
+                            HistoryEventViewModel event = documentToEvent(eventDoc);
+                            if (event != null) {
+                                eventsList.add(event);
+                                Log.d(TAG, "User won event: " + eventDoc.getId());
                             }
                         }
                     }
@@ -244,34 +229,25 @@ public class EventHistoryFragment extends Fragment {
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error loading won events", e);
                     showEmptyState("Error loading events");
-                });
+                }));
     }
 
     /**
-     * LOST: User in selected with status "declined"
+     * LOST: User has a selection with status "declined"
      */
     private void loadLostEvents() {
         Log.d(TAG, "Loading lost events for userId: " + userId);
         eventsList.clear();
 
-        db.collection("events")
+        loadSelectionStatuses(statuses -> db.collection("events")
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     for (DocumentSnapshot eventDoc : queryDocumentSnapshots) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> selected = (Map<String, Object>) eventDoc.get("selected");
-
-                        if (selected != null && selected.containsKey(userId)) {
-                            @SuppressWarnings("unchecked")
-                            Map<String, Object> userSelection = (Map<String, Object>) selected.get(userId);
-                            String status = userSelection != null ? (String) userSelection.get("status") : null;
-
-                            if ("declined".equals(status)) {
-                                HistoryEventViewModel event = documentToEvent(eventDoc);
-                                if (event != null) {
-                                    eventsList.add(event);
-                                    Log.d(TAG, "User lost event: " + eventDoc.getId());
-                                }
+                        if (SelectionStore.STATUS_DECLINED.equals(SelectionStore.statusFor(statuses, eventDoc, userId))) {
+                            HistoryEventViewModel event = documentToEvent(eventDoc);
+                            if (event != null) {
+                                eventsList.add(event);
+                                Log.d(TAG, "User lost event: " + eventDoc.getId());
                             }
                         }
                     }
@@ -283,9 +259,32 @@ public class EventHistoryFragment extends Fragment {
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error loading lost events", e);
                     showEmptyState("Error loading events");
+                }));
+    }
+
+    /**
+     * Loads the user's selection status for every event they were drawn for (event ID to status),
+     * in one query instead of reading each event's selections
+     */
+    private void loadSelectionStatuses(OnSuccessListener<Map<String, String>> onLoaded) {
+        SelectionStore.forUser(db, userId)
+                .get()
+                .addOnSuccessListener(selections -> onLoaded.onSuccess(SelectionStore.statusByEvent(selections)))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading selections", e);
+                    showEmptyState("Error loading events");
                 });
     }
 
+    /**
+     * Gets the IDs of the events the user is waitlisted for from the membership cache,
+     * no read once the user's document is cached
+     */
+    private void loadWaitlistedEventIds(OnSuccessListener<Set<String>> onLoaded) {
+        MembershipCache cache = MembershipCache.getInstance();
+        cache.whenLoaded(() -> onLoaded.onSuccess(cache.getEventIds()));
+    }
+
     private HistoryEventViewModel documentToEvent(DocumentSnapshot doc) {
         try {
             HistoryEventViewModel event = new HistoryEventViewModel();
@@ -22,6 +22,10 @@ import androidx.fragment.app.Fragment;
 import com.example.eventlottery.R;
 import com.example.eventlottery.managers.CSVDownloadManager;
 import com.example.eventlottery.managers.LotteryManager;
+import com.example.eventlottery.managers.SelectionStore;
+import com.example.eventlottery.managers.WaitlistCounter;
+import com.example.eventlottery.managers.WaitlistRankService;
+import com.example.eventlottery.managers.WaitlistStore;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
@@ -30,13 +34,14 @@ import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.GeoPoint;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 /**
  * EventManagementFragment handles the management interface for a specific event.
  * It allows organizers to view entrant lists (waitlist, accepted, declined), run the lottery,
@@ -54,6 +59,7 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
     private Button btnViewDeclined, btnDownloadDeclined;
     private Button btnViewRetry, btnDownloadRetry;
     private Button btnDownloadAllWaitlist;
+    private Button btnRefillCapacity;
     private CardView mapCard;
     private ProgressBar progressBar;
 
@@ -69,11 +75,10 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
     private GoogleMap googleMap;
 
     //  Firestore field names to match LotteryManager
-    private static final String FIELD_WAITLIST = "waitlistUsers";
-    private static final String FIELD_ACCEPTED = "accepted";        // Fixed: matches LotteryManager
-    private static final String FIELD_DECLINED = "declined";        // Fixed: matches LotteryManager
+    private static final String FIELD_WAITLIST = WaitlistStore.WAITLIST_COLLECTION; // one entry document per entrant
+    private static final String FIELD_ACCEPTED = SelectionStore.STATUS_ACCEPTED; // selections with this status
+    private static final String FIELD_DECLINED = SelectionStore.STATUS_DECLINED; // selections with this status
     private static final String FIELD_RETRY = "retryEntrants";
-    private static final String FIELD_SELECTED = "selected";        // Fixed: matches LotteryManager
     /**
      * Creates a new instance of EventManagementFragment with the specified event ID.
      *
@@ -173,6 +178,7 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
         btnDownloadDeclined = view.findViewById(R.id.btn_download_declined);
         btnViewRetry = view.findViewById(R.id.btn_view_retry);
         btnDownloadRetry = view.findViewById(R.id.btn_download_retry);
+        btnRefillCapacity = view.findViewById(R.id.btn_refill_capacity);
 
         progressBar = view.findViewById(R.id.progress_bar);
     }
@@ -222,13 +228,6 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
                     eventName = documentSnapshot.getString("eventName");
                     String poolSizeStr = documentSnapshot.getString("entrantMaxCapacity");
 
-                    List<String> waitlistUsers = (List<String>) documentSnapshot.get(FIELD_WAITLIST);
-                    int waitlistCount = waitlistUsers != null ? waitlistUsers.size() : 0;
-
-                    // Check if lottery has run by looking for the 'selected' map
-                    Map<String, Object> selected = (Map<String, Object>) documentSnapshot.get(FIELD_SELECTED);
-                    boolean isLotteryRun = selected != null && !selected.isEmpty();
-
                     if (poolSizeStr != null && !poolSizeStr.isEmpty()) {
                         try {
                             poolSize = Integer.parseInt(poolSizeStr);
@@ -238,10 +237,15 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
                     }
 
                     tvEventName.setText(eventName != null ? eventName : "Unknown Event");
-                    tvWaitlistCount.setText("Total Entrants: " + waitlistCount);
+                    tvWaitlistCount.setText("Total Entrants: " + WaitlistCounter.displayCount(documentSnapshot));
+                    // the rolled up count can be a little behind, replace it with the exact one
+                    WaitlistCounter.getInstance().getCount(eventId, count -> {
+                        if (getContext() == null) return;
+                        tvWaitlistCount.setText("Total Entrants: " + count);
+                    }, e -> Log.e(TAG, "Error loading waitlist count", e));
                     tvPoolSize.setText("Sample Size: " + poolSize);
 
-                    updateLotteryStatusUI(isLotteryRun);
+                    loadLotteryStatus();
                     loadWaitlistPreview();
                 })
                 .addOnFailureListener(e -> {
@@ -250,6 +254,25 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
                     Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
     }
+    /**
+     * Checks if the lottery has run by looking for its document in the 'lotteries' collection.
+     * A draw that failed part way doesn't count, the organizer can run it again. A lottery drawn
+     * before the 'lotteries' collection existed is moved there first.
+     */
+    private void loadLotteryStatus() {
+        lotteryManager.checkLotteryDrawn(eventId, new LotteryManager.DrawnCallback() {
+            @Override
+            public void onResult(boolean drawn) {
+                if (getContext() == null) return;
+                updateLotteryStatusUI(drawn);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error loading lottery status: " + error);
+            }
+        });
+    }
     /**
      * Updates the UI buttons and text based on whether the lottery has been completed.
      *
@@ -274,10 +297,13 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
      * Loads a preview list of the first few entrants on the waitlist.
      */
     private void loadWaitlistPreview() {
-        db.collection("events").document(eventId)
+        // only the first 10 in line are read, not the whole waitlist
+        WaitlistStore.entries(db, eventId)
+                .orderBy("joinedAt")
+                .limit(10)
                 .get()
-                .addOnSuccessListener(doc -> {
-                    List<String> waitlistUsers = (List<String>) doc.get(FIELD_WAITLIST);
+                .addOnSuccessListener(entries -> {
+                    List<String> waitlistUsers = WaitlistStore.userIds(entries);
 
                     if (waitlistUsers == null || waitlistUsers.isEmpty()) {
                         waitlistPreviewContainer.removeAllViews();
@@ -290,9 +316,8 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
                     }
 
                     waitlistPreviewContainer.removeAllViews();
-                    int limit = Math.min(10, waitlistUsers.size());
-                    for (int i = 0; i < limit; i++) {
-                        addEntrantPreviewItem(waitlistUsers.get(i));
+                    for (String userId : waitlistUsers) {
+                        addEntrantPreviewItem(userId);
                     }
                 });
     }
@@ -339,6 +364,8 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
 
         btnViewRetry.setOnClickListener(v -> viewEntrantList(FIELD_RETRY, "Retry Entrants"));
         btnDownloadRetry.setOnClickListener(v -> downloadEntrantList(FIELD_RETRY, "retry_entrants"));
+
+        btnRefillCapacity.setOnClickListener(v -> refillToCapacity());
     }
     /**
      * Fetches user IDs from a specific Firestore field and displays them in a dialog.
@@ -349,19 +376,17 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
     private void viewEntrantList(String fieldName, String title) {
         progressBar.setVisibility(View.VISIBLE);
 
-        db.collection("events").document(eventId)
-                .get()
-                .addOnSuccessListener(doc -> {
+        loadEntrantIds(fieldName,
+                userIds -> {
                     progressBar.setVisibility(View.GONE);
-                    List<String> userIds = (List<String>) doc.get(fieldName);
 
                     if (userIds == null || userIds.isEmpty()) {
                         Toast.makeText(getContext(), "No entrants in this category", Toast.LENGTH_SHORT).show();
                         return;
                     }
                     fetchUserNamesAndShowDialog(userIds, title, fieldName);
-                })
-                .addOnFailureListener(e -> {
+                },
+                e -> {
                     progressBar.setVisibility(View.GONE);
                     Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
@@ -374,30 +399,39 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
      * @param fieldName The original field name (used for CSV export context).
      */
     private void fetchUserNamesAndShowDialog(List<String> userIds, String title, String fieldName) {
-        List<String> userNames = new ArrayList<>();
+        // names go in the same order as the IDs, the waitlist comes in line order
+        String[] userNames = new String[userIds.size()];
         final int[] fetchCount = {0};
 
         if (userIds.isEmpty()) return;
 
-        for (String userId : userIds) {
-            db.collection("users").document(userId).get()
+        for (int i = 0; i < userIds.size(); i++) {
+            int position = i;
+            db.collection("users").document(userIds.get(i)).get()
                     .addOnSuccessListener(userDoc -> {
                         String name = userDoc.exists() ? userDoc.getString("name") : "Unknown";
-                        userNames.add(name);
+                        userNames[position] = name;
                         fetchCount[0]++;
                         if (fetchCount[0] == userIds.size()) {
-                            showEntrantListDialog(userNames, title, fieldName);
+                            showEntrantListDialog(Arrays.asList(userNames), title, fieldName);
                         }
                     })
                     .addOnFailureListener(e -> {
-                        userNames.add("Unknown");
+                        userNames[position] = "Unknown";
                         fetchCount[0]++;
                         if (fetchCount[0] == userIds.size()) {
-                            showEntrantListDialog(userNames, title, fieldName);
+                            showEntrantListDialog(Arrays.asList(userNames), title, fieldName);
                         }
                     });
         }
     }
+
+    /**
+     * The waitlist is shown and exported with each entrant's place in line, other lists aren't
+     */
+    private boolean hasPositions(String fieldName) {
+        return FIELD_WAITLIST.equals(fieldName);
+    }
     /**
      * Displays a dialog containing the list of user names and an option to download as CSV.
      *
@@ -417,7 +451,8 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
         LinearLayout listContainer = new LinearLayout(getContext());
         listContainer.setOrientation(LinearLayout.VERTICAL);
 
-        for (String name : userNames) {
+        for (int i = 0; i < userNames.size(); i++) {
+            String name = hasPositions(fieldName) ? (i + 1) + ". " + userNames.get(i) : userNames.get(i);
             TextView nameView = new TextView(getContext());
             nameView.setText("• " + name);
             nameView.setTextSize(16);
@@ -431,7 +466,7 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
 
         builder.setPositiveButton("Download CSV", (dialog, which) -> {
             String fileName = fieldName.toLowerCase();
-            CSVDownloadManager.exportToCSV(getContext(), fileName, userNames);
+            CSVDownloadManager.exportToCSV(getContext(), fileName, userNames, hasPositions(fieldName));
         });
 
         builder.setNegativeButton("Close", null);
@@ -445,36 +480,70 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
      */
     private void downloadEntrantList(String fieldName, String fileName) {
         progressBar.setVisibility(View.VISIBLE);
-        db.collection("events").document(eventId).get()
-                .addOnSuccessListener(doc -> {
-                    List<String> userIds = (List<String>) doc.get(fieldName);
+        loadEntrantIds(fieldName,
+                userIds -> {
                     if (userIds == null || userIds.isEmpty()) {
                         progressBar.setVisibility(View.GONE);
                         Toast.makeText(getContext(), "No entrants to download", Toast.LENGTH_SHORT).show();
                         return;
                     }
-                    fetchUserNamesAndDownload(userIds, fileName);
+                    fetchUserNamesAndDownload(userIds, fieldName, fileName);
+                },
+                e -> {
+                    progressBar.setVisibility(View.GONE);
+                    Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
     }
+    /**
+     * Loads the user IDs for one of the entrant lists. Accepted and declined entrants come from
+     * the lottery's selection documents, the waitlist from its entry documents, the other lists
+     * are fields on the event.
+     *
+     * @param fieldName The list to load (a field name or a selection status).
+     * @param onLoaded  Gets the user IDs, null if the field isn't set.
+     * @param onError   Called if the read fails.
+     */
+    private void loadEntrantIds(String fieldName, OnSuccessListener<List<String>> onLoaded, OnFailureListener onError) {
+        if (FIELD_ACCEPTED.equals(fieldName) || FIELD_DECLINED.equals(fieldName)) {
+            SelectionStore.byStatus(db, eventId, fieldName)
+                    .get()
+                    .addOnSuccessListener(selections -> onLoaded.onSuccess(SelectionStore.userIds(selections)))
+                    .addOnFailureListener(onError);
+            return;
+        }
+        if (FIELD_WAITLIST.equals(fieldName)) {
+            // in line order, by when they joined
+            WaitlistRankService.getInstance().getOrderedUserIds(eventId, onLoaded, onError);
+            return;
+        }
+
+        db.collection("events").document(eventId)
+                .get()
+                .addOnSuccessListener(doc -> onLoaded.onSuccess((List<String>) doc.get(fieldName)))
+                .addOnFailureListener(onError);
+    }
     /**
      * Resolves user IDs to names and triggers the CSV download.
      *
-     * @param userIds  The list of user IDs to export.
-     * @param fileName The filename for the export.
+     * @param userIds   The list of user IDs to export.
+     * @param fieldName The list being exported, the waitlist gets a position column.
+     * @param fileName  The filename for the export.
      */
-    private void fetchUserNamesAndDownload(List<String> userIds, String fileName) {
-        List<String> userNames = new ArrayList<>();
+    private void fetchUserNamesAndDownload(List<String> userIds, String fieldName, String fileName) {
+        String[] userNames = new String[userIds.size()];
         final int[] fetchCount = {0};
 
-        for (String userId : userIds) {
-            db.collection("users").document(userId).get()
+        for (int i = 0; i < userIds.size(); i++) {
+            int position = i;
+            db.collection("users").document(userIds.get(i)).get()
                     .addOnSuccessListener(userDoc -> {
                         String name = userDoc.exists() ? userDoc.getString("name") : "Unknown";
-                        userNames.add(name);
+                        userNames[position] = name;
                         fetchCount[0]++;
                         if (fetchCount[0] == userIds.size()) {
                             progressBar.setVisibility(View.GONE);
-                            CSVDownloadManager.exportToCSV(getContext(), fileName, userNames);
+                            CSVDownloadManager.exportToCSV(getContext(), fileName,
+                                    Arrays.asList(userNames), hasPositions(fieldName));
                         }
                     });
         }
@@ -537,6 +606,37 @@ public class EventManagementFragment extends Fragment implements OnMapReadyCallb
             }
         });
     }
+    /**
+     * Draws replacements from the retry pool for every open spot in one go.
+     */
+    private void refillToCapacity() {
+        progressBar.setVisibility(View.VISIBLE);
+        btnRefillCapacity.setEnabled(false);
+
+        lotteryManager.refillToCapacity(eventId, new LotteryManager.BulkReplacementCallback() {
+            @Override
+            public void onSuccess(List<String> replacementUserIds) {
+                progressBar.setVisibility(View.GONE);
+                btnRefillCapacity.setEnabled(true);
+                Toast.makeText(getContext(), replacementUserIds.size() + " replacement(s) invited",
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onNoMoreEntrants(String message) {
+                progressBar.setVisibility(View.GONE);
+                btnRefillCapacity.setEnabled(true);
+                Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(String error) {
+                progressBar.setVisibility(View.GONE);
+                btnRefillCapacity.setEnabled(true);
+                Toast.makeText(getContext(), "Error: " + error, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
     /**
      * Fetches entrant locations from Firestore and plots markers on the Google Map.
      */
@@ -17,6 +17,8 @@ import androidx.fragment.app.Fragment;
 
 import com.example.eventlottery.R;
 import com.example.eventlottery.QrGenerator;
+import com.example.eventlottery.managers.SelectionStore;
+import com.example.eventlottery.managers.MembershipCache;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
@@ -24,10 +26,10 @@ import com.google.firebase.firestore.QueryDocumentSnapshot;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -313,7 +315,7 @@ public class OrganizerDashboardFragment extends Fragment {
 
     /**
      * loads event history based on selected tab
-     * Queries all events and checks if user is in waitlistUsers or selected
+     * Queries all events and checks if user has a waitlist entry or a selection
      */
     private void loadEventHistory(String category) {
         eventHistoryContainer.removeAllViews();
@@ -324,7 +326,23 @@ public class OrganizerDashboardFragment extends Fragment {
             return;
         }
 
-        // Query ALL events and filter by user participation
+        // The user's selections come from one query and their waitlists from the membership
+        // cache, then ALL events are filtered by participation
+        MembershipCache cache = MembershipCache.getInstance();
+        SelectionStore.forUser(db, currentUserId)
+                .get()
+                .addOnSuccessListener(selections -> cache.whenLoaded(() -> showEventHistory(category,
+                        SelectionStore.statusByEvent(selections), cache.getEventIds())))
+                .addOnFailureListener(this::showEventHistoryError);
+    }
+
+    /**
+     * Loads all events and shows the ones matching the tab
+     *
+     * @param statuses event ID to the user's selection status
+     * @param waitlisted IDs of the events the user is waitlisted for
+     */
+    private void showEventHistory(String category, Map<String, String> statuses, Set<String> waitlisted) {
         db.collection("events")
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
@@ -334,44 +352,28 @@ public class OrganizerDashboardFragment extends Fragment {
                         String eventId = eventDoc.getId();
                         String eventName = eventDoc.getString("eventName");
 
-                        @SuppressWarnings("unchecked")
-                        List<String> waitlistUsers = (List<String>) eventDoc.get("waitlistUsers");
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> selected = (Map<String, Object>) eventDoc.get("selected");
+                        String status = SelectionStore.statusFor(statuses, eventDoc, currentUserId);
 
                         boolean shouldShow = false;
 
                         switch (category) {
                             case "pending":
                                 // User on waitlist OR has pending selection
-                                if (waitlistUsers != null && waitlistUsers.contains(currentUserId)) {
+                                if (waitlisted.contains(eventId)) {
+                                    shouldShow = true;
+                                } else if (SelectionStore.STATUS_PENDING.equals(status)) {
                                     shouldShow = true;
-                                } else if (selected != null && selected.containsKey(currentUserId)) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> userSelection = (Map<String, Object>) selected.get(currentUserId);
-                                    String status = userSelection != null ? (String) userSelection.get("status") : null;
-                                    if ("pending".equals(status)) shouldShow = true;
                                 }
                                 break;
 
                             case "won":
                                 // User accepted invitation
-                                if (selected != null && selected.containsKey(currentUserId)) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> userSelection = (Map<String, Object>) selected.get(currentUserId);
-                                    String status = userSelection != null ? (String) userSelection.get("status") : null;
-                                    if ("accepted".equals(status)) shouldShow = true;
-                                }
+                                if (SelectionStore.STATUS_ACCEPTED.equals(status)) shouldShow = true;
                                 break;
 
                             case "lost":
                                 // User declined
-                                if (selected != null && selected.containsKey(currentUserId)) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> userSelection = (Map<String, Object>) selected.get(currentUserId);
-                                    String status = userSelection != null ? (String) userSelection.get("status") : null;
-                                    if ("declined".equals(status)) shouldShow = true;
-                                }
+                                if (SelectionStore.STATUS_DECLINED.equals(status)) shouldShow = true;
                                 break;
                         }
 
@@ -390,15 +392,20 @@ public class OrganizerDashboardFragment extends Fragment {
                     // Restore scroll position after loading
                     restoreScrollPosition();
                 })
-                .addOnFailureListener(e -> {
-                    eventHistoryContainer.removeAllViews();
-                    emptyEventHistoryText.setText("Failed to load events");
-                    eventHistoryContainer.addView(emptyEventHistoryText);
-                    Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                .addOnFailureListener(this::showEventHistoryError);
+    }
 
-                    // Restore scroll position even on error
-                    restoreScrollPosition();
-                });
+    /**
+     * Shows the load error in place of the event history
+     */
+    private void showEventHistoryError(Exception e) {
+        eventHistoryContainer.removeAllViews();
+        emptyEventHistoryText.setText("Failed to load events");
+        eventHistoryContainer.addView(emptyEventHistoryText);
+        Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+
+        // Restore scroll position even on error
+        restoreScrollPosition();
     }
 
     /**
@@ -32,25 +32,58 @@ public class CSVDownloadManager {
      * @param userNames The list of strings to write into the CSV.
      */
     public static void exportToCSV(Context context, String fileName, List<String> userNames) {
-        String finalFileName = fileName + "_" + getTimestamp() + ".csv";
+        exportToCSV(context, fileName, userNames, false);
+    }
 
+    /**
+     * Exports a list of user names, optionally with a Position column numbering them from 1
+     * in list order (e.g. a waitlist's place in line).
+     *
+     * @param context       The application context.
+     * @param fileName      The base name for the file (timestamp will be appended).
+     * @param userNames     The list of names to write into the CSV.
+     * @param withPositions Whether to add the Position column.
+     */
+    public static void exportToCSV(Context context, String fileName, List<String> userNames, boolean withPositions) {
+        String finalFileName = fileName + "_" + getTimestamp() + ".csv";
+        String csv = buildCSV(userNames, withPositions);
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            saveToDownloadsMediaStore(context, finalFileName, userNames);
+            saveToDownloadsMediaStore(context, finalFileName, csv);
         } else {
 
-            saveToDownloadsLegacy(context, finalFileName, userNames);
+            saveToDownloadsLegacy(context, finalFileName, csv);
         }
     }
+
+    /**
+     * Builds the CSV contents, header included.
+     *
+     * @param userNames     The names, one per row.
+     * @param withPositions Whether to add the Position column.
+     * @return The CSV text.
+     */
+    public static String buildCSV(List<String> userNames, boolean withPositions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(withPositions ? "Position,Name\n" : "Name\n"); // Header
+        for (int i = 0; i < userNames.size(); i++) {
+            if (withPositions) {
+                sb.append(i + 1).append(",");
+            }
+            String name = userNames.get(i) != null ? userNames.get(i) : "Unknown";
+            sb.append(name.replace(",", " ")).append("\n");
+        }
+        return sb.toString();
+    }
     /**
      * Saves the CSV file using the MediaStore API, required for Android Q (API 29) and above.
      *
      * @param context   The application context.
      * @param fileName  The full file name including extension.
-     * @param userNames The list of data to write.
+     * @param csv       The CSV contents to write.
      */
     @RequiresApi(api = Build.VERSION_CODES.Q)
-    private static void saveToDownloadsMediaStore(Context context, String fileName, List<String> userNames) {
+    private static void saveToDownloadsMediaStore(Context context, String fileName, String csv) {
         try {
             ContentValues values = new ContentValues();
             values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
@@ -62,13 +95,7 @@ public class CSVDownloadManager {
             if (uri != null) {
                 OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
                 if (outputStream != null) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("Name\n"); // Header
-                    for (String name : userNames) {
-                        sb.append(name.replace(",", " ")).append("\n");
-                    }
-
-                    outputStream.write(sb.toString().getBytes());
+                    outputStream.write(csv.getBytes());
                     outputStream.close();
 
                     Toast.makeText(context, "Saved to Downloads: " + fileName, Toast.LENGTH_LONG).show();
@@ -85,9 +112,9 @@ public class CSVDownloadManager {
      *
      * @param context   The application context.
      * @param fileName  The full file name including extension.
-     * @param userNames The list of data to write.
+     * @param csv       The CSV contents to write.
      */
-    private static void saveToDownloadsLegacy(Context context, String fileName, List<String> userNames) {
+    private static void saveToDownloadsLegacy(Context context, String fileName, String csv) {
         try {
             File downloadsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
             if (!downloadsDir.exists()) downloadsDir.mkdirs();
@@ -95,10 +122,7 @@ public class CSVDownloadManager {
             File file = new File(downloadsDir, fileName);
 
             FileWriter writer = new FileWriter(file);
-            writer.append("Name\n");
-            for (String name : userNames) {
-                writer.append(name.replace(",", " ")).append("\n");
-            }
+            writer.append(csv);
             writer.flush();
             writer.close();
 
@@ -0,0 +1,347 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.example.eventlottery.event_classes.Event;
+import com.example.eventlottery.event_classes.EventDates;
+import com.example.eventlottery.event_classes.EventStatus;
+import com.example.eventlottery.event_classes.Location;
+import com.example.eventlottery.event_classes.Money;
+import com.example.eventlottery.event_classes.Waitlist;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Events for the browse screen, loaded a page at a time and kept in memory by snapshot
+ * listeners. Each page's first snapshot loads it, after that only documents that were added,
+ * changed or removed come in and only those are parsed again.
+ * Pages are in document ID order, the same order a plain read of the collection gives. A page's
+ * range is pinned when the next one is asked for, so events created later show up in whichever
+ * page they fall in.
+ * The listeners stay up while the app is running, so coming back to browse is served from
+ * memory without reading anything.
+ */
+public class EventFeed {
+    private static final String TAG = "EventFeed";
+    private static EventFeed instance;
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Told when events change
+     */
+    public interface Listener {
+        /**
+         * @param changedIds events that were added, changed or removed since the last call,
+         * look them up with {@link #get}, removed ones are null
+         */
+        void onEventsChanged(Set<String> changedIds);
+
+        default void onFeedError(Exception e) {}
+    }
+
+    /** One page of events and the listener keeping it current */
+    private static class Page {
+        // exclusive lower bound, null for the first page
+        final DocumentSnapshot start;
+        // inclusive upper bound once pinned, until then the page is the next pageSize events
+        DocumentSnapshot end;
+        ListenerRegistration registration;
+        // which of its listeners is current, snapshots from one it replaced are ignored
+        Object listenToken;
+        // events this page's listener has reported
+        final Set<String> ids = new HashSet<>();
+        DocumentSnapshot last;
+        int size;
+        boolean loaded;
+
+        Page(DocumentSnapshot start) {
+            this.start = start;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private final List<Page> pages = new ArrayList<>();
+    private boolean loaded;
+    // eventId -> parsed event, in document ID order like the pages
+    private final Map<String, Event> events = new TreeMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public static synchronized EventFeed getInstance() {
+        if (instance == null) {
+            instance = new EventFeed(FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a feed
+     * @param db firestore instance
+     */
+    public EventFeed(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Sets how many events each page loads, for pages not loaded yet
+     * @param pageSize events per page
+     */
+    public synchronized void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Loads the first page if nothing is loaded yet, and tells the listener about every change
+     * from now on
+     */
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        if (pages.isEmpty()) {
+            loadMore();
+        }
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts loading the next page
+     * @return false if a page is still loading or every event is already loaded
+     */
+    public synchronized boolean loadMore() {
+        if (pages.isEmpty()) {
+            Page first = new Page(null);
+            pages.add(first);
+            listen(first);
+            return true;
+        }
+        Page last = pages.get(pages.size() - 1);
+        if (!last.loaded || last.size < pageSize || last.last == null) {
+            return false;
+        }
+
+        // pin the current last page to what it has now, the new page starts after it. Its
+        // listener was "the next pageSize events", which would drop events off the end as new
+        // ones are created in its range
+        last.end = last.last;
+        listen(last);
+
+        Page next = new Page(last.end);
+        pages.add(next);
+        listen(next);
+        return true;
+    }
+
+    /** @return true if there may be events past the loaded pages */
+    public synchronized boolean hasMore() {
+        if (pages.isEmpty()) return true;
+        Page last = pages.get(pages.size() - 1);
+        return !last.loaded || last.size >= pageSize;
+    }
+
+    /**
+     * Stops listening and forgets every event
+     */
+    public synchronized void stop() {
+        for (Page page : pages) {
+            if (page.registration != null) {
+                page.registration.remove();
+            }
+        }
+        pages.clear();
+        loaded = false;
+        events.clear();
+    }
+
+    /** @return true once the first page is in */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param eventId the event
+     * @return the event, null if there's no such event or it hasn't loaded
+     */
+    public synchronized Event get(String eventId) {
+        return events.get(eventId);
+    }
+
+    /** @return copy of every loaded event, in document ID order */
+    public synchronized List<Event> getEvents() {
+        return new ArrayList<>(events.values());
+    }
+
+    /**
+     * (Re)attaches a page's listener to its range
+     */
+    private void listen(Page page) {
+        if (page.registration != null) {
+            page.registration.remove();
+        }
+        Query query = db.collection("events").orderBy(FieldPath.documentId());
+        if (page.start != null) {
+            query = query.startAfter(page.start);
+        }
+        query = page.end != null ? query.endAt(page.end) : query.limit(pageSize);
+
+        Object token = new Object();
+        page.listenToken = token;
+        boolean[] first = {true};
+        page.registration = query.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                onError(page, token, error);
+                return;
+            }
+            if (snapshot != null) {
+                onSnapshot(page, token, snapshot, first[0]);
+                first[0] = false;
+            }
+        });
+    }
+
+    private void onSnapshot(Page page, Object token, QuerySnapshot snapshot, boolean first) {
+        Set<String> changedIds = new LinkedHashSet<>();
+        List<Listener> toNotify;
+        synchronized (this) {
+            if (!pages.contains(page) || page.listenToken != token) {
+                return; // stopped or replaced while this was on its way
+            }
+            if (first) {
+                // a re-attached listener only reports what's there now, anything missing from
+                // it was deleted in between
+                Set<String> present = new HashSet<>();
+                for (DocumentSnapshot document : snapshot.getDocuments()) {
+                    present.add(document.getId());
+                }
+                for (String id : new ArrayList<>(page.ids)) {
+                    if (!present.contains(id)) {
+                        page.ids.remove(id);
+                        events.remove(id);
+                        changedIds.add(id);
+                    }
+                }
+            }
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                DocumentSnapshot document = change.getDocument();
+                String id = document.getId();
+                changedIds.add(id);
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    // deleted, or pushed off the end of the last page (it comes back with
+                    // the next one)
+                    page.ids.remove(id);
+                    events.remove(id);
+                    continue;
+                }
+                try {
+                    events.put(id, fromDocument(document));
+                    page.ids.add(id);
+                } catch (Exception e) {
+                    // leave it out rather than show something broken
+                    Log.e(TAG, "Error processing event document " + id, e);
+                    page.ids.remove(id);
+                    events.remove(id);
+                }
+            }
+            List<DocumentSnapshot> documents = snapshot.getDocuments();
+            page.size = documents.size();
+            page.last = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+            page.loaded = true;
+            loaded = true;
+            toNotify = new ArrayList<>(listeners);
+        }
+        for (Listener listener : toNotify) {
+            listener.onEventsChanged(changedIds);
+        }
+    }
+
+    private void onError(Page page, Object token, FirebaseFirestoreException error) {
+        Log.e(TAG, "Error listening to events", error);
+        List<Listener> toNotify;
+        synchronized (this) {
+            if (page.listenToken != token) {
+                return;
+            }
+            // the listener is dead after an error, drop this page and everything after it so
+            // the next loadMore asks again
+            int index = pages.indexOf(page);
+            if (index < 0) {
+                return;
+            }
+            while (pages.size() > index) {
+                Page dropped = pages.remove(pages.size() - 1);
+                if (dropped.registration != null) {
+                    dropped.registration.remove();
+                }
+            }
+            if (pages.isEmpty()) {
+                loaded = false;
+            }
+            toNotify = new ArrayList<>(listeners);
+        }
+        for (Listener listener : toNotify) {
+            listener.onFeedError(error);
+        }
+    }
+
+    /**
+     * Builds the browse card's event from an event document
+     * @param document the event document
+     * @return the event, with defaults for anything missing
+     */
+    public static Event fromDocument(DocumentSnapshot document) {
+        String id = document.getId();
+        String eventName = document.getString("eventName");
+        String organizationName = document.getString("organizerName");
+        String description = document.getString("description");
+        String eligibility = document.getString("eligibility");
+        String locationStr = document.getString("location");
+        String startDate = document.getString("startDate");
+        String endDate = document.getString("endDate");
+        String priceStr = document.getString("price");
+        String waitlistLimitStr = document.getString("waitlistLimit");
+        String entrantMaxStr = document.getString("entrantMaxCapacity");
+        Boolean geolocationRequired = document.getBoolean("geolocationRequired");
+        String category = document.getString("category");
+
+        double price = (priceStr != null && !priceStr.isEmpty()) ? Double.parseDouble(priceStr) : 0.0;
+        int waitlistLimit = (waitlistLimitStr != null && !waitlistLimitStr.isEmpty()) ? Integer.parseInt(waitlistLimitStr) : 0;
+        int entrantMax = (entrantMaxStr != null && !entrantMaxStr.isEmpty()) ? Integer.parseInt(entrantMaxStr) : 0;
+        // rolled up from the counter shards, no extra reads per event
+        int waitlistCount = WaitlistCounter.displayCount(document);
+
+        return new Event(
+                id,
+                eventName != null ? eventName : "Untitled Event",
+                organizationName != null ? organizationName : "Unknown Organizer",
+                description != null ? description : "",
+                eligibility != null ? eligibility : "",
+                new Location(locationStr != null ? locationStr : "TBD"),
+                new EventDates(startDate != null ? startDate : "", endDate != null ? endDate : ""),
+                "", // Image URL is empty/unused here
+                new Waitlist(waitlistCount, waitlistLimit, entrantMax),
+                new Money(price),
+                EventStatus.OPEN,
+                geolocationRequired != null ? geolocationRequired : false,
+                category != null ? category : "Other"
+        );
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expires invitations nobody answered in time and draws replacements for them.
+ * Pending invites due within the next LOOKAHEAD_MS are loaded with one query into a priority
+ * queue ordered by deadline, so a pass only looks at the head of the queue instead of every
+ * event. Between passes the sweeper sleeps until the next deadline or until it needs to load more.
+ */
+public class InvitationSweeper {
+    private static final String TAG = "InvitationSweeper";
+    private static InvitationSweeper instance;
+
+    /** Invites due within this long are kept in the queue */
+    public static final long LOOKAHEAD_MS = TimeUnit.MINUTES.toMillis(30);
+    /** Most invites loaded by one query */
+    public static final int LOAD_LIMIT = 2000;
+    /** Most invites expired in one transaction, each one can also need a replacement written */
+    public static final int MAX_EXPIRE_PER_TRANSACTION = 200;
+    // don't wake up more often than this, even if deadlines are close together
+    private static final long MIN_DELAY_MS = 1000;
+
+    /**
+     * Source of the current time, swapped for a fake one in tests
+     */
+    public interface Clock {
+        long now();
+    }
+
+    private final FirebaseFirestore db;
+    private final LotteryManager lotteryManager;
+    private final Clock clock;
+
+    private final PriorityQueue<DueInvite> queue = new PriorityQueue<>();
+    private final Set<String> queuedKeys = new HashSet<>();
+    // every pending invite due before this time has been loaded into the queue
+    private long loadedUntil = Long.MIN_VALUE;
+    // last invite of the previous full page, the next load carries on after it. Invites the
+    // lottery skips stay pending, so starting over would read the same page again
+    private DocumentSnapshot loadCursor;
+
+    private ScheduledExecutorService scheduler;
+
+    public static synchronized InvitationSweeper getInstance() {
+        if (instance == null) {
+            instance = new InvitationSweeper(FirebaseFirestore.getInstance(), new LotteryManager(),
+                    System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a sweeper
+     * @param db firestore instance
+     * @param lotteryManager does the expiring and replacement draws
+     * @param clock where the current time comes from
+     */
+    public InvitationSweeper(FirebaseFirestore db, LotteryManager lotteryManager, Clock clock) {
+        this.db = db;
+        this.lotteryManager = lotteryManager;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts sweeping in the background, does nothing if it's already running
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.execute(this::runPass);
+    }
+
+    /**
+     * Stops the background sweeping
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Adds an invite to the queue
+     * @param eventId event the invite is for
+     * @param userId invited user
+     * @param deadline when the invite expires, in millis
+     * @return false if the invite was already queued
+     */
+    public synchronized boolean schedule(String eventId, String userId, long deadline) {
+        if (!queuedKeys.add(eventId + "/" + userId)) {
+            return false;
+        }
+        queue.add(new DueInvite(eventId, userId, deadline));
+        return true;
+    }
+
+    /** @return number of invites waiting in the queue */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /** @return the earliest deadline in the queue, or -1 if it's empty */
+    public synchronized long nextDeadline() {
+        DueInvite head = queue.peek();
+        return head != null ? head.deadline : -1;
+    }
+
+    /**
+     * Removes every invite whose deadline has passed from the queue
+     * @param now current time
+     * @return overdue user IDs grouped by event
+     */
+    public synchronized Map<String, List<String>> takeOverdue(long now) {
+        Map<String, List<String>> overdue = new LinkedHashMap<>();
+        while (!queue.isEmpty() && queue.peek().deadline <= now) {
+            DueInvite invite = queue.poll();
+            queuedKeys.remove(invite.eventId + "/" + invite.userId);
+
+            List<String> users = overdue.get(invite.eventId);
+            if (users == null) {
+                users = new ArrayList<>();
+                overdue.put(invite.eventId, users);
+            }
+            users.add(invite.userId);
+        }
+        return overdue;
+    }
+
+    /**
+     * Expires every overdue invite in the queue, a transaction per event (split into chunks of
+     * MAX_EXPIRE_PER_TRANSACTION), each drawing its own replacements
+     * @param callback told when every transaction has finished, may be null
+     */
+    public void sweep(SweepCallback callback) {
+        long now = clock.now();
+        Map<String, List<String>> overdue = takeOverdue(now);
+
+        List<String> chunkEvents = new ArrayList<>();
+        List<List<String>> chunks = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : overdue.entrySet()) {
+            List<String> users = entry.getValue();
+            for (int start = 0; start < users.size(); start += MAX_EXPIRE_PER_TRANSACTION) {
+                chunkEvents.add(entry.getKey());
+                chunks.add(users.subList(start, Math.min(start + MAX_EXPIRE_PER_TRANSACTION, users.size())));
+            }
+        }
+
+        if (chunks.isEmpty()) {
+            if (callback != null) callback.onComplete(0, 0);
+            return;
+        }
+
+        Log.d(TAG, "Expiring invites for " + overdue.size() + " events in " + chunks.size() + " transactions");
+
+        AtomicInteger remaining = new AtomicInteger(chunks.size());
+        AtomicInteger checked = new AtomicInteger(0);
+        AtomicInteger replaced = new AtomicInteger(0);
+        for (int i = 0; i < chunks.size(); i++) {
+            String eventId = chunkEvents.get(i);
+            List<String> chunk = chunks.get(i);
+            lotteryManager.expireInvitations(eventId, chunk, now, new LotteryManager.BulkReplacementCallback() {
+                @Override
+                public void onSuccess(List<String> replacementIds) {
+                    replaced.addAndGet(replacementIds.size());
+                    done();
+                }
+
+                @Override
+                public void onNoMoreEntrants(String message) {
+                    done();
+                }
+
+                @Override
+                public void onError(String error) {
+                    Log.e(TAG, "Failed to expire invites for event " + eventId + ": " + error);
+                    // they are still pending in firestore, reload so the next pass retries them
+                    synchronized (InvitationSweeper.this) {
+                        loadedUntil = Long.MIN_VALUE;
+                        loadCursor = null;
+                    }
+                    done();
+                }
+
+                private void done() {
+                    checked.addAndGet(chunk.size());
+                    if (remaining.decrementAndGet() == 0 && callback != null) {
+                        callback.onComplete(checked.get(), replaced.get());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the pending invites that are due within LOOKAHEAD_MS into the queue, a page of
+     * LOAD_LIMIT at a time. After a full page the next load starts after its last invite, and
+     * once a page comes back short the next one starts from the top again
+     * @param onLoaded run once the load finished, even if it failed
+     */
+    public void load(Runnable onLoaded) {
+        long until = clock.now() + LOOKAHEAD_MS;
+
+        Query query = SelectionStore.pendingDueBefore(db, until);
+        synchronized (this) {
+            if (loadCursor != null) {
+                query = query.startAfter(loadCursor);
+            }
+        }
+        query.limit(LOAD_LIMIT)
+                .get()
+                .addOnSuccessListener(selections -> {
+                    List<DocumentSnapshot> docs = selections.getDocuments();
+                    long lastDeadline = until;
+                    for (DocumentSnapshot doc : docs) {
+                        String eventId = doc.getString("eventId");
+                        Long deadline = doc.getLong("deadline");
+                        if (eventId == null || deadline == null) continue;
+                        schedule(eventId, doc.getId(), deadline);
+                        lastDeadline = deadline;
+                    }
+                    synchronized (this) {
+                        // a full page means there may be more due before 'until'
+                        boolean full = docs.size() >= LOAD_LIMIT;
+                        loadedUntil = full ? lastDeadline : until;
+                        loadCursor = full ? docs.get(docs.size() - 1) : null;
+                    }
+                    Log.d(TAG, "Loaded " + docs.size() + " pending invites");
+                    onLoaded.run();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading pending invites", e);
+                    onLoaded.run();
+                });
+    }
+
+    /**
+     * One background pass: load more invites if needed, sweep, then sleep until the next deadline
+     */
+    private void runPass() {
+        boolean needsLoad;
+        synchronized (this) {
+            needsLoad = clock.now() >= loadedUntil;
+        }
+        if (needsLoad) {
+            load(() -> sweep((checked, replaced) -> scheduleNextPass()));
+        } else {
+            sweep((checked, replaced) -> scheduleNextPass());
+        }
+    }
+
+    private synchronized void scheduleNextPass() {
+        if (scheduler == null) {
+            return;
+        }
+        long wakeAt = loadedUntil;
+        long next = nextDeadline();
+        if (next >= 0 && next < wakeAt) {
+            wakeAt = next;
+        }
+        long delay = Math.max(MIN_DELAY_MS, wakeAt - clock.now());
+        scheduler.schedule(this::runPass, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A pending invite waiting in the queue, ordered by deadline
+     */
+    private static class DueInvite implements Comparable<DueInvite> {
+        final String eventId;
+        final String userId;
+        final long deadline;
+
+        DueInvite(String eventId, String userId, long deadline) {
+            this.eventId = eventId;
+            this.userId = userId;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(DueInvite other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+
+    /**
+     * Result of a sweep
+     */
+    public interface SweepCallback {
+        /**
+         * @param checked overdue invites that were sent to be expired
+         * @param replaced replacements drawn for them
+         */
+        void onComplete(int checked, int replaced);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.eventlottery.managers;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lotteries drawn before the lottery moved to lotteries/{eventId} keep everything on the event
+ * document: the shuffled lotteryOrder, currentDrawIndex, and a selected map of
+ * userId -> {status, timestamp}.
+ * The first thing that needs such a lottery moves it over with {@link #migrate}, in one
+ * transaction, and drops the old fields from the event. Screens that only show a user's status
+ * read the selected map directly with {@link #status} instead.
+ */
+public class LegacyLottery {
+
+    /** Event fields the old schema kept the lottery in */
+    public static final String ORDER_FIELD = "lotteryOrder";
+    public static final String SELECTED_FIELD = "selected";
+    public static final String DRAW_INDEX_FIELD = "currentDrawIndex";
+
+    private LegacyLottery() { }
+
+    /**
+     * @param event the event document
+     * @return true if the event still has a lottery drawn under the old schema
+     */
+    public static boolean isLegacy(DocumentSnapshot event) {
+        return event.exists() && event.get(ORDER_FIELD) instanceof List;
+    }
+
+    /**
+     * @param event the event document
+     * @param userId the user
+     * @return the user's status in the event's old selected map, null if they aren't in it
+     */
+    public static String status(DocumentSnapshot event, String userId) {
+        Map<String, Object> entry = selection(event, userId);
+        Object status = entry != null ? entry.get("status") : null;
+        return status instanceof String ? (String) status : null;
+    }
+
+    private static Map<String, Object> selection(DocumentSnapshot event, String userId) {
+        Object selected = event.get(SELECTED_FIELD);
+        if (!(selected instanceof Map)) {
+            return null;
+        }
+        Object entry = ((Map<?, ?>) selected).get(userId);
+        return entry instanceof Map ? (Map<String, Object>) entry : null;
+    }
+
+    /**
+     * Moves an old lottery into the lottery document, order pages, selection documents and
+     * counters, then removes the old fields from the event. Only writes, so do the reads first
+     * @param event the event document, read in the same transaction
+     * @param lottery the lotteries/{eventId} document, read in the same transaction. If it's
+     *                already drawn the old fields are stale and are only removed
+     */
+    public static void migrate(Transaction transaction, FirebaseFirestore db, String eventId,
+                               DocumentSnapshot event, DocumentSnapshot lottery) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        if (!LotteryManager.isDrawn(lottery)) {
+            writeLottery(transaction, db, eventId, event);
+        }
+        transaction.update(eventRef, ORDER_FIELD, FieldValue.delete(),
+                SELECTED_FIELD, FieldValue.delete(),
+                DRAW_INDEX_FIELD, FieldValue.delete());
+    }
+
+    private static void writeLottery(Transaction transaction, FirebaseFirestore db, String eventId,
+                                     DocumentSnapshot event) {
+        List<String> order = (List<String>) event.get(ORDER_FIELD);
+        DocumentReference lotteryRef = db.collection(LotteryManager.LOTTERIES_COLLECTION).document(eventId);
+        int pageSize = LotteryOrderReader.PAGE_SIZE;
+        int pageCount = LotteryOrderReader.pageCount(order.size(), pageSize);
+        for (int page = 0; page < pageCount; page++) {
+            transaction.set(LotteryOrderReader.pageRef(lotteryRef, page),
+                    LotteryOrderReader.pageData(order, page, pageSize));
+        }
+
+        Object selected = event.get(SELECTED_FIELD);
+        Map<String, Integer> counts = new HashMap<>();
+        int selectedCount = 0;
+        long now = System.currentTimeMillis();
+        if (selected instanceof Map) {
+            for (Object key : ((Map<?, ?>) selected).keySet()) {
+                String userId = String.valueOf(key);
+                String status = status(event, userId);
+                if (status == null) continue;
+                String timestamp = String.valueOf(selection(event, userId).get("timestamp"));
+
+                Map<String, Object> data;
+                if (SelectionStore.STATUS_PENDING.equals(status)) {
+                    // the response window starts from when they were drawn
+                    data = SelectionStore.pendingSelectionData(eventId, userId, parseTime(timestamp, now));
+                } else {
+                    data = SelectionStore.selectionData(eventId, userId, status, timestamp);
+                }
+                transaction.set(SelectionStore.selectionRef(db, eventId, userId), data);
+                Integer count = counts.get(status);
+                counts.put(status, count != null ? count + 1 : 1);
+                selectedCount++;
+            }
+        }
+
+        Map<String, Object> counters = new HashMap<>();
+        for (String status : new String[]{SelectionStore.STATUS_PENDING, SelectionStore.STATUS_ACCEPTED,
+                SelectionStore.STATUS_DECLINED, SelectionStore.STATUS_EXPIRED}) {
+            Integer count = counts.get(status);
+            counters.put(status, count != null ? count : 0);
+        }
+        transaction.set(SelectionStore.countersRef(db, eventId), counters);
+
+        // the old retry list is user IDs, the lottery keeps lottery positions
+        List<Long> retryPositions = new ArrayList<>();
+        Object retryEntrants = event.get("retryEntrants");
+        if (retryEntrants instanceof List) {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < order.size(); i++) {
+                positions.put(order.get(i), i);
+            }
+            for (Object userId : (List<?>) retryEntrants) {
+                Integer position = positions.get(String.valueOf(userId));
+                if (position != null) retryPositions.add((long) position);
+            }
+        }
+
+        Long drawIndex = event.getLong(DRAW_INDEX_FIELD);
+        Map<String, Object> lotteryData = new HashMap<>();
+        lotteryData.put("eventId", eventId);
+        lotteryData.put("status", LotteryManager.STATUS_DRAWN);
+        lotteryData.put("entrantCount", order.size());
+        lotteryData.put("pageSize", pageSize);
+        lotteryData.put("pageCount", pageCount);
+        lotteryData.put("currentDrawIndex", drawIndex != null ? drawIndex : selectedCount);
+        lotteryData.put("retryPositions", retryPositions);
+        lotteryData.put("mode", "uniform");
+        lotteryData.put("migratedAt", now);
+        // no lotterySampleSize, the old schema didn't keep it so capacity comes from the event
+        transaction.set(lotteryRef, lotteryData);
+    }
+
+    private static long parseTime(String timestamp, long fallback) {
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
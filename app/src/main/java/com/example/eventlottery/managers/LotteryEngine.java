@@ -0,0 +1,295 @@
+package com.example.eventlottery.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Pure java lottery draw, no firebase in here so it can be unit tested and run off the main thread.
+ * Uses a partial Fisher-Yates shuffle: picking k winners only does k swaps, and the entrants list
+ * is never copied. Swapped positions are tracked in a small map instead.
+ * Weighted draws use an {@link AliasTable} instead, see {@link WeightedDraw}.
+ */
+public class LotteryEngine {
+
+    private final Random random;
+    private final long seed;
+
+    /**
+     * Creates an engine with a random seed
+     */
+    public LotteryEngine() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Creates an engine with a fixed seed, same seed + same entrants gives the same draw
+     * @param seed seed for the random number generator
+     */
+    public LotteryEngine(long seed) {
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    /** @return the seed this engine was created with (saved with the lottery for auditing) */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Starts a draw over the given entrants. The list is read but never modified or copied.
+     * @param entrants everyone on the waitlist
+     * @return a draw that hands out entrants in random order
+     */
+    public Draw start(List<String> entrants) {
+        if (entrants == null) {
+            throw new IllegalArgumentException("Entrants cannot be null");
+        }
+        return new Draw(entrants, random);
+    }
+
+    /**
+     * Convenience method, draws the first sampleSize winners
+     * @param entrants everyone on the waitlist
+     * @param sampleSize number of winners
+     * @return the draw, with sampleSize winners already taken
+     */
+    public Draw draw(List<String> entrants, int sampleSize) {
+        if (sampleSize < 0 || sampleSize > entrants.size()) {
+            throw new IllegalArgumentException("Sample size must be between 0 and " + entrants.size());
+        }
+        Draw draw = start(entrants);
+        draw.take(sampleSize);
+        return draw;
+    }
+
+    /**
+     * Starts a weighted draw, each pick is proportional to the entrant's weight among the
+     * entrants not drawn yet. Entrants with weight 0 come last, in uniform random order.
+     * @param entrants everyone on the waitlist
+     * @param weights weight for each entrant, same order as entrants
+     * @return a draw that hands out entrants in weighted random order
+     */
+    public Draw startWeighted(List<String> entrants, double[] weights) {
+        if (entrants == null || weights == null) {
+            throw new IllegalArgumentException("Entrants and weights cannot be null");
+        }
+        if (weights.length != entrants.size()) {
+            throw new IllegalArgumentException("Need one weight per entrant");
+        }
+        return new WeightedDraw(entrants, weights, random);
+    }
+
+    /**
+     * Convenience method, draws the first sampleSize winners by weight
+     * @param entrants everyone on the waitlist
+     * @param weights weight for each entrant, same order as entrants
+     * @param sampleSize number of winners
+     * @return the draw, with sampleSize winners already taken
+     */
+    public Draw drawWeighted(List<String> entrants, double[] weights, int sampleSize) {
+        if (sampleSize < 0 || sampleSize > entrants.size()) {
+            throw new IllegalArgumentException("Sample size must be between 0 and " + entrants.size());
+        }
+        Draw draw = startWeighted(entrants, weights);
+        draw.take(sampleSize);
+        return draw;
+    }
+
+    /**
+     * One in progress shuffle. Each call to next() does one Fisher-Yates step, so the order
+     * after the winners (the replacement order) is only built if someone actually asks for it.
+     */
+    public static class Draw {
+        final List<String> entrants;
+        final Random random;
+        // position -> index in entrants, only for positions that got swapped
+        private final Map<Integer, Integer> displaced = new HashMap<>();
+        private final List<String> winners = new ArrayList<>();
+        int position = 0;
+
+        Draw(List<String> entrants, Random random) {
+            this.entrants = entrants;
+            this.random = random;
+        }
+
+        /** @return true if there are entrants left to draw */
+        public boolean hasNext() {
+            return position < entrants.size();
+        }
+
+        /**
+         * Draws the next entrant in the random order
+         * @return entrant id
+         */
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No entrants left to draw");
+            }
+            int pickedIndex = nextIndex();
+            position++;
+            return entrants.get(pickedIndex);
+        }
+
+        /**
+         * One Fisher-Yates step
+         * @return index in entrants of the entrant at the current position
+         */
+        int nextIndex() {
+            int size = entrants.size();
+            int swapWith = position + random.nextInt(size - position);
+
+            // position is used up after this step so its entry can be dropped
+            Integer current = displaced.remove(position);
+            int currentIndex = current != null ? current : position;
+            int pickedIndex = currentIndex;
+
+            if (swapWith != position) {
+                Integer picked = displaced.get(swapWith);
+                pickedIndex = picked != null ? picked : swapWith;
+                displaced.put(swapWith, currentIndex);
+            }
+            return pickedIndex;
+        }
+
+        /**
+         * Draws the next count entrants and records them as winners
+         * @param count how many to draw
+         * @return the newly drawn winners
+         */
+        public List<String> take(int count) {
+            List<String> drawn = new ArrayList<>(count);
+            for (int i = 0; i < count && hasNext(); i++) {
+                drawn.add(next());
+            }
+            winners.addAll(drawn);
+            return drawn;
+        }
+
+        /** @return everyone taken as a winner so far */
+        public List<String> getWinners() {
+            return Collections.unmodifiableList(winners);
+        }
+
+        /** @return how many entrants have been drawn so far */
+        public int getPosition() {
+            return position;
+        }
+
+        /** @return total number of entrants in the draw */
+        public int size() {
+            return entrants.size();
+        }
+
+        /**
+         * Finishes the shuffle and returns everyone not drawn yet, in their random order.
+         * This is the replacement order, only built when it is needed.
+         * @return remaining entrants
+         */
+        public List<String> remaining() {
+            List<String> rest = new ArrayList<>(entrants.size() - position);
+            while (hasNext()) {
+                rest.add(next());
+            }
+            return rest;
+        }
+    }
+
+    /**
+     * Weighted draw without replacement. Picks come from an alias table, anyone already drawn is
+     * rejected and picked again. The table is rebuilt from the entrants still left once half its
+     * weight has been drawn, so on average a pick takes at most two tries.
+     */
+    public static class WeightedDraw extends Draw {
+        private final double[] weights;
+        private final boolean[] taken;
+
+        private AliasTable table;
+        // table slot -> index in entrants
+        private int[] tableEntrants;
+        private double tableWeight;
+        private double takenTableWeight;
+
+        // once only weight 0 entrants are left they are shuffled uniformly
+        private List<Integer> zeroWeightLeft;
+        private Draw zeroWeightDraw;
+
+        private WeightedDraw(List<String> entrants, double[] weights, Random random) {
+            super(entrants, random);
+            for (double weight : weights) {
+                if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                    throw new IllegalArgumentException("Weights must be finite and non-negative");
+                }
+            }
+            this.weights = weights.clone();
+            this.taken = new boolean[weights.length];
+            rebuild();
+        }
+
+        @Override
+        int nextIndex() {
+            if (table != null && takenTableWeight * 2 >= tableWeight) {
+                rebuild();
+            }
+
+            if (table == null) {
+                // the rest all have weight 0, pick uniformly between them
+                int index = zeroWeightLeft.get(zeroWeightDraw.nextIndex());
+                zeroWeightDraw.position++;
+                return index;
+            }
+
+            while (true) {
+                int index = tableEntrants[table.sample(random)];
+                if (!taken[index]) {
+                    taken[index] = true;
+                    takenTableWeight += weights[index];
+                    return index;
+                }
+            }
+        }
+
+        /**
+         * Builds a new alias table over the entrants with weight left that haven't been drawn
+         */
+        private void rebuild() {
+            int count = 0;
+            for (int i = 0; i < weights.length; i++) {
+                if (!taken[i] && weights[i] > 0) count++;
+            }
+
+            if (count == 0) {
+                table = null;
+                zeroWeightLeft = new ArrayList<>();
+                List<String> ids = new ArrayList<>();
+                for (int i = 0; i < weights.length; i++) {
+                    if (!taken[i]) {
+                        zeroWeightLeft.add(i);
+                        ids.add(entrants.get(i));
+                    }
+                }
+                zeroWeightDraw = new Draw(ids, random);
+                return;
+            }
+
+            tableEntrants = new int[count];
+            double[] tableWeights = new double[count];
+            tableWeight = 0;
+            int slot = 0;
+            for (int i = 0; i < weights.length; i++) {
+                if (!taken[i] && weights[i] > 0) {
+                    tableEntrants[slot] = i;
+                    tableWeights[slot] = weights[i];
+                    tableWeight += weights[i];
+                    slot++;
+                }
+            }
+            table = new AliasTable(tableWeights);
+            takenTableWeight = 0;
+        }
+    }
+}
@@ -1,27 +1,67 @@
 package com.example.eventlottery.managers;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.firestore.DocumentSnapshot;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Lottery manager - handles lottery logic for events
- * Stores all lists (accepted, declined, retry, selected) directly in the 'events' collection.
+ * The lottery order, draw state and every winner's selection document live under
+ * lotteries/{eventId}, the retry list stays in the 'events' collection.
  */
 public class LotteryManager {
 
     private static final String TAG = "LotteryManager";
+
+    // one shared background thread for draws so big waitlists don't block the UI
+    private static final ExecutorService LOTTERY_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // accept/decline responses for the same event that arrive within this window share a transaction
+    private static final long RESPONSE_WINDOW_MS = 250;
+    private static final ScheduledExecutorService RESPONSE_SCHEDULER = Executors.newSingleThreadScheduledExecutor();
+    /** Lottery state, the paged lottery order and the selections live here, keyed by event id */
+    public static final String LOTTERIES_COLLECTION = "lotteries";
+    /** Status of a lottery whose order pages and selections are all saved */
+    public static final String STATUS_DRAWN = "drawn";
+    /** Which draw a lottery, order page or selection was saved by */
+    public static final String DRAW_ID_FIELD = "drawId";
+    // thrown inside a response transaction when the event's lottery is still in the old schema
+    private static final String LEGACY_LOTTERY = "LEGACY_LOTTERY";
+    // firestore allows 500 writes in one batch
+    private static final int MAX_WRITES_PER_BATCH = 500;
+
+    // shared by every LotteryManager so responses from different screens still get grouped
+    private static final Map<String, List<PendingResponse>> PENDING_RESPONSES = new HashMap<>();
+
     private final FirebaseFirestore db;
     private final NotificationManager notificationManager;
+    private Executor lotteryExecutor = LOTTERY_EXECUTOR;
+    // callbacks from the draw thread are posted back here, the UI touches views in them
+    private Executor mainThread = command -> new Handler(Looper.getMainLooper()).post(command);
+    private ScheduledExecutorService responseScheduler = RESPONSE_SCHEDULER;
 
     public LotteryManager() {
         this.db = FirebaseFirestore.getInstance();
@@ -29,10 +69,24 @@ public class LotteryManager {
     }
 
     /**
-     * Fetches entrants from the event's waitlistUsers field, shuffles them, and selects winners.
-     * Saves the results back to the 'events' document.
+     * Fetches entrants from the event's waitlist entries, shuffles them, and selects winners.
+     * The draw itself runs on a background thread using {@link LotteryEngine}.
+     * The lottery order, draw state and winners are saved under lotteries/{eventId}.
      */
     public void initializeLottery(String eventId, int sampleSize, LotteryCallback callback) {
+        initializeLottery(eventId, sampleSize, null, callback);
+    }
+
+    /**
+     * Same as {@link #initializeLottery(String, int, LotteryCallback)} but with a weighted draw:
+     * each entrant's chance is proportional to their weight (see {@link #weightsFromLosses}).
+     * The whole lottery order is weighted, so replacement draws follow the weights too.
+     * The weights are saved next to the order so the draw can be audited.
+     *
+     * @param weights weight per user ID, entrants missing from it get 1. null means a uniform draw
+     */
+    public void initializeLottery(String eventId, int sampleSize, Map<String, ? extends Number> weights,
+                                  LotteryCallback callback) {
         if (eventId == null || eventId.isEmpty()) {
             callback.onError("Invalid event ID");
             return;
@@ -53,55 +107,144 @@ public class LotteryManager {
                 return;
             }
 
-            // gets users from wiatlist
-            List<String> entrants = (List<String>) eventSnapshot.get("waitlistUsers");
+            // gets users from wiatlist, one entry document each
+            WaitlistStore.entries(db, eventId).get()
+                    .addOnSuccessListener(entries -> SelectionStore.forEvent(db, eventId).get()
+                            // selections already there are from an earlier attempt that didn't finish
+                            .addOnSuccessListener(previous -> drawLottery(eventId, sampleSize, weights,
+                                    eventSnapshot, WaitlistStore.userIds(entries),
+                                    SelectionStore.userIds(previous), callback))
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error fetching previous selections", e);
+                                callback.onError("Failed to check previous draw: " + e.getMessage());
+                            }))
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error fetching waitlist", e);
+                        callback.onError("Failed to fetch waitlist: " + e.getMessage());
+                    });
 
-            if (entrants == null || entrants.isEmpty()) {
-                callback.onError("No entrants in waiting list");
-                return;
-            }
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Error fetching event", e);
+            callback.onError("Failed to fetch event: " + e.getMessage());
+        });
+    }
 
-            if (sampleSize > entrants.size()) {
-                callback.onError("Sample size (" + sampleSize + ") exceeds number of entrants");
+    /**
+     * Shuffles the entrants, saves the lottery and notifies everyone.
+     * Everything is saved in several batches with the lottery document last, tagged with a new
+     * draw ID. Until that last batch lands the lottery doesn't count as drawn, and running it
+     * again deletes the selections the failed attempt left behind.
+     *
+     * @param previousSelections users who already have a selection document for the event
+     */
+    private void drawLottery(String eventId, int sampleSize, Map<String, ? extends Number> weights,
+                             DocumentSnapshot eventSnapshot, List<String> entrants,
+                             List<String> previousSelections, LotteryCallback callback) {
+        if (entrants.isEmpty()) {
+            callback.onError("No entrants in waiting list");
+            return;
+        }
+
+        if (sampleSize > entrants.size()) {
+            callback.onError("Sample size (" + sampleSize + ") exceeds number of entrants");
+            return;
+        }
+
+        // the shuffle runs on a background thread, firestore is fine with writes from any thread
+        // and the commit listeners still come back on the main thread
+        lotteryExecutor.execute(() -> {
+            LotteryEngine engine = new LotteryEngine();
+            LotteryEngine.Draw draw;
+            try {
+                draw = weights != null
+                        ? engine.startWeighted(entrants, entrantWeights(entrants, weights))
+                        : engine.start(entrants);
+            } catch (IllegalArgumentException e) {
+                // the sample size was checked above, only the weights can be wrong here
+                mainThread.execute(() -> callback.onError("Invalid lottery weights: " + e.getMessage()));
                 return;
             }
 
-            // does the shuffle and sperates winners and lsoers
-            List<String> shuffledEntrants = new ArrayList<>(entrants);
-            Collections.shuffle(shuffledEntrants);
+            List<String> winners = draw.take(sampleSize);
 
-            List<String> winners = shuffledEntrants.subList(0, sampleSize);
-            List<String> losers = shuffledEntrants.subList(sampleSize, shuffledEntrants.size());
+            // The order lives in lotteries/{eventId}, split into pages, so the event
+            // document that browse downloads stays small.
+            // Everyone after the winners is drawn straight into the page they are saved on, the
+            // whole order has to be saved now since replacements read it back page by page
+            DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
+            int pageSize = LotteryOrderReader.PAGE_SIZE;
+            int pageCount = LotteryOrderReader.pageCount(entrants.size(), pageSize);
 
-            Log.d(TAG, "Winners: " + winners.size() + ", Losers: " + losers.size());
+            String drawId = UUID.randomUUID().toString();
+            BatchChain batches = new BatchChain();
 
-            // updates for the event
-            WriteBatch batch = db.batch();
+            // winners drawn again get their selection overwritten below, everyone else's goes
+            Set<String> winnerIds = new HashSet<>(winners);
+            for (String userId : previousSelections) {
+                if (!winnerIds.contains(userId)) {
+                    batches.next().delete(SelectionStore.selectionRef(db, eventId, userId));
+                }
+            }
 
-            // Store lottery order and index
-            batch.update(eventRef, "lotteryOrder", shuffledEntrants);
-            batch.update(eventRef, "currentDrawIndex", sampleSize);
+            List<List<String>> pages = new ArrayList<>(pageCount);
+            // weights are saved in lottery order next to the entrants
+            double totalWeight = 0;
+            for (int page = 0; page < pageCount; page++) {
+                int pageStart = page * pageSize;
+                int pageEnd = Math.min(pageStart + pageSize, entrants.size());
+                List<String> pageEntrants = new ArrayList<>(pageEnd - pageStart);
+                for (int position = pageStart; position < pageEnd; position++) {
+                    pageEntrants.add(position < winners.size() ? winners.get(position) : draw.next());
+                }
 
-            // Initialize accepted list as empty
-            batch.update(eventRef, "accepted", new ArrayList<String>());
-            // Initialize declined list as empty
-            batch.update(eventRef, "declined", new ArrayList<String>());
+                List<Double> pageWeights = null;
+                if (weights != null) {
+                    pageWeights = new ArrayList<>(pageEntrants.size());
+                    for (String userId : pageEntrants) {
+                        double weight = weightOf(weights, userId);
+                        pageWeights.add(weight);
+                        totalWeight += weight;
+                    }
+                }
+
+                pages.add(pageEntrants);
+                Map<String, Object> pageData = LotteryOrderReader.pageData(page, pageStart, pageEntrants, pageWeights);
+                pageData.put(DRAW_ID_FIELD, drawId);
+                batches.next().set(LotteryOrderReader.pageRef(lotteryRef, page), pageData);
+            }
+            List<String> losers = LotteryOrderReader.joinPages(pages, pageSize).subList(winners.size(), entrants.size());
+
+            Log.d(TAG, "Winners: " + winners.size() + ", Losers: " + losers.size());
 
-            // Create 'selected' map to track status of winners
-            Map<String, Object> selectedMap = new HashMap<>();
+            // one selection document per winner, so their responses don't collide
+            long now = System.currentTimeMillis();
             for (String userId : winners) {
-                Map<String, String> userStatus = new HashMap<>();
-                userStatus.put("status", "pending");
-                userStatus.put("timestamp", String.valueOf(System.currentTimeMillis()));
-                selectedMap.put(userId, userStatus);
+                batches.next().set(SelectionStore.selectionRef(db, eventId, userId),
+                        SelectionStore.pendingSelectionData(eventId, userId, now, drawId));
             }
-            batch.update(eventRef, "selected", selectedMap);
+            SelectionStore.initCounters(batches.next(), SelectionStore.countersRef(db, eventId), winners.size());
 
+            // lottery state, written last so it only exists once everything else is saved
+            Map<String, Object> lotteryData = new HashMap<>();
+            lotteryData.put("eventId", eventId);
+            lotteryData.put("status", STATUS_DRAWN);
+            lotteryData.put(DRAW_ID_FIELD, drawId);
+            lotteryData.put("entrantCount", entrants.size());
+            lotteryData.put("pageSize", pageSize);
+            lotteryData.put("pageCount", pageCount);
+            lotteryData.put("currentDrawIndex", sampleSize);
+            lotteryData.put("lotterySampleSize", sampleSize);
+            lotteryData.put("lotterySeed", engine.getSeed());
+            lotteryData.put("mode", weights != null ? "weighted" : "uniform");
+            if (weights != null) {
+                lotteryData.put("totalWeight", totalWeight);
+            }
+            lotteryData.put("createdAt", System.currentTimeMillis());
+            batches.next().set(lotteryRef, lotteryData);
 
-            batch.commit().addOnSuccessListener(aVoid -> {
+            commitInOrder(batches.batches, 0, () -> {
                 Log.d(TAG, "Lottery initialization successful");
 
-
                 String eventName = eventSnapshot.getString("eventName");
                 if (eventName == null) eventName = "Event";
 
@@ -109,24 +252,81 @@ public class LotteryManager {
                 for (String winnerId : winners) {
                     notificationManager.sendWinNotification(winnerId, eventId, eventName);
                 }
-                notificationManager.notifyAllLosers(eventId, losers);
+                // losers go out in batches, we already have the event so it isn't read again
+                String organizerName = eventSnapshot.getString("organizerName");
+                notificationManager.notifyAllLosers(eventId, eventName, organizerName, losers,
+                        new LossNotificationTracker(eventId, eventName, organizerName, true));
 
                 callback.onSuccess("Lottery completed: " + winners.size() + " winners selected");
 
-            }).addOnFailureListener(e -> {
+            }, e -> {
                 Log.e(TAG, "Error committing lottery batch", e);
                 callback.onError("Failed to save lottery results: " + e.getMessage());
             });
-
-        }).addOnFailureListener(e -> {
-            Log.e(TAG, "Error fetching event", e);
-            callback.onError("Failed to fetch event: " + e.getMessage());
         });
     }
 
+    /**
+     * Turns how many lotteries each user lost before into draw weights: 1 + losses, so
+     * someone who lost twice is three times as likely to win as a first timer
+     *
+     * @param lossCounts previous losses per user ID
+     * @return weight per user ID
+     */
+    public static Map<String, Double> weightsFromLosses(Map<String, ? extends Number> lossCounts) {
+        Map<String, Double> weights = new HashMap<>();
+        for (Map.Entry<String, ? extends Number> entry : lossCounts.entrySet()) {
+            double losses = entry.getValue() != null ? entry.getValue().doubleValue() : 0;
+            weights.put(entry.getKey(), 1 + Math.max(0, losses));
+        }
+        return weights;
+    }
+
+    /**
+     * Weights lined up with the entrants list
+     */
+    private double[] entrantWeights(List<String> entrants, Map<String, ? extends Number> weights) {
+        double[] result = new double[entrants.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = weightOf(weights, entrants.get(i));
+        }
+        return result;
+    }
+
+    private double weightOf(Map<String, ? extends Number> weights, String userId) {
+        Number weight = weights.get(userId);
+        return weight != null ? weight.doubleValue() : 1;
+    }
+
+    /**
+     * @param lottery the lotteries/{eventId} document
+     * @return true if the lottery's draw finished saving. Lotteries from before there was a
+     * status were only ever written once complete, so they count too
+     */
+    public static boolean isDrawn(DocumentSnapshot lottery) {
+        if (!lottery.exists()) {
+            return false;
+        }
+        String status = lottery.getString("status");
+        return status == null || STATUS_DRAWN.equals(status);
+    }
+
+    /**
+     * @param doc an order page or selection
+     * @param lottery the lotteries/{eventId} document
+     * @return false if doc was left behind by a different draw than the lottery's. Documents
+     * saved before draws had IDs always match
+     */
+    static boolean isFromDraw(DocumentSnapshot doc, DocumentSnapshot lottery) {
+        String drawId = lottery.getString(DRAW_ID_FIELD);
+        String docDrawId = doc.getString(DRAW_ID_FIELD);
+        return drawId == null || docDrawId == null || drawId.equals(docDrawId);
+    }
+
     /**
      * Draws the next person from lotteryOrder ONLY IF they are in the 'retryEntrants' list.
      * Skips users who did not opt-in to the retry pool.
+     * Uses the saved {@link ReplacementIndex} so the lookup does not rescan the retry list.
      */
     public void drawReplacement(String eventId, ReplacementCallback callback) {
         if (eventId == null || eventId.isEmpty()) {
@@ -135,6 +335,7 @@ public class LotteryManager {
         }
 
         DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
 
         db.runTransaction(transaction -> {
             DocumentSnapshot snapshot = transaction.get(eventRef);
@@ -143,159 +344,516 @@ public class LotteryManager {
                 throw new RuntimeException("Event not found");
             }
 
+            DocumentSnapshot lotterySnapshot = transaction.get(lotteryRef);
+            List<String> drawn = drawFromRetryPool(transaction, lotteryRef, lotterySnapshot, 1);
+            if (drawn.isEmpty()) {
+                throw new RuntimeException("NO_REPLACEMENTS_AVAILABLE");
+            }
+            addPendingSelections(transaction, eventId, drawn, lotterySnapshot);
 
-            List<String> lotteryOrder = (List<String>) snapshot.get("lotteryOrder");
-            List<String> retryEntrants = (List<String>) snapshot.get("retryEntrants"); // Fetch the retry list
-            Long currentIndexLong = snapshot.getLong("currentDrawIndex");
+            // Return the userId and eventName for the callback
+            String eventName = snapshot.getString("eventName");
+            return new String[]{drawn.get(0), eventName};
 
-            if (lotteryOrder == null || currentIndexLong == null) {
-                throw new RuntimeException("Lottery data missing");
+        }).addOnSuccessListener(result -> {
+
+            String userId = result[0];
+            String eventName = result[1] != null ? result[1] : "Event";
+
+            notificationManager.sendReplacementNotification(userId, eventId, eventName);
+            callback.onSuccess(userId);
+
+        }).addOnFailureListener(e -> {
+            if (e.getMessage() != null && e.getMessage().contains("NO_REPLACEMENTS_AVAILABLE")) {
+                callback.onNoMoreEntrants("No valid entrants in retry pool");
+            } else {
+                callback.onError("Failed to draw replacement: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Draws up to count replacements from the retry pool in a single transaction.
+     * If fewer people are left in the retry pool, everyone left is drawn.
+     *
+     * @param eventId  The unique ID of the event.
+     * @param count    How many replacements to draw.
+     * @param callback Gets the drawn user IDs, or onNoMoreEntrants if nobody could be drawn.
+     */
+    public void drawReplacements(String eventId, int count, BulkReplacementCallback callback) {
+        if (eventId == null || eventId.isEmpty()) {
+            callback.onError("Invalid event ID");
+            return;
+        }
+        if (count <= 0) {
+            callback.onError("Replacement count must be greater than 0");
+            return;
+        }
+
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
+
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(eventRef);
+            if (!snapshot.exists()) {
+                throw new RuntimeException("Event not found");
             }
 
-            int index = currentIndexLong.intValue();
-            String replacementUserId = null;
-            int newIndex = index;
+            DocumentSnapshot lotterySnapshot = transaction.get(lotteryRef);
+            List<String> drawn = drawFromRetryPool(transaction, lotteryRef, lotterySnapshot, count);
+            addPendingSelections(transaction, eventId, drawn, lotterySnapshot);
+            return new ReplacementDraw(drawn, snapshot);
+        }).addOnSuccessListener(result -> finishBulkDraw(eventId, result, callback))
+                .addOnFailureListener(e -> callback.onError("Failed to draw replacements: " + e.getMessage()));
+    }
+
+    /**
+     * Organizer action: fills every open spot (sample size minus pending and accepted winners)
+     * from the retry pool, all in one transaction.
+     *
+     * @param eventId  The unique ID of the event.
+     * @param callback Gets the drawn user IDs, or onNoMoreEntrants if nobody could be drawn.
+     */
+    public void refillToCapacity(String eventId, BulkReplacementCallback callback) {
+        if (eventId == null || eventId.isEmpty()) {
+            callback.onError("Invalid event ID");
+            return;
+        }
+
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
+
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(eventRef);
+            if (!snapshot.exists()) {
+                throw new RuntimeException("Event not found");
+            }
+            DocumentSnapshot lotterySnapshot = transaction.get(lotteryRef);
+            DocumentSnapshot counters = transaction.get(SelectionStore.countersRef(db, eventId));
 
-            //  Loop through lotteryOrder to find the next candidate who IS in retryEntrants
-            // If retryEntrants is null (no one joined), we can't pick anyone
-            if (retryEntrants != null) {
-                while (newIndex < lotteryOrder.size()) {
-                    String candidateId = lotteryOrder.get(newIndex);
+            // spots held by winners who are still pending or already accepted
+            int filledSpots = SelectionStore.getCount(counters, SelectionStore.STATUS_PENDING)
+                    + SelectionStore.getCount(counters, SelectionStore.STATUS_ACCEPTED);
+            int openSpots = getCapacity(snapshot, lotterySnapshot) - filledSpots;
+            if (openSpots <= 0) {
+                throw new RuntimeException("ALREADY_AT_CAPACITY");
+            }
 
-                    // Check if this candidate joined the retry pool
-                    if (retryEntrants.contains(candidateId)) {
-                        replacementUserId = candidateId;
-                        break; // Found a match!
+            List<String> drawn = drawFromRetryPool(transaction, lotteryRef, lotterySnapshot, openSpots);
+            addPendingSelections(transaction, eventId, drawn, lotterySnapshot);
+            return new ReplacementDraw(drawn, snapshot);
+        }).addOnSuccessListener(result -> finishBulkDraw(eventId, result, callback))
+                .addOnFailureListener(e -> {
+                    if (e.getMessage() != null && e.getMessage().contains("ALREADY_AT_CAPACITY")) {
+                        callback.onNoMoreEntrants("Event is already at capacity");
+                    } else {
+                        callback.onError("Failed to refill event: " + e.getMessage());
                     }
+                });
+    }
+
+    /**
+     * Expires invitations that passed their deadline without a response, and draws a replacement
+     * for each one in the same transaction. Users who responded in the meantime, or whose
+     * deadline hasn't passed yet, are left alone.
+     *
+     * @param eventId  The unique ID of the event.
+     * @param userIds  Users whose invitations should be expired.
+     * @param now      Current time, invitations with a deadline after it are kept.
+     * @param callback Gets the replacements, or onNoMoreEntrants if nobody could be drawn.
+     */
+    public void expireInvitations(String eventId, List<String> userIds, long now,
+                                  BulkReplacementCallback callback) {
+        if (eventId == null || eventId.isEmpty() || userIds == null || userIds.isEmpty()) {
+            callback.onError("Invalid ID");
+            return;
+        }
+
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
+
+        db.runTransaction(transaction -> {
+            // selections from a draw that never finished saving are left for the next draw to delete
+            DocumentSnapshot lotterySnapshot = transaction.get(lotteryRef);
+            if (!isDrawn(lotterySnapshot)) {
+                return new ReplacementDraw(new ArrayList<>(), null);
+            }
 
-                    // If not in retry pool, skip them and keep looking
-                    newIndex++;
+            List<String> expired = new ArrayList<>();
+            for (String userId : userIds) {
+                DocumentSnapshot selection = transaction.get(SelectionStore.selectionRef(db, eventId, userId));
+                Long deadline = selection.getLong("deadline");
+                if (selection.exists() && SelectionStore.STATUS_PENDING.equals(selection.getString("status"))
+                        && deadline != null && deadline <= now && isFromDraw(selection, lotterySnapshot)) {
+                    expired.add(userId);
                 }
             }
+            if (expired.isEmpty()) {
+                return new ReplacementDraw(new ArrayList<>(), null);
+            }
 
-            if (replacementUserId == null) {
-                throw new RuntimeException("NO_REPLACEMENTS_AVAILABLE");
+            DocumentSnapshot snapshot = transaction.get(eventRef);
+            List<String> replacements = drawFromRetryPool(transaction, lotteryRef, lotterySnapshot, expired.size());
+
+            String timestamp = String.valueOf(now);
+            for (String userId : expired) {
+                transaction.update(SelectionStore.selectionRef(db, eventId, userId),
+                        "status", SelectionStore.STATUS_EXPIRED, "timestamp", timestamp);
             }
+            SelectionStore.incrementCounters(transaction, SelectionStore.countersRef(db, eventId),
+                    -expired.size(), 0, 0, expired.size());
+            addPendingSelections(transaction, eventId, replacements, lotterySnapshot);
 
-            //  Update the found user to pending
-            Map<String, Object> selectedMap = (Map<String, Object>) snapshot.get("selected");
-            if (selectedMap == null) selectedMap = new HashMap<>();
+            Log.d(TAG, "Expired " + expired.size() + " invitations for event: " + eventId);
+            return new ReplacementDraw(replacements, snapshot);
+        }).addOnSuccessListener(result -> finishBulkDraw(eventId, result, callback))
+                .addOnFailureListener(e -> callback.onError("Failed to expire invitations: " + e.getMessage()));
+    }
 
-            Map<String, String> userStatus = new HashMap<>();
-            userStatus.put("status", "pending");
-            userStatus.put("timestamp", String.valueOf(System.currentTimeMillis()));
+    /**
+     * Sends the replacement notifications for a bulk draw and reports back to the caller
+     */
+    private void finishBulkDraw(String eventId, ReplacementDraw result, BulkReplacementCallback callback) {
+        if (result.userIds.isEmpty()) {
+            callback.onNoMoreEntrants("No valid entrants in retry pool");
+            return;
+        }
+        notificationManager.sendReplacementNotifications(eventId, result.eventName,
+                result.organizerName, result.userIds);
+        callback.onSuccess(result.userIds);
+    }
 
-            selectedMap.put(replacementUserId, userStatus);
+    /**
+     * Draws up to count entrants from the retry pool inside a transaction. Only the order pages
+     * holding the drawn positions are read. Writes the new draw index and retry bitmap to the
+     * lottery; the caller saves the drawn users with {@link #addPendingSelections}.
+     * A lottery that can't be drawn from (not finished saving, or missing a page) gives nobody
+     * rather than failing, so responses sharing the transaction still go through.
+     *
+     * @return the drawn user IDs, empty if nobody was left or the lottery can't be drawn from
+     */
+    private List<String> drawFromRetryPool(Transaction transaction, DocumentReference lotteryRef,
+                                           DocumentSnapshot lotterySnapshot, int count)
+            throws FirebaseFirestoreException {
+        Long currentIndexLong = lotterySnapshot.getLong("currentDrawIndex");
+        Long entrantCountLong = lotterySnapshot.getLong("entrantCount");
+        Long pageSizeLong = lotterySnapshot.getLong("pageSize");
 
-            //  Write changes back
-            transaction.update(eventRef, "selected", selectedMap);
-            transaction.update(eventRef, "currentDrawIndex", newIndex + 1); // Update index to after this user
+        if (!isDrawn(lotterySnapshot) || currentIndexLong == null || entrantCountLong == null) {
+            Log.w(TAG, "Lottery " + lotteryRef.getId() + " can't be drawn from yet");
+            return new ArrayList<>();
+        }
 
-            // Return the userId and eventName for the callback
-            String eventName = snapshot.getString("eventName");
-            return new String[]{replacementUserId, eventName};
+        int index = currentIndexLong.intValue();
+        int entrantCount = entrantCountLong.intValue();
+        int pageSize = pageSizeLong != null ? pageSizeLong.intValue() : LotteryOrderReader.PAGE_SIZE;
 
-        }).addOnSuccessListener(result -> {
+        // Retry pool is kept as a bitset over lottery positions, only people who joined
+        // since the last draw have to be added
+        ReplacementIndex replacementIndex = loadReplacementIndex(lotterySnapshot);
+        replacementIndex.fold((List<Long>) lotterySnapshot.get("retryPositions"), index);
 
-            String userId = result[0];
-            String eventName = result[1] != null ? result[1] : "Event";
+        List<Integer> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            int position = replacementIndex.nextEligible(index);
+            if (position < 0 || position >= entrantCount) {
+                break;
+            }
+            positions.add(position);
+            replacementIndex.consume(position);
+            index = position + 1; // Update index to after this user
+        }
 
-            notificationManager.sendReplacementNotification(userId, eventId, eventName);
-            callback.onSuccess(userId);
+        if (positions.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        }).addOnFailureListener(e -> {
-            if (e.getMessage() != null && e.getMessage().contains("NO_REPLACEMENTS_AVAILABLE")) {
-                callback.onNoMoreEntrants("No valid entrants in retry pool");
-            } else {
-                callback.onError("Failed to draw replacement: " + e.getMessage());
+        // all page reads happen here, before any writes in the transaction
+        LotteryOrderReader reader = new LotteryOrderReader(transaction, lotteryRef, pageSize);
+        List<String> drawn = new ArrayList<>();
+        try {
+            for (int position : positions) {
+                drawn.add(reader.get(position));
             }
-        });
+        } catch (RuntimeException e) {
+            // a page is missing or shorter than entrantCount says, nothing has been written yet
+            Log.w(TAG, "Lottery order unreadable: " + e.getMessage());
+            return new ArrayList<>();
+        }
+
+        transaction.update(lotteryRef, "currentDrawIndex", index);
+        saveReplacementIndex(transaction, lotteryRef, replacementIndex);
+
+        return drawn;
+    }
+
+    /**
+     * Saves drawn users as pending selections and bumps the pending counter
+     */
+    private void addPendingSelections(Transaction transaction, String eventId, List<String> userIds,
+                                      DocumentSnapshot lotterySnapshot) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String userId : userIds) {
+            transaction.set(SelectionStore.selectionRef(db, eventId, userId),
+                    SelectionStore.pendingSelectionData(eventId, userId, now,
+                            lotterySnapshot.getString(DRAW_ID_FIELD)));
+        }
+        SelectionStore.incrementCounters(transaction, SelectionStore.countersRef(db, eventId),
+                userIds.size(), 0, 0, 0);
     }
+
+    /**
+     * Number of winners the event should have: the sample size the lottery was run with,
+     * or entrantMaxCapacity if the lottery didn't save one
+     */
+    private int getCapacity(DocumentSnapshot eventSnapshot, DocumentSnapshot lotterySnapshot) {
+        Long sampleSize = lotterySnapshot.getLong("lotterySampleSize");
+        if (sampleSize != null) {
+            return sampleSize.intValue();
+        }
+        String maxCapacity = eventSnapshot.getString("entrantMaxCapacity");
+        if (maxCapacity != null && !maxCapacity.isEmpty()) {
+            try {
+                return Integer.parseInt(maxCapacity);
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Invalid entrantMaxCapacity: " + maxCapacity);
+            }
+        }
+        return 0;
+    }
+
     /**
      * Updates a user's status to "accepted" for a specific event.
+     * Goes through the response queue so it can share a transaction with other responses.
      *
      * @param eventId  The unique ID of the event.
      * @param userId   The ID of the user accepting the invitation.
      * @param callback Callback to confirm the update or report errors.
      */
     public void acceptInvitation(String eventId, String userId, StatusCallback callback) {
-        updateUserStatus(eventId, userId, "accepted", callback);
+        enqueueResponse(eventId, userId, "accepted", callback);
     }
     /**
      * Updates a user's status to "declined" and automatically attempts to draw a replacement winner.
+     * Goes through the response queue so it can share a transaction with other responses.
      *
      * @param eventId  The unique ID of the event.
      * @param userId   The ID of the user declining the invitation.
      * @param callback Callback to confirm the update and the result of the replacement draw.
      */
     public void declineInvitation(String eventId, String userId, StatusCallback callback) {
+        enqueueResponse(eventId, userId, "declined", callback);
+    }
 
-        updateUserStatus(eventId, userId, "declined", new StatusCallback() {
-            @Override
-            public void onSuccess(String message) {
-                // send notifcaton to rreplacement
-                drawReplacement(eventId, new ReplacementCallback() {
-                    @Override
-                    public void onSuccess(String replacementUserId) {
-                        callback.onSuccess("Declined and replacement drawn");
-                    }
-
-                    @Override
-                    public void onNoMoreEntrants(String msg) {
-                        callback.onSuccess("Declined (no replacement available)");
-                    }
+    /**
+     * Queues an accept/decline for the event. The first response for an event starts a short
+     * window, everything that arrives in that window is written in one transaction along with
+     * the replacement draws for the declines. Each caller still gets its own callback.
+     */
+    private void enqueueResponse(String eventId, String userId, String newStatus, StatusCallback callback) {
+        if (eventId == null || eventId.isEmpty() || userId == null || userId.isEmpty()) {
+            callback.onError("Invalid ID");
+            return;
+        }
 
-                    @Override
-                    public void onError(String error) {
-                        // User was successfully declined, even if replacement failed
-                        callback.onSuccess("Declined (replacement error: " + error + ")");
-                    }
-                });
+        boolean startWindow;
+        synchronized (PENDING_RESPONSES) {
+            List<PendingResponse> pending = PENDING_RESPONSES.get(eventId);
+            startWindow = pending == null;
+            if (startWindow) {
+                pending = new ArrayList<>();
+                PENDING_RESPONSES.put(eventId, pending);
             }
+            pending.add(new PendingResponse(userId, newStatus, callback));
+        }
 
-            @Override
-            public void onError(String error) {
-                callback.onError(error);
-            }
-        });
+        if (startWindow) {
+            responseScheduler.schedule(() -> flushResponses(eventId), RESPONSE_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
     }
+
     /**
-     * Helper method to update the user's status in the Firestore "selected" map and move them to
-     * the appropriate list (accepted or declined).
+     * Writes every queued response for the event in one transaction. Each response only changes
+     * the responder's selection document and the counters. Declines get replacements drawn in
+     * the same transaction.
      */
-    private void updateUserStatus(String eventId, String userId, String newStatus, StatusCallback callback) {
+    private void flushResponses(String eventId) {
+        List<PendingResponse> responses;
+        synchronized (PENDING_RESPONSES) {
+            responses = PENDING_RESPONSES.remove(eventId);
+        }
+        if (responses == null || responses.isEmpty()) {
+            return;
+        }
+
+        Log.d(TAG, "Writing " + responses.size() + " responses for event: " + eventId);
+        writeResponses(eventId, responses, false);
+    }
+
+    /**
+     * The transaction behind {@link #flushResponses}. If a responder has no selection document
+     * because the event's lottery is still in the old schema, the lottery is migrated and the
+     * responses are written again
+     * @param migrated true once the event's old lottery has been migrated, so it isn't tried twice
+     */
+    private void writeResponses(String eventId, List<PendingResponse> responses, boolean migrated) {
         DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
 
         db.runTransaction(transaction -> {
-                    DocumentSnapshot snapshot = transaction.get(eventRef);
-                    if (!snapshot.exists()) throw new RuntimeException("Event not found");
+                    // read each responder's own selection document, nobody else's
+                    Map<String, String> statuses = new HashMap<>();
+                    for (PendingResponse response : responses) {
+                        if (!statuses.containsKey(response.userId)) {
+                            DocumentSnapshot selection = transaction.get(
+                                    SelectionStore.selectionRef(db, eventId, response.userId));
+                            statuses.put(response.userId, selection.exists() ? selection.getString("status") : null);
+                        }
+                    }
+                    // only read the event when someone has no selection, it may be an old lottery
+                    if (!migrated && statuses.containsValue(null)
+                            && LegacyLottery.isLegacy(transaction.get(eventRef))) {
+                        throw new RuntimeException(LEGACY_LOTTERY);
+                    }
+
+                    // transactions can be retried, so results are worked out fresh each attempt
+                    String[] errors = new String[responses.size()];
+                    List<String> accepted = new ArrayList<>();
+                    List<String> declined = new ArrayList<>();
 
-                    Map<String, Object> selected = (Map<String, Object>) snapshot.get("selected");
-                    if (selected == null || !selected.containsKey(userId)) {
-                        throw new RuntimeException("User not in selected list");
+                    for (int i = 0; i < responses.size(); i++) {
+                        PendingResponse response = responses.get(i);
+                        String status = statuses.get(response.userId);
+                        if (status == null) {
+                            errors[i] = "User not in selected list";
+                            continue;
+                        }
+                        if (!SelectionStore.STATUS_PENDING.equals(status)) {
+                            errors[i] = "User already responded";
+                            continue;
+                        }
+
+                        // a second tap in the same window sees the first one
+                        statuses.put(response.userId, response.newStatus);
+                        if (SelectionStore.STATUS_ACCEPTED.equals(response.newStatus)) {
+                            accepted.add(response.userId);
+                        } else {
+                            declined.add(response.userId);
+                        }
                     }
 
-                    Map<String, Object> userStatusMap = (Map<String, Object>) selected.get(userId);
-                    String currentStatus = (String) userStatusMap.get("status");
+                    // the event and lottery are only needed to replace people who declined
+                    DocumentSnapshot snapshot = null;
+                    DocumentSnapshot lotterySnapshot = null;
+                    List<String> replacements = new ArrayList<>();
+                    if (!declined.isEmpty()) {
+                        snapshot = transaction.get(eventRef);
+                        if (!snapshot.exists()) throw new RuntimeException("Event not found");
+                        lotterySnapshot = transaction.get(lotteryRef);
+                        replacements = drawFromRetryPool(transaction, lotteryRef, lotterySnapshot, declined.size());
+                    }
 
-                    if (!"pending".equals(currentStatus)) {
-                        throw new RuntimeException("User already responded");
+                    String timestamp = String.valueOf(System.currentTimeMillis());
+                    for (String userId : accepted) {
+                        transaction.update(SelectionStore.selectionRef(db, eventId, userId),
+                                "status", SelectionStore.STATUS_ACCEPTED, "timestamp", timestamp);
+                    }
+                    for (String userId : declined) {
+                        transaction.update(SelectionStore.selectionRef(db, eventId, userId),
+                                "status", SelectionStore.STATUS_DECLINED, "timestamp", timestamp);
                     }
+                    SelectionStore.incrementCounters(transaction, SelectionStore.countersRef(db, eventId),
+                            -(accepted.size() + declined.size()), accepted.size(), declined.size(), 0);
+                    addPendingSelections(transaction, eventId, replacements, lotterySnapshot);
 
-                    // Update status in the map
-                    userStatusMap.put("status", newStatus);
-                    userStatusMap.put("timestamp", String.valueOf(System.currentTimeMillis()));
-                    transaction.update(eventRef, "selected." + userId, userStatusMap);
+                    return new ResponseBatch(errors, new ReplacementDraw(replacements, snapshot));
+                }).addOnSuccessListener(result -> finishResponses(eventId, responses, result))
+                .addOnFailureListener(e -> {
+                    if (!migrated && e.getMessage() != null && e.getMessage().contains(LEGACY_LOTTERY)) {
+                        migrateLegacyLottery(eventId)
+                                .addOnSuccessListener(done -> writeResponses(eventId, responses, true))
+                                .addOnFailureListener(error -> failResponses(responses, error));
+                        return;
+                    }
+                    failResponses(responses, e);
+                });
+    }
 
-                    // Add to specific list (accepted or declined)
-                    transaction.update(eventRef, newStatus, FieldValue.arrayUnion(userId));
+    private void failResponses(List<PendingResponse> responses, Exception e) {
+        for (PendingResponse response : responses) {
+            response.callback.onError(e.getMessage());
+        }
+    }
 
-                    return null;
-                }).addOnSuccessListener(result -> callback.onSuccess("Status updated to " + newStatus))
+    /**
+     * Moves the event's lottery out of the old schema if it's still in it, see {@link LegacyLottery}
+     * @return true if there was an old lottery to move
+     */
+    private Task<Boolean> migrateLegacyLottery(String eventId) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot event = transaction.get(eventRef);
+            DocumentSnapshot lottery = transaction.get(lotteryRef);
+            if (!LegacyLottery.isLegacy(event)) {
+                return false;
+            }
+            LegacyLottery.migrate(transaction, db, eventId, event, lottery);
+            Log.d(TAG, "Migrated old lottery for event: " + eventId);
+            return true;
+        });
+    }
+
+    /**
+     * Tells whether the event's lottery has been drawn. A lottery drawn before lotteries/{eventId}
+     * existed is migrated first, so the organizer sees it as drawn and isn't offered a redraw
+     */
+    public void checkLotteryDrawn(String eventId, DrawnCallback callback) {
+        db.collection(LOTTERIES_COLLECTION).document(eventId).get()
+                .addOnSuccessListener(lottery -> {
+                    if (isDrawn(lottery)) {
+                        callback.onResult(true);
+                        return;
+                    }
+                    migrateLegacyLottery(eventId)
+                            .addOnSuccessListener(callback::onResult)
+                            .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                })
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
+
+    /**
+     * Reports each queued response back to its caller and notifies the replacements
+     */
+    private void finishResponses(String eventId, List<PendingResponse> responses, ResponseBatch result) {
+        List<String> replacements = result.replacements.userIds;
+        if (!replacements.isEmpty()) {
+            notificationManager.sendReplacementNotifications(eventId, result.replacements.eventName,
+                    result.replacements.organizerName, replacements);
+        }
+
+        int declinesSeen = 0;
+        for (int i = 0; i < responses.size(); i++) {
+            PendingResponse response = responses.get(i);
+            if (result.errors[i] != null) {
+                response.callback.onError(result.errors[i]);
+            } else if ("accepted".equals(response.newStatus)) {
+                response.callback.onSuccess("Status updated to accepted");
+            } else if (declinesSeen++ < replacements.size()) {
+                response.callback.onSuccess("Declined and replacement drawn");
+            } else {
+                response.callback.onSuccess("Declined (no replacement available)");
+            }
+        }
+    }
+
     /**
      * Adds a user to the "retry" pool, indicating they wish to remain eligible for replacement draws.
+     * Finds the user's lottery position with one query on the order pages and records it on the
+     * lottery, so draws never have to search for them. Only pages from the lottery's draw count.
      *
      * @param eventId  The unique ID of the event.
      * @param userId   The ID of the user joining the retry list.
@@ -306,11 +864,191 @@ public class LotteryManager {
             callback.onError("Invalid ID");
             return;
         }
-        // retryEntrants is stored on the event document
-        db.collection("events").document(eventId)
-                .update("retryEntrants", FieldValue.arrayUnion(userId))
-                .addOnSuccessListener(a -> callback.onSuccess("Joined retry pool"))
-                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+
+        DocumentReference lotteryRef = db.collection(LOTTERIES_COLLECTION).document(eventId);
+
+        lotteryRef.get().addOnSuccessListener(lottery -> {
+            if (!isDrawn(lottery)) {
+                // may still be in the old schema, move it and try again
+                migrateLegacyLottery(eventId)
+                        .addOnSuccessListener(migrated -> {
+                            if (migrated) {
+                                joinRetryList(eventId, userId, callback);
+                            } else {
+                                callback.onError("Lottery has not been drawn");
+                            }
+                        })
+                        .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                return;
+            }
+
+            lotteryRef.collection(LotteryOrderReader.PAGES_COLLECTION)
+                    .whereArrayContains("entrants", userId)
+                    .get()
+                    .addOnSuccessListener(pages -> {
+                        // a draw that didn't finish can leave pages past the end of the current order
+                        DocumentSnapshot page = null;
+                        for (DocumentSnapshot candidate : pages.getDocuments()) {
+                            if (isFromDraw(candidate, lottery)) {
+                                page = candidate;
+                                break;
+                            }
+                        }
+                        if (page == null) {
+                            callback.onError("Not part of this lottery");
+                            return;
+                        }
+
+                        List<String> pageEntrants = (List<String>) page.get("entrants");
+                        Long start = page.getLong("start");
+                        int offset = pageEntrants != null ? pageEntrants.indexOf(userId) : -1;
+                        if (start == null || offset < 0) {
+                            callback.onError("Lottery page is missing data");
+                            return;
+                        }
+
+                        WriteBatch batch = db.batch();
+                        batch.update(lotteryRef, "retryPositions", FieldValue.arrayUnion(start + offset));
+                        // retryEntrants stays on the event for the organizer's lists
+                        batch.update(db.collection("events").document(eventId),
+                                "retryEntrants", FieldValue.arrayUnion(userId));
+                        batch.commit()
+                                .addOnSuccessListener(a -> callback.onSuccess("Joined retry pool"))
+                                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                    })
+                    .addOnFailureListener(e -> callback.onError(e.getMessage()));
+        }).addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Commits the batches one after another, then runs onSuccess
+     */
+    private void commitInOrder(List<WriteBatch> batches, int next, Runnable onSuccess,
+                               OnFailureListener onFailure) {
+        if (next >= batches.size()) {
+            onSuccess.run();
+            return;
+        }
+        batches.get(next).commit()
+                .addOnSuccessListener(aVoid -> commitInOrder(batches, next + 1, onSuccess, onFailure))
+                .addOnFailureListener(onFailure);
+    }
+
+    /**
+     * Reads the saved retry bitmap from a lottery snapshot
+     */
+    private ReplacementIndex loadReplacementIndex(DocumentSnapshot snapshot) {
+        Blob bitmap = snapshot.getBlob("retryBitmap");
+        Long foldedCount = snapshot.getLong("retryBitmapCount");
+        return ReplacementIndex.fromBytes(
+                bitmap != null ? bitmap.toBytes() : null,
+                foldedCount != null ? foldedCount.intValue() : 0);
+    }
+
+    /**
+     * Writes the retry bitmap back next to the rest of the lottery state
+     */
+    private void saveReplacementIndex(Transaction transaction, DocumentReference lotteryRef,
+                                      ReplacementIndex replacementIndex) {
+        transaction.update(lotteryRef, "retryBitmap", Blob.fromBytes(replacementIndex.toBytes()));
+        transaction.update(lotteryRef, "retryBitmapCount", replacementIndex.getFoldedCount());
+    }
+
+    /**
+     * Gets progress from the loss notification fan-out. Users whose batch failed get one more try.
+     */
+    private class LossNotificationTracker implements NotificationFanout.FanoutCallback {
+        private final String eventId;
+        private final String eventName;
+        private final String organizerName;
+        private final boolean retryFailures;
+
+        LossNotificationTracker(String eventId, String eventName, String organizerName, boolean retryFailures) {
+            this.eventId = eventId;
+            this.eventName = eventName;
+            this.organizerName = organizerName;
+            this.retryFailures = retryFailures;
+        }
+
+        @Override
+        public void onProgress(int sent, int total) {
+            Log.d(TAG, "Loss notifications for " + eventId + ": " + sent + "/" + total);
+        }
+
+        @Override
+        public void onComplete(int sent, List<String> failedUserIds) {
+            if (failedUserIds.isEmpty()) {
+                Log.d(TAG, "All " + sent + " loss notifications sent for " + eventId);
+                return;
+            }
+            Log.w(TAG, failedUserIds.size() + " loss notifications failed for " + eventId);
+            if (retryFailures) {
+                notificationManager.notifyAllLosers(eventId, eventName, organizerName, failedUserIds,
+                        new LossNotificationTracker(eventId, eventName, organizerName, false));
+            }
+        }
+    }
+
+    /**
+     * Result of a bulk draw, carried out of the transaction
+     */
+    private static class ReplacementDraw {
+        final List<String> userIds;
+        final String eventName;
+        final String organizerName;
+
+        ReplacementDraw(List<String> userIds, DocumentSnapshot snapshot) {
+            this.userIds = userIds;
+            String name = snapshot != null ? snapshot.getString("eventName") : null;
+            this.eventName = name != null ? name : "Event";
+            this.organizerName = snapshot != null ? snapshot.getString("organizerName") : null;
+        }
+    }
+
+    /**
+     * One accept/decline waiting in the response queue
+     */
+    private static class PendingResponse {
+        final String userId;
+        final String newStatus;
+        final StatusCallback callback;
+
+        PendingResponse(String userId, String newStatus, StatusCallback callback) {
+            this.userId = userId;
+            this.newStatus = newStatus;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Result of writing a group of queued responses, errors[i] is null if response i worked
+     */
+    private static class ResponseBatch {
+        final String[] errors;
+        final ReplacementDraw replacements;
+
+        ResponseBatch(String[] errors, ReplacementDraw replacements) {
+            this.errors = errors;
+            this.replacements = replacements;
+        }
+    }
+
+    /**
+     * Hands out WriteBatches, starting a new one every time the current one is full
+     */
+    private class BatchChain {
+        final List<WriteBatch> batches = new ArrayList<>();
+        private int writesInBatch = MAX_WRITES_PER_BATCH;
+
+        /** @return the batch the next write should go into */
+        WriteBatch next() {
+            if (writesInBatch >= MAX_WRITES_PER_BATCH) {
+                batches.add(db.batch());
+                writesInBatch = 0;
+            }
+            writesInBatch++;
+            return batches.get(batches.size() - 1);
+        }
     }
 
     // Interfaces
@@ -325,8 +1063,19 @@ public class LotteryManager {
         void onError(String error);
     }
 
+    public interface BulkReplacementCallback {
+        void onSuccess(List<String> replacementUserIds);
+        void onNoMoreEntrants(String message);
+        void onError(String error);
+    }
+
     public interface StatusCallback {
         void onSuccess(String message);
         void onError(String error);
     }
+
+    public interface DrawnCallback {
+        void onResult(boolean drawn);
+        void onError(String error);
+    }
 }
\ No newline at end of file
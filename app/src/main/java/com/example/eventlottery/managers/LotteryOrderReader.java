@@ -0,0 +1,167 @@
+package com.example.eventlottery.managers;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the lottery order out of its page documents.
+ * The order is stored as lotteries/{eventId}/orderPages/{page}, each page holding PAGE_SIZE
+ * entrants, so looking up a position only reads the one page it is on.
+ * A reader lives for one transaction and reads each page at most once.
+ */
+public class LotteryOrderReader {
+
+    /** Entrants per page document, keeps each page far below the 1 MiB document limit */
+    public static final int PAGE_SIZE = 1000;
+    /** Subcollection of lotteries/{eventId} holding the pages */
+    public static final String PAGES_COLLECTION = "orderPages";
+
+    private final Transaction transaction;
+    private final DocumentReference lotteryRef;
+    private final int pageSize;
+    private final Map<Integer, List<String>> loadedPages = new HashMap<>();
+
+    /**
+     * Creates a reader for one transaction
+     * @param transaction transaction to read pages in
+     * @param lotteryRef the lotteries/{eventId} document
+     * @param pageSize page size the lottery was written with
+     */
+    public LotteryOrderReader(Transaction transaction, DocumentReference lotteryRef, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        this.transaction = transaction;
+        this.lotteryRef = lotteryRef;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Gets the entrant at a position in the lottery order. Remember firestore wants every read
+     * in a transaction done before the first write.
+     * @param position position in the lottery order
+     * @return entrant id
+     * @throws FirebaseFirestoreException if the page can't be read
+     */
+    public String get(int position) throws FirebaseFirestoreException {
+        int page = pageOf(position, pageSize);
+        List<String> entrants = loadedPages.get(page);
+        if (entrants == null) {
+            DocumentSnapshot pageSnapshot = transaction.get(pageRef(lotteryRef, page));
+            entrants = (List<String>) pageSnapshot.get("entrants");
+            if (entrants == null) {
+                throw new RuntimeException("Lottery page " + page + " missing");
+            }
+            loadedPages.put(page, entrants);
+        }
+
+        int offset = position - page * pageSize;
+        if (offset < 0 || offset >= entrants.size()) {
+            throw new RuntimeException("Lottery position " + position + " out of range");
+        }
+        return entrants.get(offset);
+    }
+
+    /**
+     * @param position position in the lottery order
+     * @param pageSize entrants per page
+     * @return the page the position is stored on
+     */
+    public static int pageOf(int position, int pageSize) {
+        return position / pageSize;
+    }
+
+    /**
+     * @param lotteryRef the lotteries/{eventId} document
+     * @param page page number
+     * @return the page document
+     */
+    public static DocumentReference pageRef(DocumentReference lotteryRef, int page) {
+        return lotteryRef.collection(PAGES_COLLECTION).document(String.valueOf(page));
+    }
+
+    /**
+     * Builds the data for one page document
+     * @param lotteryOrder full lottery order
+     * @param page page number
+     * @param pageSize entrants per page
+     * @return page fields: page, start and entrants
+     */
+    public static Map<String, Object> pageData(List<String> lotteryOrder, int page, int pageSize) {
+        return pageData(lotteryOrder, null, page, pageSize);
+    }
+
+    /**
+     * Builds the data for one page document of a weighted lottery
+     * @param lotteryOrder full lottery order
+     * @param weights weight of each entrant in lotteryOrder, null for a uniform lottery
+     * @param page page number
+     * @param pageSize entrants per page
+     * @return page fields: page, start, entrants and weights (if there are any)
+     */
+    public static Map<String, Object> pageData(List<String> lotteryOrder, List<Double> weights,
+                                               int page, int pageSize) {
+        int start = page * pageSize;
+        int end = Math.min(start + pageSize, lotteryOrder.size());
+        return pageData(page, start, new ArrayList<>(lotteryOrder.subList(start, end)),
+                weights != null ? new ArrayList<>(weights.subList(start, end)) : null);
+    }
+
+    /**
+     * Builds the data for one page document out of a page that was drawn on its own.
+     * The lists go into the document as they are, they aren't copied
+     * @param page page number
+     * @param start position of the page's first entrant in the lottery order
+     * @param entrants the page's entrants
+     * @param weights the page's weights, null for a uniform lottery
+     * @return page fields: page, start, entrants and weights (if there are any)
+     */
+    public static Map<String, Object> pageData(int page, int start, List<String> entrants, List<Double> weights) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("page", page);
+        data.put("start", start);
+        data.put("entrants", entrants);
+        if (weights != null) {
+            data.put("weights", weights);
+        }
+        return data;
+    }
+
+    /**
+     * The lottery order as one list, read through its pages without copying them
+     * @param pages every page, each full except the last
+     * @param pageSize entrants per page
+     * @return read only view of the order
+     */
+    public static List<String> joinPages(List<List<String>> pages, int pageSize) {
+        int size = pages.isEmpty() ? 0 : (pages.size() - 1) * pageSize + pages.get(pages.size() - 1).size();
+        return new AbstractList<String>() {
+            @Override
+            public String get(int position) {
+                return pages.get(pageOf(position, pageSize)).get(position % pageSize);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @param entrantCount number of entrants in the lottery
+     * @param pageSize entrants per page
+     * @return number of pages needed
+     */
+    public static int pageCount(int entrantCount, int pageSize) {
+        return (entrantCount + pageSize - 1) / pageSize;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which events the signed in user is on the waitlist for, from the waitingLists map on their
+ * user document. The document is read once by a snapshot listener that then keeps the set up to
+ * date, so membership checks on any screen don't cost a read.
+ * Joins and leaves show up straight away: they are kept as pending until the write finishes,
+ * then the listener brings the confirmed value.
+ */
+public class MembershipCache {
+    private static final String TAG = "MembershipCache";
+    private static MembershipCache instance;
+
+    private static final String WAITING_LISTS_FIELD = "waitingLists";
+
+    /**
+     * Told whenever the set of joined events changes
+     */
+    public interface Listener {
+        void onMembershipChanged();
+    }
+
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+
+    private String userId;
+    private ListenerRegistration registration;
+    private boolean loaded;
+    // from the user document
+    private final Set<String> confirmed = new HashSet<>();
+    // optimistic changes still being written
+    private final Set<String> pendingJoins = new HashSet<>();
+    private final Set<String> pendingLeaves = new HashSet<>();
+
+    private final List<Runnable> waitingForLoad = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public static synchronized MembershipCache getInstance() {
+        if (instance == null) {
+            instance = new MembershipCache(FirebaseFirestore.getInstance(), FirebaseAuth.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a cache
+     * @param db firestore instance
+     * @param auth used to find the signed in user
+     */
+    public MembershipCache(FirebaseFirestore db, FirebaseAuth auth) {
+        this.db = db;
+        this.auth = auth;
+    }
+
+    /**
+     * Makes sure the cache is listening to the signed in user's document, switching over if a
+     * different user signed in since it started
+     * @return false if nobody is signed in
+     */
+    public synchronized boolean ensureStarted() {
+        FirebaseUser user = auth.getCurrentUser();
+        String currentUserId = user != null ? user.getUid() : null;
+        if (currentUserId != null && currentUserId.equals(userId)) {
+            return true;
+        }
+
+        stop();
+        if (currentUserId == null) {
+            return false;
+        }
+
+        userId = currentUserId;
+        registration = db.collection("users").document(currentUserId)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Error listening to waitlists", error);
+                        return;
+                    }
+                    if (snapshot != null) {
+                        onUserDocument(currentUserId, snapshot);
+                    }
+                });
+        return true;
+    }
+
+    /**
+     * Stops listening and forgets everything, for signing out
+     */
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        userId = null;
+        loaded = false;
+        confirmed.clear();
+        pendingJoins.clear();
+        pendingLeaves.clear();
+        waitingForLoad.clear();
+    }
+
+    /** @return true once the user document has been read */
+    public synchronized boolean isLoaded() {
+        ensureStarted();
+        return loaded;
+    }
+
+    /**
+     * @param eventId the event
+     * @return true if the user is on its waitlist, or is joining it right now
+     */
+    public synchronized boolean contains(String eventId) {
+        ensureStarted();
+        if (pendingLeaves.contains(eventId)) return false;
+        return pendingJoins.contains(eventId) || confirmed.contains(eventId);
+    }
+
+    /** @return copy of every event the user is on the waitlist for */
+    public synchronized Set<String> getEventIds() {
+        ensureStarted();
+        Set<String> eventIds = new HashSet<>(confirmed);
+        eventIds.addAll(pendingJoins);
+        eventIds.removeAll(pendingLeaves);
+        return eventIds;
+    }
+
+    /**
+     * Runs the callback once the user document has been read, right away if it already has.
+     * Nothing runs if nobody is signed in
+     */
+    public void whenLoaded(Runnable callback) {
+        synchronized (this) {
+            if (!ensureStarted()) {
+                return;
+            }
+            if (!loaded) {
+                waitingForLoad.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Shows the user as joined while the join is written */
+    public void markJoining(String eventId) {
+        synchronized (this) {
+            pendingLeaves.remove(eventId);
+            pendingJoins.add(eventId);
+        }
+        notifyListeners();
+    }
+
+    /** Shows the user as gone while the leave is written */
+    public void markLeaving(String eventId) {
+        synchronized (this) {
+            pendingJoins.remove(eventId);
+            pendingLeaves.add(eventId);
+        }
+        notifyListeners();
+    }
+
+    /**
+     * The write finished, or turned out not to be needed
+     * @param eventId the event
+     * @param joined whether the user is on the waitlist now
+     */
+    public void settle(String eventId, boolean joined) {
+        synchronized (this) {
+            pendingJoins.remove(eventId);
+            pendingLeaves.remove(eventId);
+            // the listener will say the same thing shortly, this just avoids a flicker
+            if (joined) {
+                confirmed.add(eventId);
+            } else {
+                confirmed.remove(eventId);
+            }
+        }
+        notifyListeners();
+    }
+
+    /**
+     * The write failed, drop the optimistic change
+     */
+    public void revert(String eventId) {
+        synchronized (this) {
+            pendingJoins.remove(eventId);
+            pendingLeaves.remove(eventId);
+        }
+        notifyListeners();
+    }
+
+    private void onUserDocument(String documentUserId, DocumentSnapshot snapshot) {
+        List<Runnable> ready;
+        synchronized (this) {
+            if (!documentUserId.equals(userId)) {
+                return; // a late snapshot from before a user switch
+            }
+            confirmed.clear();
+            confirmed.addAll(eventIds(snapshot));
+            loaded = true;
+            ready = new ArrayList<>(waitingForLoad);
+            waitingForLoad.clear();
+        }
+        for (Runnable callback : ready) {
+            callback.run();
+        }
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        List<Listener> current;
+        synchronized (this) {
+            current = new ArrayList<>(listeners);
+        }
+        for (Listener listener : current) {
+            listener.onMembershipChanged();
+        }
+    }
+
+    /**
+     * Reads the event IDs out of a user document. Older versions wrote "waitingLists.{eventId}"
+     * as a top level field name instead of a key in the map, those still count.
+     * @param userDocument the user's document
+     * @return IDs of the events the user is waitlisted for
+     */
+    public static Set<String> eventIds(DocumentSnapshot userDocument) {
+        if (!userDocument.exists()) {
+            return Collections.emptySet();
+        }
+        Set<String> eventIds = new HashSet<>();
+        Object waitingLists = userDocument.get(WAITING_LISTS_FIELD);
+        if (waitingLists instanceof Map) {
+            for (Object key : ((Map<?, ?>) waitingLists).keySet()) {
+                eventIds.add(String.valueOf(key));
+            }
+        }
+        Map<String, Object> data = userDocument.getData();
+        if (data != null) {
+            String legacyPrefix = WAITING_LISTS_FIELD + ".";
+            for (String field : data.keySet()) {
+                if (field.startsWith(legacyPrefix)) {
+                    eventIds.add(field.substring(legacyPrefix.length()));
+                }
+            }
+        }
+        return eventIds;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the same notification to a lot of users at once.
+ * Users are split into WriteBatch chunks (firestore allows 500 writes per batch) and a few
+ * chunks are committed at the same time, instead of one add() per user.
+ */
+public class NotificationFanout {
+    private static final String TAG = "NotificationFanout";
+
+    /** Firestore limit on writes in one batch */
+    public static final int MAX_BATCH_SIZE = 500;
+    /** How many batches can be committing at once */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 3;
+
+    private final FirebaseFirestore db;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    /**
+     * Creates a fan-out with the default batch size and concurrency
+     * @param db firestore instance
+     */
+    public NotificationFanout(FirebaseFirestore db) {
+        this(db, MAX_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Creates a fan-out
+     * @param db firestore instance
+     * @param batchSize users per batch, capped at 500
+     * @param maxInFlight how many batches may commit at the same time
+     */
+    public NotificationFanout(FirebaseFirestore db, int batchSize, int maxInFlight) {
+        if (batchSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Batch size and concurrency must be greater than 0");
+        }
+        this.db = db;
+        this.batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Saves the notification under notifications/{userId}/messages for every user
+     * @param userIds users to notify
+     * @param notification notification data, copied for each user
+     * @param callback progress and result, may be null
+     */
+    public void send(List<String> userIds, Map<String, Object> notification, FanoutCallback callback) {
+        if (userIds == null || userIds.isEmpty()) {
+            if (callback != null) callback.onComplete(0, Collections.emptyList());
+            return;
+        }
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < userIds.size(); start += batchSize) {
+            chunks.add(userIds.subList(start, Math.min(start + batchSize, userIds.size())));
+        }
+
+        FanoutRun run = new FanoutRun(chunks, userIds.size(), notification, callback);
+        int initial = Math.min(maxInFlight, chunks.size());
+        for (int i = 0; i < initial; i++) {
+            run.commitNext();
+        }
+    }
+
+    /**
+     * State for one send() call, keeps at most maxInFlight batches committing
+     */
+    private class FanoutRun {
+        private final List<List<String>> chunks;
+        private final int total;
+        private final Map<String, Object> notification;
+        private final FanoutCallback callback;
+
+        private final AtomicInteger nextChunk = new AtomicInteger(0);
+        private final AtomicInteger finishedChunks = new AtomicInteger(0);
+        private final AtomicInteger sent = new AtomicInteger(0);
+        private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+        FanoutRun(List<List<String>> chunks, int total, Map<String, Object> notification,
+                  FanoutCallback callback) {
+            this.chunks = chunks;
+            this.total = total;
+            this.notification = notification;
+            this.callback = callback;
+        }
+
+        void commitNext() {
+            int chunkIndex = nextChunk.getAndIncrement();
+            if (chunkIndex >= chunks.size()) {
+                return;
+            }
+            List<String> chunk = chunks.get(chunkIndex);
+
+            WriteBatch batch = db.batch();
+            for (String userId : chunk) {
+                DocumentReference messageRef = db.collection("notifications")
+                        .document(userId)
+                        .collection("messages")
+                        .document();
+                batch.set(messageRef, new HashMap<>(notification));
+            }
+
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        int sentSoFar = sent.addAndGet(chunk.size());
+                        if (callback != null) callback.onProgress(sentSoFar, total);
+                        chunkDone();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Notification batch " + chunkIndex + " failed", e);
+                        failed.addAll(chunk);
+                        chunkDone();
+                    });
+        }
+
+        private void chunkDone() {
+            if (finishedChunks.incrementAndGet() == chunks.size()) {
+                Log.d(TAG, "Fan-out finished: " + sent.get() + "/" + total + " sent");
+                if (callback != null) callback.onComplete(sent.get(), new ArrayList<>(failed));
+            } else {
+                commitNext();
+            }
+        }
+    }
+
+    /**
+     * Progress and result of a fan-out
+     */
+    public interface FanoutCallback {
+        /**
+         * Called after each batch commits
+         * @param sent notifications written so far
+         * @param total notifications requested
+         */
+        void onProgress(int sent, int total);
+
+        /**
+         * Called once every batch has finished
+         * @param sent notifications written
+         * @param failedUserIds users whose batch failed, empty if everything worked
+         */
+        void onComplete(int sent, List<String> failedUserIds);
+    }
+}
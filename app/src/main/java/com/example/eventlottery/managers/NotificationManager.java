@@ -4,6 +4,7 @@ import android.util.Log;
 import com.google.firebase.Firebase;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,7 @@ import java.util.Map;
 public class NotificationManager {
     private static final String TAG = "NotificationManager";
     private final FirebaseFirestore db;
+    private final NotificationFanout fanout;
 
     // we will send the replacemnts the same messge as acceptors but to keep track and for sake of redundancy we will make sure we label them as people who were sent message after rejection
     public static final String TYPE_WIN = "win";
@@ -24,6 +26,7 @@ public class NotificationManager {
 
     public NotificationManager() {
         this.db = FirebaseFirestore.getInstance();
+        this.fanout = new NotificationFanout(db);
     }
 
     /**
@@ -213,9 +216,44 @@ public class NotificationManager {
                 });
     }
 
+    /**
+     * sends the replacement notification to several people drawn together, written as one batch
+     * instead of one event read and add() per person
+     * @param eventId
+     * @param eventName name shown in the message, "Event" if null
+     * @param organizerName organizer shown on the notification
+     * @param userIds
+     */
+    public void sendReplacementNotifications(String eventId, String eventName, String organizerName,
+                                             List<String> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        if (eventName == null) {
+            eventName = "Event";
+        }
+
+        Log.d(TAG, "Sending replacement notifications to " + userIds.size() + " users for event: " + eventName);
+
+        // noti is same as win notificaiont
+        String message = "Congratulations! You've been selected for \"" + eventName + "\". " +
+                "Please accept or decline your invitation.";
+
+        Map<String, Object> notification = createNotificationData(
+                TYPE_REPLACEMENT,
+                eventId,
+                eventName,
+                message,
+                false,  // responded = false (needs response)
+                organizerName
+        );
+
+        fanout.send(userIds, notification, null);
+    }
+
     /**
      * sends the inital notificaiton to all people that were not selected in the inital lottery
-     * sends as batch
+     * reads the event once and then sends as batches
      * @param eventId
      * @param loserIds
      */
@@ -226,32 +264,58 @@ public class NotificationManager {
             return;
         }
 
-        Log.d(TAG, "Notifying " + loserIds.size() + " losers for event: " + eventId);
-
-        // gets the event name
+        // gets the event name and organizer once for everyone
         db.collection("events").document(eventId).get()
                 .addOnSuccessListener(documentSnapshot -> {
-                    String eventName = documentSnapshot.getString("name");
-                    if (eventName == null) {
-                        eventName = "Event";
-                    }
-
-                    // Send loss notification to each loser
-                    for (String loserId : loserIds) {
-                        sendLossNotification(loserId, eventId, eventName);
-                    }
-
-                    Log.d(TAG, "All loss notifications queued successfully");
+                    String eventName = documentSnapshot.getString("eventName");
+                    String organizerName = documentSnapshot.getString("organizerName");
+                    notifyAllLosers(eventId, eventName, organizerName, loserIds, null);
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error fetching event name for loss notifications", e);
                     // Still try to send notifications with generic event name
-                    for (String loserId : loserIds) {
-                        sendLossNotification(loserId, eventId, "Event");
-                    }
+                    notifyAllLosers(eventId, null, null, loserIds, null);
                 });
     }
 
+    /**
+     * sends the loss notification to every loser when the caller already has the event info,
+     * so nothing is read from the event again. Writes go out in batches of up to 500.
+     * @param eventId
+     * @param eventName name shown in the message, "Event" if null
+     * @param organizerName organizer shown on the notification
+     * @param loserIds
+     * @param callback progress and failed users, may be null
+     */
+    public void notifyAllLosers(String eventId, String eventName, String organizerName,
+                                List<String> loserIds, NotificationFanout.FanoutCallback callback) {
+        if (loserIds == null || loserIds.isEmpty()) {
+            Log.d(TAG, "No losers to notify for event: " + eventId);
+            if (callback != null) callback.onComplete(0, Collections.emptyList());
+            return;
+        }
+
+        if (eventName == null) {
+            eventName = "Event";
+        }
+
+        Log.d(TAG, "Notifying " + loserIds.size() + " losers for event: " + eventId);
+
+        String message = "Unfortunately, you were not selected for \"" + eventName + "\". " +
+                "You can join the retry pool for a chance to be selected if spots open up.";
+
+        Map<String, Object> notification = createNotificationData(
+                TYPE_LOSS,
+                eventId,
+                eventName,
+                message,
+                false,
+                organizerName
+        );
+
+        fanout.send(loserIds, notification, callback);
+    }
+
     /**
      * help method for creatingnthe data strucutre of the noticaiton section in db
      * @param type
@@ -0,0 +1,101 @@
+package com.example.eventlottery.managers;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tracks which lottery positions belong to people in the retry pool, as a bitset lined up with
+ * the lottery order. Finding the next replacement is a nextSetBit call instead of a list scan.
+ * The bitset is saved with the lottery (as bytes) together with how many retry positions have
+ * already been folded in, so only people who joined since the last draw need adding.
+ */
+public class ReplacementIndex {
+
+    private final BitSet eligible;
+    private int foldedCount;
+
+    /**
+     * Creates an empty index
+     */
+    public ReplacementIndex() {
+        this(new BitSet(), 0);
+    }
+
+    private ReplacementIndex(BitSet eligible, int foldedCount) {
+        this.eligible = eligible;
+        this.foldedCount = foldedCount;
+    }
+
+    /**
+     * Restores an index that was saved with {@link #toBytes()}
+     * @param bytes saved bitset, null means nothing saved yet
+     * @param foldedCount how many retry positions the saved bitset already covers
+     * @return the restored index
+     */
+    public static ReplacementIndex fromBytes(byte[] bytes, int foldedCount) {
+        if (bytes == null) {
+            return new ReplacementIndex();
+        }
+        return new ReplacementIndex(BitSet.valueOf(bytes), Math.max(0, foldedCount));
+    }
+
+    /**
+     * Adds any retry positions that are not in the index yet. retryPositions only grows at the end
+     * (arrayUnion appends), so everything past foldedCount is new.
+     * @param retryPositions lottery positions of everyone in the retry pool
+     * @param fromPosition positions before this have already been drawn and are skipped
+     */
+    public void fold(List<? extends Number> retryPositions, int fromPosition) {
+        if (retryPositions == null || retryPositions.size() <= foldedCount) {
+            return;
+        }
+
+        for (int i = foldedCount; i < retryPositions.size(); i++) {
+            int position = retryPositions.get(i).intValue();
+            if (position >= fromPosition) {
+                eligible.set(position);
+            }
+        }
+        foldedCount = retryPositions.size();
+    }
+
+    /**
+     * Marks a single lottery position as eligible for replacement
+     * @param position position in lotteryOrder
+     */
+    public void markEligible(int position) {
+        eligible.set(position);
+    }
+
+    /**
+     * Finds the next eligible position at or after fromPosition
+     * @param fromPosition where to start looking
+     * @return the position, or -1 if there are no more eligible entrants
+     */
+    public int nextEligible(int fromPosition) {
+        return eligible.nextSetBit(Math.max(0, fromPosition));
+    }
+
+    /**
+     * Removes a position once it has been drawn
+     * @param position position in lotteryOrder
+     */
+    public void consume(int position) {
+        eligible.clear(position);
+    }
+
+    /** @return number of positions still eligible */
+    public int eligibleCount() {
+        return eligible.cardinality();
+    }
+
+    /** @return how many retry positions are already covered by the index */
+    public int getFoldedCount() {
+        return foldedCount;
+    }
+
+    /** @return the bitset as bytes for saving */
+    public byte[] toBytes() {
+        return eligible.toByteArray();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.eventlottery.managers;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where lottery winners and their responses are stored.
+ * Every selected entrant has their own document at lotteries/{eventId}/selections/{userId},
+ * so responses from different people never touch the same document. Totals per status are
+ * kept in lotteries/{eventId}/counters/selections and only ever changed with increments.
+ */
+public class SelectionStore {
+
+    public static final String SELECTIONS_COLLECTION = "selections";
+    public static final String COUNTERS_COLLECTION = "counters";
+    public static final String COUNTERS_DOCUMENT = "selections";
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_ACCEPTED = "accepted";
+    public static final String STATUS_DECLINED = "declined";
+    public static final String STATUS_EXPIRED = "expired";
+
+    /** How long a winner has to respond before the invite can be expired */
+    public static final long RESPONSE_WINDOW_MS = TimeUnit.DAYS.toMillis(2);
+
+    private SelectionStore() { }
+
+    /**
+     * @return the selection document for one entrant
+     */
+    public static DocumentReference selectionRef(FirebaseFirestore db, String eventId, String userId) {
+        return lotteryRef(db, eventId).collection(SELECTIONS_COLLECTION).document(userId);
+    }
+
+    /**
+     * @return the document holding the totals per status for the event
+     */
+    public static DocumentReference countersRef(FirebaseFirestore db, String eventId) {
+        return lotteryRef(db, eventId).collection(COUNTERS_COLLECTION).document(COUNTERS_DOCUMENT);
+    }
+
+    /**
+     * Builds a selection document. eventId and userId are saved too so a user's selections
+     * can be found across events with a collection group query.
+     */
+    public static Map<String, Object> selectionData(String eventId, String userId, String status, String timestamp) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventId", eventId);
+        data.put("userId", userId);
+        data.put("status", status);
+        data.put("timestamp", timestamp);
+        return data;
+    }
+
+    /**
+     * Builds a pending selection with a numeric deadline, so overdue invites can be found with
+     * one range query
+     */
+    public static Map<String, Object> pendingSelectionData(String eventId, String userId, long now) {
+        Map<String, Object> data = selectionData(eventId, userId, STATUS_PENDING, String.valueOf(now));
+        data.put("deadline", now + RESPONSE_WINDOW_MS);
+        return data;
+    }
+
+    /**
+     * Same as {@link #pendingSelectionData(String, String, long)}, tagged with the lottery draw
+     * it came from so leftovers from a draw that didn't finish can be told apart
+     * @param drawId the lottery's draw ID, null for lotteries saved without one
+     */
+    public static Map<String, Object> pendingSelectionData(String eventId, String userId, long now, String drawId) {
+        Map<String, Object> data = pendingSelectionData(eventId, userId, now);
+        if (drawId != null) {
+            data.put(LotteryManager.DRAW_ID_FIELD, drawId);
+        }
+        return data;
+    }
+
+    /**
+     * Sets up the counters when the lottery is drawn
+     */
+    public static void initCounters(WriteBatch batch, DocumentReference countersRef, int pending) {
+        Map<String, Object> counters = new HashMap<>();
+        counters.put(STATUS_PENDING, pending);
+        counters.put(STATUS_ACCEPTED, 0);
+        counters.put(STATUS_DECLINED, 0);
+        counters.put(STATUS_EXPIRED, 0);
+        batch.set(countersRef, counters);
+    }
+
+    /**
+     * Changes the counters by the given amounts. Increments are written without reading the
+     * counters first, so this does not make the transaction depend on other responses.
+     */
+    public static void incrementCounters(Transaction transaction, DocumentReference countersRef,
+                                         int pendingDelta, int acceptedDelta, int declinedDelta,
+                                         int expiredDelta) {
+        Map<String, Object> changes = new HashMap<>();
+        if (pendingDelta != 0) changes.put(STATUS_PENDING, FieldValue.increment(pendingDelta));
+        if (acceptedDelta != 0) changes.put(STATUS_ACCEPTED, FieldValue.increment(acceptedDelta));
+        if (declinedDelta != 0) changes.put(STATUS_DECLINED, FieldValue.increment(declinedDelta));
+        if (expiredDelta != 0) changes.put(STATUS_EXPIRED, FieldValue.increment(expiredDelta));
+        if (!changes.isEmpty()) {
+            transaction.set(countersRef, changes, SetOptions.merge());
+        }
+    }
+
+    /**
+     * Reads a counter, 0 if it was never set
+     */
+    public static int getCount(DocumentSnapshot counters, String status) {
+        Long count = counters.getLong(status);
+        return count != null ? count.intValue() : 0;
+    }
+
+    /**
+     * @return every selection for the event
+     */
+    public static Query forEvent(FirebaseFirestore db, String eventId) {
+        return lotteryRef(db, eventId).collection(SELECTIONS_COLLECTION);
+    }
+
+    /**
+     * @return every selection for the event with the given status
+     */
+    public static Query byStatus(FirebaseFirestore db, String eventId, String status) {
+        return lotteryRef(db, eventId).collection(SELECTIONS_COLLECTION).whereEqualTo("status", status);
+    }
+
+    /**
+     * Every selection the user has, across all events.
+     * Needs the collection group index on selections.userId.
+     */
+    public static Query forUser(FirebaseFirestore db, String userId) {
+        return db.collectionGroup(SELECTIONS_COLLECTION).whereEqualTo("userId", userId);
+    }
+
+    /**
+     * Needs the collection group composite index on selections (status, deadline).
+     * @return pending selections across all events whose deadline is at or before the given time,
+     * soonest first
+     */
+    public static Query pendingDueBefore(FirebaseFirestore db, long time) {
+        return db.collectionGroup(SELECTIONS_COLLECTION)
+                .whereEqualTo("status", STATUS_PENDING)
+                .whereLessThanOrEqualTo("deadline", time)
+                .orderBy("deadline");
+    }
+
+    /**
+     * @return user IDs from a selections query
+     */
+    public static List<String> userIds(QuerySnapshot selections) {
+        List<String> userIds = new ArrayList<>();
+        for (DocumentSnapshot doc : selections.getDocuments()) {
+            userIds.add(doc.getId());
+        }
+        return userIds;
+    }
+
+    /**
+     * @return event ID to status, from a {@link #forUser} query
+     */
+    public static Map<String, String> statusByEvent(QuerySnapshot selections) {
+        Map<String, String> statuses = new HashMap<>();
+        for (DocumentSnapshot doc : selections.getDocuments()) {
+            String eventId = doc.getString("eventId");
+            if (eventId != null) {
+                statuses.put(eventId, doc.getString("status"));
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * @param statuses from {@link #statusByEvent}
+     * @param event the event document
+     * @param userId the user the statuses are for
+     * @return the user's status for the event, from the event's old selected map if its lottery
+     * hasn't been migrated yet. null if they weren't drawn
+     */
+    public static String statusFor(Map<String, String> statuses, DocumentSnapshot event, String userId) {
+        String status = statuses.get(event.getId());
+        return status != null ? status : LegacyLottery.status(event, userId);
+    }
+
+    private static DocumentReference lotteryRef(FirebaseFirestore db, String eventId) {
+        return db.collection(LotteryManager.LOTTERIES_COLLECTION).document(eventId);
+    }
+}
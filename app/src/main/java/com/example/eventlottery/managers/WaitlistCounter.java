@@ -0,0 +1,251 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waitlist size for an event, split over N shard documents in events/{eventId}/waitlistCountShards.
+ * Joins and leaves each bump one random shard, so a popular event opening doesn't send every
+ * write to the event document. The exact count is the sum of the shards. Lists that only need
+ * a rough number read waitlistCount on the event document, which is rolled up from the shards
+ * every ROLLUP_INTERVAL_MS for events this device changed.
+ * Events from before the count was sharded only have waitlistCount and no SHARD_COUNT_FIELD.
+ * The first transaction that changes such an event's count moves waitlistCount into shard 0
+ * and sets SHARD_COUNT_FIELD, see {@link #readLegacyCount} and {@link #migrate}.
+ */
+public class WaitlistCounter {
+    private static final String TAG = "WaitlistCounter";
+    private static WaitlistCounter instance;
+
+    public static final String SHARDS_COLLECTION = "waitlistCountShards";
+    /** Event field with the number of shards, events without it haven't been migrated and use DEFAULT_SHARDS */
+    public static final String SHARD_COUNT_FIELD = "waitlistShards";
+    /** Event field the shards are rolled up into */
+    public static final String COUNT_FIELD = "waitlistCount";
+    public static final int DEFAULT_SHARDS = 10;
+    public static final long ROLLUP_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final FirebaseFirestore db;
+    // events joined or left on this device since their last rollup
+    private final Set<String> dirtyEvents = new HashSet<>();
+    private ScheduledExecutorService scheduler;
+
+    public static synchronized WaitlistCounter getInstance() {
+        if (instance == null) {
+            instance = new WaitlistCounter(FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a counter
+     * @param db firestore instance
+     */
+    public WaitlistCounter(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * @param event the event document
+     * @return how many shards the event's count is split over
+     */
+    public static int shardCount(DocumentSnapshot event) {
+        Long shards = event.getLong(SHARD_COUNT_FIELD);
+        return shards != null && shards > 0 ? shards.intValue() : DEFAULT_SHARDS;
+    }
+
+    public static DocumentReference shardRef(FirebaseFirestore db, String eventId, int shard) {
+        return db.collection("events").document(eventId)
+                .collection(SHARDS_COLLECTION).document(String.valueOf(shard));
+    }
+
+    /**
+     * @param event the event document
+     * @return true if the event's count hasn't been moved into the shards yet
+     */
+    public static boolean needsMigration(DocumentSnapshot event) {
+        return event.getLong(SHARD_COUNT_FIELD) == null;
+    }
+
+    /**
+     * Reads what an unmigrated event's count is made of, inside the transaction that first
+     * changes it. Add the result to {@link #readCount} for the exact count, and pass it to
+     * {@link #migrate} once the reads are done
+     * @param event the event document, from the same transaction
+     * @return the old waitlistCount still missing from the shards, 0 if there's nothing to move
+     */
+    public static long readLegacyCount(Transaction transaction, FirebaseFirestore db, String eventId,
+                                       DocumentSnapshot event) throws FirebaseFirestoreException {
+        if (!needsMigration(event)) {
+            return 0;
+        }
+        for (int shard = 0; shard < DEFAULT_SHARDS; shard++) {
+            if (transaction.get(shardRef(db, eventId, shard)).exists()) {
+                // sharded before SHARD_COUNT_FIELD was written, waitlistCount is a rollup of them
+                return 0;
+            }
+        }
+        return displayCount(event);
+    }
+
+    /**
+     * Moves an old event's count into shard 0 and marks it migrated, as part of a transaction
+     * @param legacyCount from {@link #readLegacyCount} in the same transaction
+     */
+    public static void migrate(Transaction transaction, FirebaseFirestore db, String eventId, long legacyCount) {
+        if (legacyCount > 0) {
+            transaction.set(shardRef(db, eventId, 0),
+                    Collections.singletonMap("count", FieldValue.increment(legacyCount)), SetOptions.merge());
+        }
+        transaction.update(db.collection("events").document(eventId), SHARD_COUNT_FIELD, DEFAULT_SHARDS);
+    }
+
+    /**
+     * Adds delta to one random shard as part of a transaction
+     * @param transaction transaction doing the join or leave
+     * @param shards shard count from {@link #shardCount(DocumentSnapshot)}
+     * @param delta +1 for a join, -1 for a leave
+     */
+    public static void increment(Transaction transaction, FirebaseFirestore db, String eventId,
+                                 int shards, long delta) {
+        DocumentReference ref = shardRef(db, eventId, ThreadLocalRandom.current().nextInt(shards));
+        transaction.set(ref, Collections.singletonMap("count", FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    /**
+     * Reads every shard inside a transaction, for checks that need the exact count
+     * @return the waitlist size
+     */
+    public static long readCount(Transaction transaction, FirebaseFirestore db, String eventId,
+                                 int shards) throws FirebaseFirestoreException {
+        List<DocumentSnapshot> snapshots = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            snapshots.add(transaction.get(shardRef(db, eventId, shard)));
+        }
+        return sum(snapshots);
+    }
+
+    /**
+     * @param shards shard documents, missing ones count as 0
+     * @return total count over the shards
+     */
+    public static long sum(List<DocumentSnapshot> shards) {
+        long total = 0;
+        for (DocumentSnapshot shard : shards) {
+            Long count = shard.exists() ? shard.getLong("count") : null;
+            if (count != null) total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Rolled up count for list screens, no extra reads but can be up to a rollup behind
+     * @param event the event document
+     * @return waitlist size as of the last rollup
+     */
+    public static int displayCount(DocumentSnapshot event) {
+        Long count = event.getLong(COUNT_FIELD);
+        return count != null ? (int) Math.max(0, count) : 0;
+    }
+
+    /**
+     * Gets the exact count with one query over the shards, an event that hasn't been migrated
+     * and has no shards yet still has its count in waitlistCount
+     * @param eventId the event
+     */
+    public void getCount(String eventId, OnSuccessListener<Long> onSuccess, OnFailureListener onFailure) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        eventRef.get()
+                .addOnSuccessListener(event -> eventRef.collection(SHARDS_COLLECTION)
+                        .get()
+                        .addOnSuccessListener(shards -> {
+                            if (shards.isEmpty() && event.exists() && needsMigration(event)) {
+                                onSuccess.onSuccess((long) displayCount(event));
+                            } else {
+                                onSuccess.onSuccess(sum(shards.getDocuments()));
+                            }
+                        })
+                        .addOnFailureListener(onFailure))
+                .addOnFailureListener(onFailure);
+    }
+
+    /**
+     * Remembers that an event's count changed so the next rollup writes it to the event
+     */
+    public synchronized void markDirty(String eventId) {
+        dirtyEvents.add(eventId);
+    }
+
+    /**
+     * Writes the current shard total to waitlistCount on the event
+     * @param eventId the event
+     */
+    public void rollup(String eventId) {
+        getCount(eventId, count -> {
+            Map<String, Object> update = new HashMap<>();
+            update.put(COUNT_FIELD, Math.max(0, count));
+            update.put("waitlistCountRolledUpAt", System.currentTimeMillis());
+            db.collection("events").document(eventId)
+                    .update(update)
+                    .addOnFailureListener(e -> Log.e(TAG, "Error rolling up count for " + eventId, e));
+        }, e -> {
+            Log.e(TAG, "Error reading shards for " + eventId, e);
+            markDirty(eventId);
+        });
+    }
+
+    /**
+     * Starts rolling up changed events every ROLLUP_INTERVAL_MS, does nothing if already running
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::rollupDirty, ROLLUP_INTERVAL_MS, ROLLUP_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic rollups, anything still waiting is rolled up one last time
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        rollupDirty();
+    }
+
+    private void rollupDirty() {
+        List<String> events;
+        synchronized (this) {
+            events = new ArrayList<>(dirtyEvents);
+            dirtyEvents.clear();
+        }
+        for (String eventId : events) {
+            rollup(eventId);
+        }
+    }
+}
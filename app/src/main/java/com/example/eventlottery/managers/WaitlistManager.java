@@ -1,29 +1,59 @@
 package com.example.eventlottery.managers;
 
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.util.Log;
 
 import com.example.eventlottery.WaitlistEntry;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.Firebase;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
 import  com.google.firebase.firestore.GeoPoint;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 public class WaitlistManager {
     private static final String TAG = "WaitlistManager";
     private static WaitlistManager instance;
 
     private FirebaseFirestore db;
     private FirebaseAuth auth;
+    private MembershipCache membershipCache;
+    private WaitlistOutbox outbox; // null until enableOutbox
+    // eventId -> join or leave being sent right now
+    private final Map<String, Toggle> sending = new HashMap<>();
+    // eventId -> what the user tapped since then, only the latest tap is kept
+    private final Map<String, Toggle> wanted = new HashMap<>();
+
+    private static final String OPERATIONS_COLLECTION = "waitlistOps";
+    // markers only have to outlive resends of their operation, an outbox that has been
+    // offline this long is unlikely. Deleted by the TTL policy on waitlistOps.expireAt
+    public static final long MARKER_TTL_MS = TimeUnit.DAYS.toMillis(30);
+    private static final int REPLAY_BATCH_SIZE = 10;
+    private static final String ALREADY_ON_WAITLIST = "Already on waitlist";
+    private static final String NOT_ON_WAITLIST = "Not on waitlist";
 
     private WaitlistManager() {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        membershipCache = MembershipCache.getInstance();
     }
 
     public static WaitlistManager getInstance() {
@@ -59,24 +89,7 @@ public class WaitlistManager {
 
         String userId = currentUser.getUid();
 
-        // check if on waitlsit
-        isUserOnWaitlist(eventId, userId, isOnWaitlist -> {
-            if (isOnWaitlist) {
-                callback.onFailure("Already on waitlist");
-                return;
-            }
-
-            // check capacityy
-            checkWaitlistCapacity(eventId, hasCapacity -> {
-                if (!hasCapacity) {
-                    callback.onFailure("Waitlist is full");
-                    return;
-                }
-
-                // Perform the join operation
-                performJoinWaitlist(eventId, userId, location, userName, callback);
-            });
-        });
+        request(eventId, new Toggle(userId, true, location, userName, callback));
     }
 
     /**
@@ -93,16 +106,7 @@ public class WaitlistManager {
 
         String userId = currentUser.getUid();
 
-        // Check if user is on waitlist
-        isUserOnWaitlist(eventId, userId, isOnWaitlist -> {
-            if (!isOnWaitlist) {
-                callback.onFailure("Not on waitlist");
-                return;
-            }
-
-            // Perform the leave operation
-            performLeaveWaitlist(eventId, userId, callback);
-        });
+        request(eventId, new Toggle(userId, false, null, null, callback));
     }
 
     /**
@@ -116,6 +120,11 @@ public class WaitlistManager {
             callback.onResult(false);
             return;
         }
+        // no read needed once the user's document is cached
+        if (membershipCache.isLoaded()) {
+            callback.onResult(membershipCache.contains(eventId));
+            return;
+        }
         isUserOnWaitlist(eventId, currentUser.getUid(), callback);
 
     }
@@ -127,122 +136,425 @@ public class WaitlistManager {
      */
 
     public void getWaitListCount(String eventId, CountCallback callback) {
-        db.collection("events").document(eventId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Long count = documentSnapshot.getLong("waitlistCount");
-                        callback.onResult(count != null ? count.intValue() : 0);
-                    } else {
-                        callback.onResult(0);
-                    }
-                })
-                .addOnFailureListener(e -> {
+        // exact count, summed over the counter shards
+        WaitlistCounter.getInstance().getCount(eventId,
+                count -> callback.onResult((int) Math.max(0, count)),
+                e -> {
                     Log.e(TAG, "Error getting waitlist count", e);
                     callback.onResult(0);
                 });
     }
 
+    /**
+     * Sends a join or leave, unless one is already being sent for the event. Then the tap is
+     * only remembered, and once the earlier one finishes whatever is still needed to reach the
+     * last tapped state is sent. Taps that get overridden are told onSuperseded
+     */
+    private void request(String eventId, Toggle toggle) {
+        boolean busy;
+        WaitlistCallback superseded = null;
+        synchronized (this) {
+            Toggle current = sending.get(eventId);
+            busy = current != null;
+            if (busy) {
+                Toggle previous = wanted.put(eventId, toggle);
+                if (previous != null) {
+                    superseded = previous.callback;
+                } else {
+                    superseded = current.callback;
+                    current.callback = null;
+                }
+            } else {
+                sending.put(eventId, toggle);
+            }
+        }
+
+        if (superseded != null) {
+            superseded.onSuperseded();
+        }
+        if (!busy) {
+            start(eventId, toggle);
+        } else if (toggle.join) {
+            membershipCache.markJoining(eventId);
+        } else {
+            membershipCache.markLeaving(eventId);
+        }
+    }
+
+    private void start(String eventId, Toggle toggle) {
+        WaitlistCallback done = new WaitlistCallback() {
+            @Override
+            public void onSuccess() {
+                finished(eventId, toggle, toggle.join, WaitlistCallback::onSuccess);
+            }
+
+            @Override
+            public void onQueued() {
+                finished(eventId, toggle, toggle.join, WaitlistCallback::onQueued);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                boolean joined = ALREADY_ON_WAITLIST.equals(error)
+                        || (!NOT_ON_WAITLIST.equals(error) && !toggle.join);
+                finished(eventId, toggle, joined, callback -> callback.onFailure(error));
+            }
+        };
+
+        if (toggle.join) {
+            performJoinWaitlist(eventId, toggle.userId, toggle.location, toggle.userName, done);
+        } else {
+            performLeaveWaitlist(eventId, toggle.userId, done);
+        }
+    }
+
+    /**
+     * A join or leave finished, tells whoever tapped last and sends the next one if the user
+     * tapped to the other state meanwhile
+     * @param joined whether the user is on the waitlist now
+     */
+    private void finished(String eventId, Toggle toggle, boolean joined, Consumer<WaitlistCallback> outcome) {
+        WaitlistCallback callback;
+        Toggle next;
+        synchronized (this) {
+            callback = toggle.callback;
+            next = wanted.remove(eventId);
+            if (next != null && next.join != joined) {
+                sending.put(eventId, next);
+            } else {
+                sending.remove(eventId);
+            }
+        }
+
+        if (callback != null) {
+            outcome.accept(callback);
+        }
+        if (next == null) {
+            return;
+        }
+        if (next.join != joined) {
+            start(eventId, next);
+        } else if (next.callback != null) {
+            // the taps cancelled out, the user is already where they wanted to be
+            next.callback.onSuccess();
+        }
+    }
+
     private void performJoinWaitlist(String eventId, String userId, GeoPoint location, String userName, WaitlistCallback callback) {
+        WaitlistOutbox.Operation operation = WaitlistOutbox.Operation.join(eventId, userId, location, userName);
 
-        WaitlistEntry entry = new WaitlistEntry(
-                userId,
-                System.currentTimeMillis(),
-                "waiting",
-                null
-        );
+        // show as joined right away, undone if the join fails
+        membershipCache.markJoining(eventId);
+        send(operation, "Successfully joined waitlist: ", "Failed to join waitlist: ", callback);
+    }
 
+    private void performLeaveWaitlist(String eventId, String userId, WaitlistCallback callback) {
+        WaitlistOutbox.Operation operation = WaitlistOutbox.Operation.leave(eventId, userId);
 
-        WriteBatch batch = db.batch();
+        membershipCache.markLeaving(eventId);
+        send(operation, "Successfully left waitlist: ", "Failed to leave waitlist: ", callback);
+    }
 
-        //
-        DocumentReference eventWaitlistRef = db.collection("events")
-                .document(eventId)
-                .collection("waitlist")
-                .document(userId);  // ← userId ensures uniqueness
-        batch.set(eventWaitlistRef, entry);
+    /**
+     * Sends one join or leave. While offline it goes to the outbox instead, and so does anything
+     * for an event that already has queued changes so they stay in order
+     */
+    private void send(WaitlistOutbox.Operation operation, String successLog, String failurePrefix,
+                      WaitlistCallback callback) {
+        String eventId = operation.getEventId();
+        if (outbox != null && outbox.hasPending(eventId, operation.getUserId())) {
+            queue(operation);
+            replayOutbox();
+            callback.onQueued();
+            return;
+        }
 
+        commit(Collections.singletonList(operation))
+                .addOnSuccessListener(results -> {
+                    String error = results.get(operation.getId());
+                    settle(operation, error);
+                    if (error != null) {
+                        callback.onFailure(error);
+                        return;
+                    }
+                    Log.d(TAG, successLog + eventId);
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    if (outbox != null && isOffline(e)) {
+                        Log.d(TAG, "Offline, queued " + operation.getType() + " for " + eventId);
+                        queue(operation);
+                        callback.onQueued();
+                        return;
+                    }
+                    membershipCache.revert(eventId);
+                    Log.e(TAG, "Error sending " + operation.getType(), e);
+                    callback.onFailure(failurePrefix + e.getMessage());
+                });
+    }
 
-        DocumentReference eventRef = db.collection("events").document(eventId);
-        batch.update(eventRef, "waitlistCount", FieldValue.increment(1));
+    /**
+     * Runs a batch of joins and leaves in one transaction. Membership checks, capacity checks
+     * and all the writes happen together, so two people joining at the same time can't both
+     * take the last spot. Each applied operation leaves a marker at users/{uid}/waitlistOps/{id},
+     * an operation whose marker exists is skipped so a resent one never counts twice.
+     * Markers carry an expireAt timestamp, needs a TTL policy on the waitlistOps collection
+     * group's expireAt field so Firestore deletes them once MARKER_TTL_MS has passed
+     * @param operations the operations, at most one per user and event
+     * @return operation ID -> null if it went through, otherwise the reason it didn't
+     */
+    private Task<Map<String, String>> commit(List<WaitlistOutbox.Operation> operations) {
+        return db.runTransaction(transaction -> {
+            // every read comes before the first write
+            List<DocumentSnapshot> markers = new ArrayList<>();
+            List<DocumentSnapshot> entries = new ArrayList<>();
+            List<DocumentSnapshot> events = new ArrayList<>();
+            Map<String, Long> counts = new HashMap<>(); // only for events with a limit
+            // events whose old waitlistCount still has to move into the shards -> that count
+            Map<String, Long> legacyCounts = new HashMap<>();
+            for (WaitlistOutbox.Operation operation : operations) {
+                String eventId = operation.getEventId();
+                markers.add(transaction.get(operationRef(operation)));
+                entries.add(transaction.get(WaitlistStore.entryRef(db, eventId, operation.getUserId())));
+                DocumentSnapshot eventSnapshot = transaction.get(db.collection("events").document(eventId));
+                events.add(eventSnapshot);
+
+                if (eventSnapshot.exists() && WaitlistCounter.needsMigration(eventSnapshot)
+                        && !legacyCounts.containsKey(eventId)) {
+                    legacyCounts.put(eventId, WaitlistCounter.readLegacyCount(transaction, db, eventId, eventSnapshot));
+                }
+                // only capped waitlists pay for reading every shard
+                if (operation.isJoin() && eventSnapshot.exists() && getWaitlistLimit(eventSnapshot) > 0
+                        && !counts.containsKey(eventId)) {
+                    Long legacyCount = legacyCounts.get(eventId);
+                    counts.put(eventId, WaitlistCounter.readCount(transaction, db, eventId,
+                            WaitlistCounter.shardCount(eventSnapshot))
+                            + (legacyCount != null ? legacyCount : 0));
+                }
+            }
+
+            // the first change to an old event carries its count over, so neither the capacity
+            // check above nor the next rollup forgets who was already on the list
+            for (Map.Entry<String, Long> legacy : legacyCounts.entrySet()) {
+                WaitlistCounter.migrate(transaction, db, legacy.getKey(), legacy.getValue());
+            }
+
+            Map<String, String> results = new HashMap<>();
+            for (int i = 0; i < operations.size(); i++) {
+                WaitlistOutbox.Operation operation = operations.get(i);
+                String result;
+                if (markers.get(i).exists()) {
+                    result = null; // sent before, the reply just never made it back
+                } else if (operation.isJoin()) {
+                    result = applyJoin(transaction, operation, entries.get(i), events.get(i), counts);
+                } else {
+                    result = applyLeave(transaction, operation, entries.get(i), events.get(i));
+                }
+                results.put(operation.getId(), result);
+            }
+            return results;
+        });
+    }
+
+    private String applyJoin(Transaction transaction, WaitlistOutbox.Operation operation,
+                             DocumentSnapshot entrySnapshot, DocumentSnapshot eventSnapshot,
+                             Map<String, Long> counts) {
+        if (entrySnapshot.exists()) {
+            return ALREADY_ON_WAITLIST;
+        }
+        if (!eventSnapshot.exists()) {
+            return "Event not found";
+        }
+        String eventId = operation.getEventId();
+        String userId = operation.getUserId();
+        Long count = counts.get(eventId);
+        if (count != null) {
+            if (count >= getWaitlistLimit(eventSnapshot)) {
+                return "Waitlist is full";
+            }
+            counts.put(eventId, count + 1); // someone else in this batch
+        }
 
-        batch.update(eventRef, "waitlistUsers", FieldValue.arrayUnion(userId));
+        long now = System.currentTimeMillis();
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        WaitlistEntry entry = new WaitlistEntry(userId, now, "waiting", null);
+        transaction.set(WaitlistStore.entryRef(db, eventId, userId), entry);  // ← userId ensures uniqueness
 
+        WaitlistCounter.increment(transaction, db, eventId, WaitlistCounter.shardCount(eventSnapshot), 1);
 
-        DocumentReference userRef = db.collection("users").document(userId);
         Map<String, Object> waitlistData = new HashMap<>();
-        waitlistData.put("joinedAt", System.currentTimeMillis());
+        waitlistData.put("joinedAt", now);
         waitlistData.put("status", "waiting");
 
-        // Use dot notation to update nested field without overwriting entire waitingLists map
-        Map<String, Object> userUpdate = new HashMap<>();
-        userUpdate.put("waitingLists." + eventId, waitlistData);
-        batch.set(userRef, userUpdate, com.google.firebase.firestore.SetOptions.merge());
+        // merge deep merges maps, so only this event's key in waitingLists is touched.
+        // (set doesn't read dots as paths, "waitingLists.id" would be a new top level field)
+        transaction.set(db.collection("users").document(userId),
+                waitingListsUpdate(eventId, waitlistData), SetOptions.merge());
 
-        if (location != null) {
-            DocumentReference locationRef = db.collection("events")
-                    .document(eventId)
+        if (operation.getLocation() != null) {
+            DocumentReference locationRef = eventRef
                     .collection("entrantLocations")
                     .document(userId);
 
             Map<String, Object> locationData = new HashMap<>();
-            locationData.put("location", location);
-            locationData.put("userName", userName != null ? userName : "Unknown");
-            locationData.put("timestamp", System.currentTimeMillis());
+            locationData.put("location", operation.getLocation());
+            locationData.put("userName", operation.getUserName() != null ? operation.getUserName() : "Unknown");
+            locationData.put("timestamp", now);
 
-            batch.set(locationRef, locationData);
+            transaction.set(locationRef, locationData);
         }
-
-        batch.commit()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Successfully joined waitlist: " + eventId);
-                    callback.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error joining waitlist", e);
-                    callback.onFailure("Failed to join waitlist: " + e.getMessage());
-                });
+        markApplied(transaction, operation, now);
+        return null;
     }
 
-    private void performLeaveWaitlist(String eventId, String userId, WaitlistCallback callback) {
+    private String applyLeave(Transaction transaction, WaitlistOutbox.Operation operation,
+                              DocumentSnapshot entrySnapshot, DocumentSnapshot eventSnapshot) {
+        if (!entrySnapshot.exists()) {
+            return NOT_ON_WAITLIST;
+        }
+        String eventId = operation.getEventId();
 
-        WriteBatch batch = db.batch();
+        transaction.delete(WaitlistStore.entryRef(db, eventId, operation.getUserId()));
 
+        WaitlistCounter.increment(transaction, db, eventId,
+                WaitlistCounter.shardCount(eventSnapshot), -1);
 
-        DocumentReference eventWaitlistRef = db.collection("events")
-                .document(eventId)
-                .collection("waitlist")
-                .document(userId);
-        batch.delete(eventWaitlistRef);
+        // Only this event's key is deleted, other waitlist entries are left alone
+        Map<String, Object> userUpdate = waitingListsUpdate(eventId, FieldValue.delete());
+        // older versions wrote a top level "waitingLists.{eventId}" field, clear that too
+        userUpdate.put("waitingLists." + eventId, FieldValue.delete());
+        transaction.set(db.collection("users").document(operation.getUserId()), userUpdate, SetOptions.merge());
 
+        markApplied(transaction, operation, System.currentTimeMillis());
+        return null;
+    }
 
-        DocumentReference eventRef = db.collection("events").document(eventId);
-        batch.update(eventRef, "waitlistCount", FieldValue.increment(-1));
-        batch.update(eventRef,"waitlistUsers", FieldValue.arrayRemove(userId));
+    private DocumentReference operationRef(WaitlistOutbox.Operation operation) {
+        return db.collection("users").document(operation.getUserId())
+                .collection(OPERATIONS_COLLECTION).document(operation.getId());
+    }
 
+    private void markApplied(Transaction transaction, WaitlistOutbox.Operation operation, long appliedAt) {
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("type", operation.getType());
+        marker.put("eventId", operation.getEventId());
+        marker.put("appliedAt", appliedAt);
+        marker.put("expireAt", new Timestamp(new Date(appliedAt + MARKER_TTL_MS)));
+        transaction.set(operationRef(operation), marker);
+    }
 
-        DocumentReference userRef = db.collection("users").document(userId);
+    /**
+     * Updates the membership cache once an operation has been answered
+     * @param error null if it went through
+     */
+    private void settle(WaitlistOutbox.Operation operation, String error) {
+        String eventId = operation.getEventId();
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || !currentUser.getUid().equals(operation.getUserId())) {
+            return; // queued by someone who has since signed out
+        }
+        if (error == null) {
+            WaitlistCounter.getInstance().markDirty(eventId);
+            membershipCache.settle(eventId, operation.isJoin());
+        } else if (ALREADY_ON_WAITLIST.equals(error) || NOT_ON_WAITLIST.equals(error)) {
+            // nothing to do, the user was already where they wanted to be
+            membershipCache.settle(eventId, operation.isJoin());
+        } else {
+            membershipCache.revert(eventId);
+        }
+    }
 
-        // Use dot notation to delete nested field without affecting other waitlist entries
-        Map<String, Object> userUpdate = new HashMap<>();
-        userUpdate.put("waitingLists." + eventId, FieldValue.delete());
-        batch.set(userRef, userUpdate, com.google.firebase.firestore.SetOptions.merge());
+    private void queue(WaitlistOutbox.Operation operation) {
+        if (!outbox.add(operation)) {
+            // cancelled out a queued change, back to what Firestore has
+            membershipCache.revert(operation.getEventId());
+        }
+    }
 
+    private static boolean isOffline(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.UNAVAILABLE;
+    }
 
-        batch.commit()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Successfully left waitlist: " + eventId);
-                    callback.onSuccess();
+    /**
+     * Turns on the offline outbox: joins and leaves made without a connection are saved to a
+     * file and sent once the device is back online. Call once the app has a context
+     */
+    public synchronized void enableOutbox(Context context) {
+        if (outbox != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        outbox = new WaitlistOutbox(new File(appContext.getFilesDir(), WaitlistOutbox.FILE_NAME));
+
+        // changes queued before the app was closed still show
+        FirebaseUser currentUser = auth.getCurrentUser();
+        for (WaitlistOutbox.Operation operation : outbox.getPending()) {
+            if (currentUser != null && currentUser.getUid().equals(operation.getUserId())) {
+                if (operation.isJoin()) {
+                    membershipCache.markJoining(operation.getEventId());
+                } else {
+                    membershipCache.markLeaving(operation.getEventId());
+                }
+            }
+        }
+
+        ConnectivityManager connectivity = appContext.getSystemService(ConnectivityManager.class);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    replayOutbox();
+                }
+            });
+        }
+        replayOutbox();
+    }
+
+    /**
+     * Sends whatever is in the outbox, REPLAY_BATCH_SIZE operations per transaction.
+     * Stops at the first failure, the rest goes out when the connection comes back
+     */
+    public void replayOutbox() {
+        if (outbox == null) {
+            return;
+        }
+        List<WaitlistOutbox.Operation> batch = outbox.nextBatch(REPLAY_BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return;
+        }
+        commit(batch)
+                .addOnSuccessListener(results -> {
+                    outbox.complete(batch);
+                    for (WaitlistOutbox.Operation operation : batch) {
+                        String error = results.get(operation.getId());
+                        settle(operation, error);
+                        if (error != null) {
+                            Log.w(TAG, "Queued " + operation.getType() + " for "
+                                    + operation.getEventId() + " not applied: " + error);
+                        }
+                    }
+                    replayOutbox();
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error leaving waitlist", e);
-                    callback.onFailure("Failed to leave waitlist: " + e.getMessage());
+                    outbox.release(batch);
+                    Log.w(TAG, "Outbox replay failed, will retry", e);
                 });
     }
 
+    /**
+     * builds {waitingLists: {eventId: value}} for a merge set on the user document
+     */
+    private static Map<String, Object> waitingListsUpdate(String eventId, Object value) {
+        Map<String, Object> waitingLists = new HashMap<>();
+        waitingLists.put(eventId, value);
+        Map<String, Object> userUpdate = new HashMap<>();
+        userUpdate.put("waitingLists", waitingLists);
+        return userUpdate;
+    }
+
     private void isUserOnWaitlist(String eventId, String userId, BooleanCallback callback) {
-        db.collection("events").document(eventId)
-                .collection("waitlist").document(userId)
+        WaitlistStore.entryRef(db, eventId, userId)
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
                     callback.onResult(documentSnapshot.exists());
@@ -253,37 +565,63 @@ public class WaitlistManager {
                 });
     }
 
-    private void checkWaitlistCapacity(String eventId, BooleanCallback callback) {
-        db.collection("events").document(eventId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (!documentSnapshot.exists()) {
-                        callback.onResult(false);
-                        return;
-                    }
-
-                    Long capacity = documentSnapshot.getLong("waitlistCapacity");
-                    Long currentCount = documentSnapshot.getLong("waitlistCount");
+    /**
+     * gets the most people allowed on the event's waitlist
+     * @param eventSnapshot the event
+     * @return the limit, 0 means unlimited
+     */
+    static int getWaitlistLimit(DocumentSnapshot eventSnapshot) {
+        Long capacity = eventSnapshot.getLong("waitlistCapacity");
+        if (capacity != null) {
+            return capacity.intValue();
+        }
 
-                    // If capacity is 0 or null, assume unlimited
-                    if (capacity == null || capacity == 0) {
-                        callback.onResult(true);
-                        return;
-                    }
+        // events made by CreateEventFragment store it as a string
+        String limit = eventSnapshot.getString("waitlistLimit");
+        try {
+            return limit != null && !limit.isEmpty() ? Integer.parseInt(limit.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 
-                    int count = currentCount != null ? currentCount.intValue() : 0;
-                    callback.onResult(count < capacity);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error checking capacity", e);
-                    callback.onResult(false);
-                });
+    /**
+     * One tap on join or leave
+     */
+    private static class Toggle {
+        final String userId;
+        final boolean join;
+        final GeoPoint location;
+        final String userName;
+        WaitlistCallback callback; // null once a later tap overrides it
+
+        Toggle(String userId, boolean join, GeoPoint location, String userName, WaitlistCallback callback) {
+            this.userId = userId;
+            this.join = join;
+            this.location = location;
+            this.userName = userName;
+            this.callback = callback;
+        }
     }
 
     public interface WaitlistCallback {
         void onSuccess();
 
         void onFailure(String error);
+
+        /**
+         * the device is offline, the change was saved and goes out once it's back online.
+         * Shown the same as a success unless overridden
+         */
+        default void onQueued() {
+            onSuccess();
+        }
+
+        /**
+         * the user tapped again before this finished, the later tap's callback gets the result
+         */
+        default void onSuperseded() {
+        }
     }
 
     public interface BooleanCallback {
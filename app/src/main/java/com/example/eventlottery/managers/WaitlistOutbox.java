@@ -0,0 +1,287 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.GeoPoint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Waitlist joins and leaves made while offline, kept until they can be sent.
+ * Stored as an append only log file, one line per change: "ADD" lines queue an operation and
+ * "DONE" lines take one off, so a crash part way through never loses or repeats a line that
+ * was already written. The file is cleared once nothing is left.
+ * Each operation has an ID that is written with it to Firestore, so sending it twice is harmless.
+ */
+public class WaitlistOutbox {
+    private static final String TAG = "WaitlistOutbox";
+
+    public static final String FILE_NAME = "waitlist_outbox.log";
+
+    private static final String ADD = "ADD";
+    private static final String DONE = "DONE";
+
+    /**
+     * One join or leave
+     */
+    public static class Operation {
+        public static final String JOIN = "join";
+        public static final String LEAVE = "leave";
+
+        private final String id;
+        private final String type;
+        private final String eventId;
+        private final String userId;
+        private final long createdAt;
+        private final GeoPoint location;
+        private final String userName;
+
+        private Operation(String id, String type, String eventId, String userId, long createdAt,
+                          GeoPoint location, String userName) {
+            this.id = id;
+            this.type = type;
+            this.eventId = eventId;
+            this.userId = userId;
+            this.createdAt = createdAt;
+            this.location = location;
+            this.userName = userName;
+        }
+
+        /**
+         * @param location optional, for events that track entrant locations
+         * @param userName optional, shown next to the location
+         */
+        public static Operation join(String eventId, String userId, GeoPoint location, String userName) {
+            return new Operation(UUID.randomUUID().toString(), JOIN, eventId, userId,
+                    System.currentTimeMillis(), location, userName);
+        }
+
+        public static Operation leave(String eventId, String userId) {
+            return new Operation(UUID.randomUUID().toString(), LEAVE, eventId, userId,
+                    System.currentTimeMillis(), null, null);
+        }
+
+        /** @return idempotency key, the same every time this operation is sent */
+        public String getId() { return id; }
+        public String getType() { return type; }
+        public boolean isJoin() { return JOIN.equals(type); }
+        public String getEventId() { return eventId; }
+        public String getUserId() { return userId; }
+        public long getCreatedAt() { return createdAt; }
+        public GeoPoint getLocation() { return location; }
+        public String getUserName() { return userName; }
+
+        private boolean sameTarget(Operation other) {
+            return eventId.equals(other.eventId) && userId.equals(other.userId);
+        }
+
+        private String toLine() {
+            return ADD + "\t" + id + "\t" + type + "\t" + eventId + "\t" + userId + "\t" + createdAt
+                    + "\t" + (location != null ? location.getLatitude() : "")
+                    + "\t" + (location != null ? location.getLongitude() : "")
+                    + "\t" + (userName != null ? userName.replaceAll("[\\t\\r\\n]", " ") : "");
+        }
+
+        private static Operation fromLine(String[] fields) {
+            GeoPoint location = fields[6].isEmpty() ? null
+                    : new GeoPoint(Double.parseDouble(fields[6]), Double.parseDouble(fields[7]));
+            String userName = fields.length > 8 && !fields[8].isEmpty() ? fields[8] : null;
+            return new Operation(fields[1], fields[2], fields[3], fields[4],
+                    Long.parseLong(fields[5]), location, userName);
+        }
+    }
+
+    private final File file;
+    // operation ID -> operation, in the order they were queued
+    private final LinkedHashMap<String, Operation> pending = new LinkedHashMap<>();
+    // being sent right now, can't be cancelled
+    private final Set<String> inFlight = new HashSet<>();
+
+    /**
+     * Opens the outbox, reading back anything queued before the app last closed
+     * @param file the log file, created when the first operation is queued
+     */
+    public WaitlistOutbox(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Queues an operation. A join and a leave for the same event cancel each other out, and
+     * queueing the same thing twice keeps the first one. Only the last one queued for the event
+     * is compared, and not while it's being sent
+     * @param operation the join or leave
+     * @return true if the operation is queued, false if it cancelled out an earlier one
+     */
+    public synchronized boolean add(Operation operation) {
+        Operation last = null;
+        for (Operation queued : pending.values()) {
+            if (queued.sameTarget(operation)) last = queued;
+        }
+        if (last != null && !inFlight.contains(last.getId())) {
+            if (last.getType().equals(operation.getType())) {
+                return true;
+            }
+            pending.remove(last.getId());
+            append(DONE + "\t" + last.getId());
+            compactIfEmpty();
+            return false;
+        }
+        pending.put(operation.getId(), operation);
+        append(operation.toLine());
+        return true;
+    }
+
+    /**
+     * @return true if something is queued for this user and event
+     */
+    public synchronized boolean hasPending(String eventId, String userId) {
+        for (Operation queued : pending.values()) {
+            if (queued.getEventId().equals(eventId) && queued.getUserId().equals(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return copy of everything queued, oldest first */
+    public synchronized List<Operation> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Takes the oldest operations that aren't already being sent, at most one per user and
+     * event. A batch's operations are all checked against what Firestore had before any of
+     * them ran, so a join and a later leave for the same event have to go in separate batches,
+     * and nothing goes for an event while an earlier operation for it is still being sent
+     * @param max most operations to take
+     * @return operations to send, hand them back with {@link #complete} or {@link #release}
+     */
+    public synchronized List<Operation> nextBatch(int max) {
+        List<Operation> batch = new ArrayList<>();
+        // eventId + userId of everything in this batch or already being sent
+        Set<String> taken = new HashSet<>();
+        for (Operation queued : pending.values()) {
+            if (batch.size() >= max) break;
+            String target = queued.getEventId() + "\t" + queued.getUserId();
+            if (inFlight.contains(queued.getId())) {
+                taken.add(target);
+            } else if (taken.add(target)) {
+                inFlight.add(queued.getId());
+                batch.add(queued);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * The operations reached Firestore, whether or not they changed anything
+     */
+    public synchronized void complete(Collection<Operation> operations) {
+        for (Operation operation : operations) {
+            inFlight.remove(operation.getId());
+            if (pending.remove(operation.getId()) != null) {
+                append(DONE + "\t" + operation.getId());
+            }
+        }
+        compactIfEmpty();
+    }
+
+    /**
+     * Sending failed, the operations stay queued for the next try
+     */
+    public synchronized void release(Collection<Operation> operations) {
+        for (Operation operation : operations) {
+            inFlight.remove(operation.getId());
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        boolean anyDone = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                try {
+                    if (ADD.equals(fields[0]) && fields.length >= 8) {
+                        Operation operation = Operation.fromLine(fields);
+                        pending.put(operation.getId(), operation);
+                    } else if (DONE.equals(fields[0]) && fields.length >= 2) {
+                        pending.remove(fields[1]);
+                        anyDone = true;
+                    }
+                } catch (NumberFormatException e) {
+                    // a line cut short by the app being killed mid write
+                    Log.w(TAG, "Skipping bad outbox line", e);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading outbox", e);
+        }
+
+        // start the next run from a log holding only what's still queued
+        if (pending.isEmpty()) {
+            compactIfEmpty();
+        } else if (anyDone) {
+            rewrite();
+        }
+    }
+
+    private void append(String line) {
+        try (Writer writer = new FileWriter(file, true)) {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing outbox", e);
+        }
+    }
+
+    /**
+     * Replaces the log with one holding only what's still queued. It's written to a temp file
+     * and renamed over the log, so a crash part way through leaves the old log as it was
+     */
+    private void rewrite() {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp, false);
+             Writer writer = new OutputStreamWriter(out)) {
+            for (Operation operation : pending.values()) {
+                writer.write(operation.toLine());
+                writer.write('\n');
+            }
+            writer.flush();
+            // on disk before the rename, or a crash could swap in an empty file
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Error compacting outbox", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Couldn't replace outbox with the compacted log");
+            temp.delete();
+        }
+    }
+
+    private void compactIfEmpty() {
+        if (pending.isEmpty() && file.exists() && !file.delete()) {
+            Log.w(TAG, "Couldn't clear outbox");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.eventlottery.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Positions on one event's waitlist, ordered by joinedAt (ties by user ID).
+ * Entries sit in slots sorted by that order with a Fenwick tree counting the slots still in use,
+ * so a position is a prefix sum: O(log n) to look up, add at the end or remove.
+ * New joins almost always have the latest joinedAt and are appended, an entry that lands in
+ * the middle rebuilds the slots in O(n). Removed entries leave holes that are compacted on the
+ * next rebuild. A whole waitlist read at once (which comes in document ID order, not line
+ * order) goes in with {@link #load}, one sort instead of a rebuild per entry.
+ */
+public class WaitlistRankIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final class Entry {
+        final String userId;
+        final long joinedAt;
+
+        Entry(String userId, long joinedAt) {
+            this.userId = userId;
+            this.joinedAt = joinedAt;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int byTime = Long.compare(a.joinedAt, b.joinedAt);
+        return byTime != 0 ? byTime : a.userId.compareTo(b.userId);
+    };
+
+    // sorted, null where an entry was removed
+    private final List<Entry> slots = new ArrayList<>();
+    // userId -> 1 based slot
+    private final Map<String, Integer> slotOf = new HashMap<>();
+    // Fenwick tree over the slots, 1 based, each live slot counts 1
+    private int[] tree = new int[MIN_CAPACITY + 1];
+    private int size;
+
+    /**
+     * Replaces everything with a whole waitlist in O(n log n), for the first read of a list
+     * @param joinedAt userId -> when they joined, in any order
+     */
+    public void load(Map<String, Long> joinedAt) {
+        slots.clear();
+        for (Map.Entry<String, Long> entry : joinedAt.entrySet()) {
+            slots.add(new Entry(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(slots, ORDER);
+        size = slots.size();
+        rebuild();
+    }
+
+    /**
+     * Adds an entrant, or moves them if their joinedAt changed. An entrant landing anywhere but
+     * the end costs a rebuild, use {@link #load} for a whole list
+     * @param userId the entrant
+     * @param joinedAt when they joined
+     */
+    public void put(String userId, long joinedAt) {
+        Integer existing = slotOf.get(userId);
+        if (existing != null) {
+            if (slots.get(existing - 1).joinedAt == joinedAt) {
+                return;
+            }
+            remove(userId);
+        }
+
+        Entry entry = new Entry(userId, joinedAt);
+        Entry last = lastEntry();
+        size++;
+        if (last == null || ORDER.compare(entry, last) > 0) {
+            slots.add(entry);
+            int slot = slots.size();
+            slotOf.put(userId, slot);
+            if (slot < tree.length) {
+                add(slot, 1);
+            } else {
+                rebuild();
+            }
+            return;
+        }
+
+        // out of order, e.g. a clock that was behind
+        List<Entry> entries = live();
+        int insertAt = Collections.binarySearch(entries, entry, ORDER);
+        entries.add(-insertAt - 1, entry);
+        slots.clear();
+        slots.addAll(entries);
+        rebuild();
+    }
+
+    /**
+     * @param userId the entrant
+     * @return true if they were in the index
+     */
+    public boolean remove(String userId) {
+        Integer slot = slotOf.remove(userId);
+        if (slot == null) {
+            return false;
+        }
+        slots.set(slot - 1, null);
+        add(slot, -1);
+        size--;
+        // compact once more than half the slots are holes
+        if (slots.size() > MIN_CAPACITY && size < slots.size() / 2) {
+            rebuild();
+        }
+        return true;
+    }
+
+    /**
+     * @param userId the entrant
+     * @return their 1 based position in line, 0 if they aren't on the waitlist
+     */
+    public int rank(String userId) {
+        Integer slot = slotOf.get(userId);
+        return slot != null ? prefixSum(slot) : 0;
+    }
+
+    /** @return how many entrants are on the waitlist */
+    public int size() {
+        return size;
+    }
+
+    /** @return user IDs in line order */
+    public List<String> inOrder() {
+        List<String> userIds = new ArrayList<>(size);
+        for (Entry entry : slots) {
+            if (entry != null) userIds.add(entry.userId);
+        }
+        return userIds;
+    }
+
+    public void clear() {
+        slots.clear();
+        slotOf.clear();
+        tree = new int[MIN_CAPACITY + 1];
+        size = 0;
+    }
+
+    private Entry lastEntry() {
+        for (int i = slots.size() - 1; i >= 0; i--) {
+            if (slots.get(i) != null) return slots.get(i);
+        }
+        return null;
+    }
+
+    private List<Entry> live() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (Entry entry : slots) {
+            if (entry != null) entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Drops the holes, renumbers the slots and builds the tree in O(n) with room to append
+     */
+    private void rebuild() {
+        List<Entry> entries = live();
+        slots.clear();
+        slots.addAll(entries);
+        slotOf.clear();
+
+        tree = new int[Math.max(MIN_CAPACITY, entries.size() * 2) + 1];
+        for (int slot = 1; slot < tree.length; slot++) {
+            if (slot <= entries.size()) {
+                slotOf.put(entries.get(slot - 1).userId, slot);
+                tree[slot] += 1;
+            }
+            // empty slots past the end still carry their children's counts up
+            int parent = slot + (slot & -slot);
+            if (parent < tree.length) {
+                tree[parent] += tree[slot];
+            }
+        }
+    }
+
+    private void add(int slot, int delta) {
+        for (int i = slot; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private int prefixSum(int slot) {
+        int sum = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
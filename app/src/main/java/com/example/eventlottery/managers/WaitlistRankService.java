@@ -0,0 +1,191 @@
+package com.example.eventlottery.managers;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where entrants are in line on the events being looked at.
+ * Each watched event keeps a {@link WaitlistRankIndex} fed by a snapshot listener on its
+ * waitlist entries: the first snapshot fills it, after that only the entries that changed come
+ * in, so showing a position never counts documents.
+ */
+public class WaitlistRankService {
+    private static final String TAG = "WaitlistRankService";
+    private static WaitlistRankService instance;
+
+    /**
+     * Told when positions on a watched event change
+     */
+    public interface Listener {
+        void onRanksChanged(String eventId);
+    }
+
+    private static class Ranking {
+        final WaitlistRankIndex index = new WaitlistRankIndex();
+        final List<Listener> listeners = new ArrayList<>();
+        ListenerRegistration registration;
+        boolean loaded;
+    }
+
+    private final FirebaseFirestore db;
+    // eventId -> index for every event someone is watching
+    private final Map<String, Ranking> rankings = new HashMap<>();
+
+    public static synchronized WaitlistRankService getInstance() {
+        if (instance == null) {
+            instance = new WaitlistRankService(FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a rank service
+     * @param db firestore instance
+     */
+    public WaitlistRankService(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Starts keeping positions for an event, the listener is called once they're loaded and
+     * whenever they change. Call {@link #unwatch} when done
+     */
+    public synchronized void watch(String eventId, Listener listener) {
+        Ranking ranking = rankings.get(eventId);
+        if (ranking == null) {
+            ranking = new Ranking();
+            rankings.put(eventId, ranking);
+            Ranking started = ranking;
+            ranking.registration = WaitlistStore.entries(db, eventId)
+                    .addSnapshotListener((snapshot, error) -> {
+                        if (error != null) {
+                            Log.e(TAG, "Error listening to waitlist " + eventId, error);
+                            return;
+                        }
+                        if (snapshot != null) {
+                            onEntries(eventId, started, snapshot);
+                        }
+                    });
+        }
+        ranking.listeners.add(listener);
+        if (ranking.loaded) {
+            listener.onRanksChanged(eventId);
+        }
+    }
+
+    /**
+     * Stops telling the listener, and stops listening to the event once nobody is watching it
+     */
+    public synchronized void unwatch(String eventId, Listener listener) {
+        Ranking ranking = rankings.get(eventId);
+        if (ranking == null) {
+            return;
+        }
+        ranking.listeners.remove(listener);
+        if (ranking.listeners.isEmpty()) {
+            if (ranking.registration != null) {
+                ranking.registration.remove();
+            }
+            rankings.remove(eventId);
+        }
+    }
+
+    /**
+     * @return the user's 1 based position on a watched event, 0 if they aren't on it or the
+     * event isn't loaded yet
+     */
+    public synchronized int getPosition(String eventId, String userId) {
+        Ranking ranking = rankings.get(eventId);
+        return ranking != null ? ranking.index.rank(userId) : 0;
+    }
+
+    /**
+     * @return how many are on a watched event's waitlist, 0 if it isn't loaded yet
+     */
+    public synchronized int getCount(String eventId) {
+        Ranking ranking = rankings.get(eventId);
+        return ranking != null ? ranking.index.size() : 0;
+    }
+
+    /**
+     * Gets the whole waitlist in line order, from the index if the event is being watched,
+     * otherwise with one read of the entries
+     * @param eventId the event
+     */
+    public void getOrderedUserIds(String eventId, OnSuccessListener<List<String>> onSuccess,
+                                  OnFailureListener onFailure) {
+        synchronized (this) {
+            Ranking ranking = rankings.get(eventId);
+            if (ranking != null && ranking.loaded) {
+                onSuccess.onSuccess(ranking.index.inOrder());
+                return;
+            }
+        }
+        WaitlistStore.entries(db, eventId)
+                .get()
+                .addOnSuccessListener(entries -> {
+                    WaitlistRankIndex index = new WaitlistRankIndex();
+                    index.load(joinedAtByUser(entries.getDocuments()));
+                    onSuccess.onSuccess(index.inOrder());
+                })
+                .addOnFailureListener(onFailure);
+    }
+
+    private void onEntries(String eventId, Ranking ranking, QuerySnapshot snapshot) {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (rankings.get(eventId) != ranking) {
+                return; // unwatched while this was on its way
+            }
+            if (!ranking.loaded) {
+                // the first snapshot is the whole list in document ID order, sort it once
+                ranking.index.load(joinedAtByUser(snapshot.getDocuments()));
+            } else {
+                for (DocumentChange change : snapshot.getDocumentChanges()) {
+                    DocumentSnapshot entry = change.getDocument();
+                    if (change.getType() == DocumentChange.Type.REMOVED) {
+                        ranking.index.remove(entry.getId());
+                    } else {
+                        ranking.index.put(entry.getId(), joinedAt(entry));
+                    }
+                }
+            }
+            ranking.loaded = true;
+            listeners = new ArrayList<>(ranking.listeners);
+        }
+        for (Listener listener : listeners) {
+            listener.onRanksChanged(eventId);
+        }
+    }
+
+    /**
+     * @return userId -> joinedAt for each entry
+     */
+    private static Map<String, Long> joinedAtByUser(List<DocumentSnapshot> entries) {
+        Map<String, Long> joinedAt = new HashMap<>(entries.size() * 2);
+        for (DocumentSnapshot entry : entries) {
+            joinedAt.put(entry.getId(), joinedAt(entry));
+        }
+        return joinedAt;
+    }
+
+    /**
+     * @return when the entry joined, entries without it go to the back
+     */
+    private static long joinedAt(DocumentSnapshot entry) {
+        Long joinedAt = entry.getLong("joinedAt");
+        return joinedAt != null ? joinedAt : Long.MAX_VALUE;
+    }
+}
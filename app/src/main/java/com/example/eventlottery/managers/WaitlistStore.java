@@ -0,0 +1,76 @@
+package com.example.eventlottery.managers;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Where waitlist membership is stored.
+ * Each entrant has a document at events/{eventId}/waitlist/{userId}, the event document itself
+ * doesn't list its entrants so browsing events never downloads them. A user's own waitlists are
+ * found with one collection group query on userId.
+ */
+public class WaitlistStore {
+
+    public static final String WAITLIST_COLLECTION = "waitlist";
+
+    private WaitlistStore() { }
+
+    /**
+     * @return every waitlist entry for the event, one document per entrant
+     */
+    public static CollectionReference entries(FirebaseFirestore db, String eventId) {
+        return db.collection("events").document(eventId).collection(WAITLIST_COLLECTION);
+    }
+
+    /**
+     * @return one entrant's waitlist entry
+     */
+    public static DocumentReference entryRef(FirebaseFirestore db, String eventId, String userId) {
+        return entries(db, eventId).document(userId);
+    }
+
+    /**
+     * Every waitlist entry the user has, across all events.
+     * Needs the collection group index on waitlist.userId.
+     */
+    public static Query forUser(FirebaseFirestore db, String userId) {
+        return db.collectionGroup(WAITLIST_COLLECTION).whereEqualTo("userId", userId);
+    }
+
+    /**
+     * @param entries result of {@link #entries}, the document IDs are the user IDs
+     * @return user IDs on the waitlist
+     */
+    public static List<String> userIds(QuerySnapshot entries) {
+        List<String> userIds = new ArrayList<>();
+        for (DocumentSnapshot entry : entries.getDocuments()) {
+            userIds.add(entry.getId());
+        }
+        return userIds;
+    }
+
+    /**
+     * @param entries result of {@link #forUser}
+     * @return IDs of the events the user is waitlisted for, for O(1) lookups
+     */
+    public static Set<String> eventIds(QuerySnapshot entries) {
+        Set<String> eventIds = new HashSet<>();
+        for (DocumentSnapshot entry : entries.getDocuments()) {
+            // events/{eventId}/waitlist/{userId}
+            DocumentReference event = entry.getReference().getParent().getParent();
+            if (event != null) {
+                eventIds.add(event.getId());
+            }
+        }
+        return eventIds;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.eventlottery.utils;
+
+import com.example.eventlottery.EventFilter;
+import com.example.eventlottery.event_classes.Event;
+import com.example.eventlottery.event_classes.EventDates;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What browse filters on for a fixed list of events, one primitive array per field instead of
+ * an object graph per event: price in cents, start and end as epoch days, and a category ID.
+ * A filter pass reads a few arrays front to back rather than following each event through its
+ * Money, EventDates and category string, and allocates nothing per event.
+ * Cheap to build (dates are already parsed by EventDates), so it's rebuilt whenever the list
+ * changes.
+ */
+public class EventColumns {
+
+    /** Day of an event whose dates aren't dates ("Every Friday") */
+    public static final int NO_DAY = Integer.MIN_VALUE;
+    /** Category ID of an event without a category */
+    public static final int NO_CATEGORY = 255;
+
+    private final int size;
+    private final int[] priceCents;
+    private final int[] startDays;
+    private final int[] endDays;
+    // unsigned, read with & 0xFF
+    private final byte[] categoryIds;
+    // category name per ID, IDs are handed out in the order categories first show up
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryIdsByName = new HashMap<>();
+
+    /**
+     * @param events the events, in list order
+     */
+    public EventColumns(List<Event> events) {
+        size = events.size();
+        priceCents = new int[size];
+        startDays = new int[size];
+        endDays = new int[size];
+        categoryIds = new byte[size];
+        for (int i = 0; i < size; i++) {
+            Event event = events.get(i);
+            priceCents[i] = toCents(event.getPrice().getAmount());
+            EventDates dates = event.getDates();
+            startDays[i] = dates.isParsed() ? (int) dates.getStartDay() : NO_DAY;
+            endDays[i] = dates.isParsed() ? (int) dates.getEndDay() : NO_DAY;
+            categoryIds[i] = (byte) idFor(event.getCategory());
+        }
+    }
+
+    private int idFor(String category) {
+        if (category == null) return NO_CATEGORY;
+        Integer id = categoryIdsByName.get(category);
+        if (id == null) {
+            // an ID per category the browse filter offers is plenty, anything past that
+            // can't be filtered on
+            if (categories.size() >= NO_CATEGORY) return NO_CATEGORY;
+            id = categories.size();
+            categories.add(category);
+            categoryIdsByName.put(category, id);
+        }
+        return id;
+    }
+
+    /** @return how many events there are */
+    public int size() {
+        return size;
+    }
+
+    public int priceCents(int position) {
+        return priceCents[position];
+    }
+
+    /** @return the start as an epoch day, NO_DAY if the dates aren't dates */
+    public int startDay(int position) {
+        return startDays[position];
+    }
+
+    /** @return the end as an epoch day, NO_DAY if the dates aren't dates */
+    public int endDay(int position) {
+        return endDays[position];
+    }
+
+    /** @return the event's category ID, NO_CATEGORY if it has none */
+    public int categoryId(int position) {
+        return categoryIds[position] & 0xFF;
+    }
+
+    /** @return how many category IDs have been handed out */
+    public int categoryCount() {
+        return categories.size();
+    }
+
+    /** @return the category's ID, NO_CATEGORY if no event has it */
+    public int categoryId(String category) {
+        Integer id = category != null ? categoryIdsByName.get(category) : null;
+        return id != null ? id : NO_CATEGORY;
+    }
+
+    /**
+     * Checks every event, for when the facets aren't built yet
+     * @param filter the filter, its location is ignored
+     * @return positions of the events passing the filter's category, price and dates
+     */
+    public BitSet filter(EventFilter filter) {
+        BitSet result = new BitSet(size);
+        int categoryId = categoryId(filter.getActivityType());
+        if (filter.getActivityType() != null && categoryId == NO_CATEGORY) {
+            return result;
+        }
+        long lowCents = lowCents(filter);
+        long highCents = highCents(filter);
+        boolean dateFiltering = filter.getStartDate() != null || filter.getEndDate() != null;
+        long fromDay = fromDay(filter);
+        long toDay = toDay(filter);
+
+        for (int i = 0; i < size; i++) {
+            if (filter.getActivityType() != null && (categoryIds[i] & 0xFF) != categoryId) continue;
+            if (priceCents[i] < lowCents || priceCents[i] > highCents) continue;
+            if (dateFiltering && (startDays[i] == NO_DAY
+                    || Math.min(startDays[i], endDays[i]) < fromDay
+                    || Math.max(startDays[i], endDays[i]) > toDay)) continue;
+            result.set(i);
+        }
+        return result;
+    }
+
+    // filter bounds are rounded to the cent, prices entered with more digits can't be told apart
+    static long lowCents(EventFilter filter) {
+        return filter.getMinPrice() != null ? Math.round(filter.getMinPrice() * 100) : Long.MIN_VALUE;
+    }
+
+    static long highCents(EventFilter filter) {
+        return filter.getMaxPrice() != null ? Math.round(filter.getMaxPrice() * 100) : Long.MAX_VALUE;
+    }
+
+    // a date that doesn't parse doesn't limit anything
+    static long fromDay(EventFilter filter) {
+        long day = EventDates.parseEpochDay(filter.getStartDate());
+        return day != EventDates.NOT_A_DATE ? day : Long.MIN_VALUE;
+    }
+
+    static long toDay(EventFilter filter) {
+        long day = EventDates.parseEpochDay(filter.getEndDate());
+        return day != EventDates.NOT_A_DATE ? day : Long.MAX_VALUE;
+    }
+
+    private static int toCents(double amount) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(amount * 100));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.eventlottery.utils;
+
+import com.example.eventlottery.event_classes.EventDates;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Date range filtering over a fixed list of events.
+ * Each event's dates (as epoch days) are sorted by the day it starts, so finding the events
+ * that fall within a range is a binary search to the first one starting on or after the range
+ * start, then a walk that stops at the first one starting after the range end: O(log n + k)
+ * where k is how many start inside the range. Events whose dates aren't dates ("Every Friday")
+ * never match a date filter.
+ */
+public class EventDateIndex {
+
+    // per event sorted by first day: its position in the list and its days
+    private final int[] positions;
+    private final long[] firstDays;
+    private final long[] lastDays;
+    private final int size;
+
+    /**
+     * Builds an index, sorting so do it off the main thread for big lists
+     * @param dates each event's dates, in list order
+     */
+    public EventDateIndex(List<EventDates> dates) {
+        this(firstDays(dates), lastDays(dates));
+    }
+
+    /**
+     * Builds an index from the date columns, sorting so do it off the main thread for big lists
+     */
+    public EventDateIndex(EventColumns columns) {
+        this(firstDays(columns), lastDays(columns));
+    }
+
+    /**
+     * @param firstDays each event's first day in list order, NOT_A_DATE if it isn't dated
+     * @param lastDays each event's last day in list order
+     */
+    private EventDateIndex(long[] firstDays, long[] lastDays) {
+        size = firstDays.length;
+        // sort (first day, position) pairs packed into longs, days fit in an int
+        long[] keys = new long[size];
+        int dated = 0;
+        for (int i = 0; i < size; i++) {
+            if (firstDays[i] != EventDates.NOT_A_DATE) {
+                keys[dated++] = firstDays[i] << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, dated);
+
+        positions = new int[dated];
+        this.firstDays = new long[dated];
+        this.lastDays = new long[dated];
+        for (int i = 0; i < dated; i++) {
+            int position = (int) keys[i];
+            positions[i] = position;
+            this.firstDays[i] = firstDays[position];
+            this.lastDays[i] = lastDays[position];
+        }
+    }
+
+    /** @return how many events are indexed, dated or not */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param fromDay earliest day an event may start, Long.MIN_VALUE for no limit
+     * @param toDay latest day an event may end, Long.MAX_VALUE for no limit
+     * @return positions of the events that happen entirely within the range
+     */
+    public BitSet query(long fromDay, long toDay) {
+        BitSet result = new BitSet(size);
+        for (int i = lowerBound(fromDay); i < firstDays.length && firstDays[i] <= toDay; i++) {
+            if (lastDays[i] <= toDay) {
+                result.set(positions[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks one event without an index, for when the index isn't built yet
+     * @return true if the event happens entirely within the range
+     */
+    public static boolean matches(EventDates dates, long fromDay, long toDay) {
+        return dates.isParsed() && firstDay(dates) >= fromDay && lastDay(dates) <= toDay;
+    }
+
+    /** @return index of the first event starting on or after the day */
+    private int lowerBound(long day) {
+        int low = 0, high = firstDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (firstDays[mid] < day) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // an end date before the start date is taken as the range written backwards
+    private static long firstDay(EventDates dates) {
+        return Math.min(dates.getStartDay(), dates.getEndDay());
+    }
+
+    private static long lastDay(EventDates dates) {
+        return Math.max(dates.getStartDay(), dates.getEndDay());
+    }
+
+    private static long[] firstDays(List<EventDates> dates) {
+        long[] days = new long[dates.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = dates.get(i).isParsed() ? firstDay(dates.get(i)) : EventDates.NOT_A_DATE;
+        }
+        return days;
+    }
+
+    private static long[] lastDays(List<EventDates> dates) {
+        long[] days = new long[dates.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = dates.get(i).isParsed() ? lastDay(dates.get(i)) : EventDates.NOT_A_DATE;
+        }
+        return days;
+    }
+
+    private static long[] firstDays(EventColumns columns) {
+        long[] days = new long[columns.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = columns.startDay(i) != EventColumns.NO_DAY
+                    ? Math.min(columns.startDay(i), columns.endDay(i)) : EventDates.NOT_A_DATE;
+        }
+        return days;
+    }
+
+    private static long[] lastDays(EventColumns columns) {
+        long[] days = new long[columns.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = Math.max(columns.startDay(i), columns.endDay(i));
+        }
+        return days;
+    }
+}
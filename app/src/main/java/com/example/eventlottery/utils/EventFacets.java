@@ -0,0 +1,109 @@
+package com.example.eventlottery.utils;
+
+import com.example.eventlottery.EventFilter;
+
+import java.util.BitSet;
+
+/**
+ * Category, price and date filtering over the columns of a fixed list of events.
+ * Each facet is a bitset over the list (bit i is the i-th event): one per category, one per
+ * price bucket, and date ranges come from an {@link EventDateIndex}. A filter is the AND of its
+ * facets' bitsets, so counting what a filter would show is cheap enough to do on every change.
+ * Location is free text and isn't a facet, check it on what's left.
+ */
+public class EventFacets {
+
+    // lower edge of each price bucket in cents, a bucket runs up to the next edge
+    private static final long[] PRICE_EDGES = {Long.MIN_VALUE, 1000, 2500, 5000, 10000};
+
+    private final EventColumns columns;
+    // per category ID
+    private final BitSet[] categories;
+    private final BitSet[] priceBuckets = new BitSet[PRICE_EDGES.length];
+    private final EventDateIndex dateIndex;
+
+    /**
+     * Builds the facets, do it off the main thread for big lists
+     * @param columns the events' columns, not changed afterwards
+     */
+    public EventFacets(EventColumns columns) {
+        this.columns = columns;
+        int size = columns.size();
+        categories = new BitSet[columns.categoryCount()];
+        for (int id = 0; id < categories.length; id++) {
+            categories[id] = new BitSet(size);
+        }
+        for (int i = 0; i < priceBuckets.length; i++) {
+            priceBuckets[i] = new BitSet(size);
+        }
+        for (int i = 0; i < size; i++) {
+            int categoryId = columns.categoryId(i);
+            if (categoryId != EventColumns.NO_CATEGORY) {
+                categories[categoryId].set(i);
+            }
+            priceBuckets[bucketOf(columns.priceCents(i))].set(i);
+        }
+        dateIndex = new EventDateIndex(columns);
+    }
+
+    /** @return how many events the facets cover */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * @param filter the filter, its location is ignored
+     * @return positions of the events passing the filter's category, price and dates
+     */
+    public BitSet match(EventFilter filter) {
+        BitSet result = new BitSet(columns.size());
+        result.set(0, columns.size());
+        if (filter.getActivityType() != null) {
+            result.and(category(filter.getActivityType()));
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            result.and(price(EventColumns.lowCents(filter), EventColumns.highCents(filter)));
+        }
+        if (filter.getStartDate() != null || filter.getEndDate() != null) {
+            result.and(dateIndex.query(EventColumns.fromDay(filter), EventColumns.toDay(filter)));
+        }
+        return result;
+    }
+
+    /** @return positions of the events in the category, don't modify it */
+    private BitSet category(String category) {
+        int id = columns.categoryId(category);
+        return id != EventColumns.NO_CATEGORY ? categories[id] : new BitSet();
+    }
+
+    /**
+     * Whole buckets inside the range are taken as they are, only the events in the buckets at
+     * its edges are checked one by one
+     * @return positions of the events priced within the range in cents, inclusive
+     */
+    private BitSet price(long low, long high) {
+        BitSet result = new BitSet(columns.size());
+        for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+            long bucketLow = PRICE_EDGES[bucket];
+            long bucketHigh = bucket + 1 < PRICE_EDGES.length ? PRICE_EDGES[bucket + 1] : Long.MAX_VALUE;
+            if (bucketHigh <= low || bucketLow > high) {
+                continue;
+            }
+            if (bucketLow >= low && bucketHigh <= high) {
+                result.or(priceBuckets[bucket]);
+                continue;
+            }
+            BitSet events = priceBuckets[bucket];
+            for (int i = events.nextSetBit(0); i >= 0; i = events.nextSetBit(i + 1)) {
+                if (columns.priceCents(i) >= low && columns.priceCents(i) <= high) result.set(i);
+            }
+        }
+        return result;
+    }
+
+    private static int bucketOf(long price) {
+        int bucket = PRICE_EDGES.length - 1;
+        while (bucket > 0 && price < PRICE_EDGES[bucket]) bucket--;
+        return bucket;
+    }
+}
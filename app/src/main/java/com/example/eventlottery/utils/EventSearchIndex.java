@@ -0,0 +1,109 @@
+package com.example.eventlottery.utils;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Title search over a fixed list of events.
+ * Titles are normalized once when the index is built (lower case, accents folded, punctuation
+ * and extra spaces dropped), so a query only does substring checks. A title matches when it
+ * contains every word of the query, in any order.
+ * The last query's matches are kept: when the next query just extends it (typing "mar" then
+ * "mara") only those matches are checked again.
+ * Not thread safe, build it anywhere but search from one thread.
+ */
+public class EventSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // normalized title per position in the list the index was built from
+    private final String[] titles;
+
+    private String lastQuery;
+    private int[] lastMatches;
+    private int lastMatchCount;
+
+    /**
+     * Builds an index, slow for big lists so do it off the main thread
+     * @param titles event titles, in list order
+     */
+    public EventSearchIndex(List<String> titles) {
+        this.titles = new String[titles.size()];
+        for (int i = 0; i < this.titles.length; i++) {
+            this.titles[i] = normalize(titles.get(i));
+        }
+    }
+
+    /** @return how many titles are indexed */
+    public int size() {
+        return titles.length;
+    }
+
+    /**
+     * @param query what was typed
+     * @return positions of the matching titles in ascending order, null if the query has no
+     * words and everything matches
+     */
+    public int[] search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            lastQuery = null;
+            return null;
+        }
+        String[] words = normalized.split(" ");
+
+        int[] matches = new int[titles.length];
+        int count = 0;
+        if (lastQuery != null && normalized.startsWith(lastQuery)) {
+            // anything matching the longer query matched the shorter one too
+            for (int i = 0; i < lastMatchCount; i++) {
+                int position = lastMatches[i];
+                if (matches(titles[position], words)) matches[count++] = position;
+            }
+        } else {
+            for (int position = 0; position < titles.length; position++) {
+                if (matches(titles[position], words)) matches[count++] = position;
+            }
+        }
+
+        lastQuery = normalized;
+        lastMatches = matches;
+        lastMatchCount = count;
+        int[] result = new int[count];
+        System.arraycopy(matches, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Checks one title without an index, for when the index isn't built yet
+     * @param title the event title
+     * @param query what was typed
+     * @return true if the title contains every word of the query
+     */
+    public static boolean matches(String title, String query) {
+        String normalized = normalize(query);
+        return normalized.isEmpty() || matches(normalize(title), normalized.split(" "));
+    }
+
+    private static boolean matches(String normalizedTitle, String[] words) {
+        for (String word : words) {
+            if (!normalizedTitle.contains(word)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the text lower cased with accents folded ("Café" -> "cafe") and words separated
+     * by single spaces
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.managers.AliasTable;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for AliasTable
+ * Tests picks follow the weights
+ */
+public class AliasTableTest {
+
+    // TEST 1: Picks should come up in proportion to their weights
+    @Test
+    public void testSampleFollowsWeights() {
+        double[] weights = {1, 2, 3, 4};
+        AliasTable table = new AliasTable(weights);
+        Random random = new Random(5L);
+
+        int samples = 400_000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < samples; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        for (int i = 0; i < weights.length; i++) {
+            double expected = samples * weights[i] / 10.0;
+            assertEquals("Index " + i + " should be picked about " + expected + " times",
+                    expected, counts[i], expected * 0.02);
+        }
+    }
+
+    // TEST 2: Weight 0 is never picked
+    @Test
+    public void testZeroWeightNeverPicked() {
+        AliasTable table = new AliasTable(new double[]{0, 5, 0, 1});
+        Random random = new Random(11L);
+
+        for (int i = 0; i < 100_000; i++) {
+            int picked = table.sample(random);
+            if (picked == 0 || picked == 2) {
+                throw new AssertionError("Picked index " + picked + " with weight 0");
+            }
+        }
+    }
+
+    // TEST 3: All zero weights can't build a table
+    @Test(expected = IllegalArgumentException.class)
+    public void testAllZeroWeightsThrows() {
+        new AliasTable(new double[]{0, 0});
+    }
+}
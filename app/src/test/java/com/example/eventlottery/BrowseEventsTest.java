@@ -3,7 +3,8 @@ package com.example.eventlottery;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 import static org.robolectric.Shadows.shadowOf;
@@ -19,14 +20,19 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.eventlottery.event_classes.EventAdapter;
 import com.example.eventlottery.fragments.BrowseFragment;
+import com.example.eventlottery.managers.EventFeed;
 import com.example.eventlottery.managers.ImageManager;
+import com.example.eventlottery.managers.MembershipCache;
 import com.example.eventlottery.managers.WaitlistManager;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 
@@ -42,10 +48,10 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Consumer;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 30)
@@ -56,7 +62,8 @@ public class BrowseEventsTest {
     @Mock private FirebaseUser mockUser;
     @Mock private FirebaseFirestore mockDb;
     @Mock private CollectionReference mockCollection;
-    @Mock private Task<QuerySnapshot> mockQueryTask;
+    @Mock private Query mockPageQuery;
+    @Mock private ListenerRegistration mockRegistration;
     @Mock private QuerySnapshot mockQuerySnapshot;
     @Mock private QueryDocumentSnapshot mockEventDoc1;
     @Mock private QueryDocumentSnapshot mockEventDoc2;
@@ -64,18 +71,20 @@ public class BrowseEventsTest {
     // Manager Mocks
     @Mock private ImageManager mockImageManager;
     @Mock private WaitlistManager mockWaitlistManager;
+    @Mock private MembershipCache mockMembershipCache;
 
     // Static Mock Controllers
     private MockedStatic<FirebaseAuth> mockedAuthStatic;
     private MockedStatic<FirebaseFirestore> mockedDbStatic;
     private MockedStatic<ImageManager> mockedImageManagerStatic;
     private MockedStatic<WaitlistManager> mockedWaitlistManagerStatic;
+    private MockedStatic<MembershipCache> mockedMembershipCacheStatic;
 
     private BrowseFragment fragment;
     private FragmentActivity activity;
 
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
 
         // 1. Mock Static Instances
@@ -95,10 +104,15 @@ public class BrowseEventsTest {
         when(mockUser.getUid()).thenReturn("test_user_id");
 
         when(mockDb.collection("events")).thenReturn(mockCollection);
-        when(mockCollection.get()).thenReturn(mockQueryTask);
+        // first page of the feed
+        when(mockCollection.orderBy(any(FieldPath.class))).thenReturn(mockPageQuery);
+        when(mockPageQuery.limit(anyLong())).thenReturn(mockPageQuery);
+        when(mockPageQuery.addSnapshotListener(any(EventListener.class))).thenReturn(mockRegistration);
+        resetEventFeed();
 
-        when(mockQueryTask.addOnSuccessListener(any())).thenReturn(mockQueryTask);
-        when(mockQueryTask.addOnFailureListener(any())).thenReturn(mockQueryTask);
+        // which events the user joined comes from the membership cache, empty here
+        mockedMembershipCacheStatic = mockStatic(MembershipCache.class);
+        mockedMembershipCacheStatic.when(MembershipCache::getInstance).thenReturn(mockMembershipCache);
 
         activity = Robolectric.buildActivity(FragmentActivity.class)
                 .create()
@@ -108,11 +122,13 @@ public class BrowseEventsTest {
     }
 
     @After
-    public void tearDown() {
+    public void tearDown() throws Exception {
+        resetEventFeed();
         mockedAuthStatic.close();
         mockedDbStatic.close();
         mockedImageManagerStatic.close();
         mockedWaitlistManagerStatic.close();
+        mockedMembershipCacheStatic.close();
     }
 
     @Test
@@ -133,7 +149,6 @@ public class BrowseEventsTest {
         when(mockEventDoc1.getString("category")).thenReturn("Food");
         when(mockEventDoc1.getLong("waitlistCount")).thenReturn(2L);
         when(mockEventDoc1.getBoolean("geolocationRequired")).thenReturn(false);
-        when(mockEventDoc1.get("waitlistUsers")).thenReturn(new ArrayList<>());
 
         // Create Mock Event 2 Data
         when(mockEventDoc2.getId()).thenReturn("event_2");
@@ -150,24 +165,17 @@ public class BrowseEventsTest {
         when(mockEventDoc2.getString("category")).thenReturn("Education");
         when(mockEventDoc2.getLong("waitlistCount")).thenReturn(10L);
         when(mockEventDoc2.getBoolean("geolocationRequired")).thenReturn(true);
-        when(mockEventDoc2.get("waitlistUsers")).thenReturn(Collections.singletonList("test_user_id"));
 
         // Put docs in a list
         List<QueryDocumentSnapshot> mockDocs = new ArrayList<>();
         mockDocs.add(mockEventDoc1);
         mockDocs.add(mockEventDoc2);
 
-        // Mock Iterator
-        when(mockQuerySnapshot.isEmpty()).thenReturn(false);
-        when(mockQuerySnapshot.iterator()).thenReturn(mockDocs.iterator());
-
-        doAnswer(invocation -> {
-            Consumer<QueryDocumentSnapshot> consumer = invocation.getArgument(0);
-            for (QueryDocumentSnapshot doc : mockDocs) {
-                consumer.accept(doc);
-            }
-            return null;
-        }).when(mockQuerySnapshot).forEach(any());
+        List<DocumentChange> changes = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : mockDocs) {
+            changes.add(added(doc));
+        }
+        when(mockQuerySnapshot.getDocumentChanges()).thenReturn(changes);
 
 
         fragment = new BrowseFragment();
@@ -176,9 +184,9 @@ public class BrowseEventsTest {
         tx.add(android.R.id.content, fragment);
         tx.commitNow();
 
-        ArgumentCaptor<OnSuccessListener> captor = ArgumentCaptor.forClass(OnSuccessListener.class);
-        org.mockito.Mockito.verify(mockQueryTask, org.mockito.Mockito.atLeast(1)).addOnSuccessListener(captor.capture());
-        captor.getValue().onSuccess(mockQuerySnapshot);
+        ArgumentCaptor<EventListener> captor = ArgumentCaptor.forClass(EventListener.class);
+        org.mockito.Mockito.verify(mockPageQuery).addSnapshotListener(captor.capture());
+        captor.getValue().onEvent(mockQuerySnapshot, null);
 
         shadowOf(Looper.getMainLooper()).runToEndOfTasks();
 
@@ -215,4 +223,18 @@ public class BrowseEventsTest {
 
         assertEquals("Coding Workshop", title2.getText().toString());
     }
-}
\ No newline at end of file
+
+    private DocumentChange added(QueryDocumentSnapshot doc) {
+        DocumentChange change = mock(DocumentChange.class);
+        when(change.getType()).thenReturn(DocumentChange.Type.ADDED);
+        when(change.getDocument()).thenReturn(doc);
+        return change;
+    }
+
+    /** the feed is a singleton that outlives the fragment, start each test without it */
+    private void resetEventFeed() throws Exception {
+        Field instance = EventFeed.class.getDeclaredField("instance");
+        instance.setAccessible(true);
+        instance.set(null, null);
+    }
+}
@@ -3,7 +3,8 @@ package com.example.eventlottery;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 import static org.robolectric.Shadows.shadowOf;
@@ -18,14 +19,19 @@ import androidx.fragment.app.FragmentTransaction;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.eventlottery.fragments.BrowseFragment;
+import com.example.eventlottery.managers.EventFeed;
 import com.example.eventlottery.managers.ImageManager;
+import com.example.eventlottery.managers.MembershipCache;
 import com.example.eventlottery.managers.WaitlistManager;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 
@@ -41,10 +47,10 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Consumer;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = 30)
@@ -55,24 +61,27 @@ public class BrowseFragmentNavigationTest {
     @Mock private FirebaseUser mockUser;
     @Mock private FirebaseFirestore mockDb;
     @Mock private CollectionReference mockCollection;
-    @Mock private Task<QuerySnapshot> mockQueryTask;
+    @Mock private Query mockPageQuery;
+    @Mock private ListenerRegistration mockRegistration;
     @Mock private QuerySnapshot mockQuerySnapshot;
     @Mock private QueryDocumentSnapshot mockEventDoc;
 
     // Manager Mocks
     @Mock private ImageManager mockImageManager;
     @Mock private WaitlistManager mockWaitlistManager;
+    @Mock private MembershipCache mockMembershipCache;
 
     private MockedStatic<FirebaseAuth> mockedAuthStatic;
     private MockedStatic<FirebaseFirestore> mockedDbStatic;
     private MockedStatic<ImageManager> mockedImageManagerStatic;
     private MockedStatic<WaitlistManager> mockedWaitlistManagerStatic;
+    private MockedStatic<MembershipCache> mockedMembershipCacheStatic;
 
     private BrowseFragment fragment;
     private FragmentActivity activity;
 
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
 
         mockedAuthStatic = mockStatic(FirebaseAuth.class);
@@ -91,9 +100,15 @@ public class BrowseFragmentNavigationTest {
         when(mockUser.getUid()).thenReturn("test_user_id");
 
         when(mockDb.collection("events")).thenReturn(mockCollection);
-        when(mockCollection.get()).thenReturn(mockQueryTask);
-        when(mockQueryTask.addOnSuccessListener(any())).thenReturn(mockQueryTask);
-        when(mockQueryTask.addOnFailureListener(any())).thenReturn(mockQueryTask);
+        // first page of the feed
+        when(mockCollection.orderBy(any(FieldPath.class))).thenReturn(mockPageQuery);
+        when(mockPageQuery.limit(anyLong())).thenReturn(mockPageQuery);
+        when(mockPageQuery.addSnapshotListener(any(EventListener.class))).thenReturn(mockRegistration);
+        resetEventFeed();
+
+        // which events the user joined comes from the membership cache, empty here
+        mockedMembershipCacheStatic = mockStatic(MembershipCache.class);
+        mockedMembershipCacheStatic.when(MembershipCache::getInstance).thenReturn(mockMembershipCache);
 
         activity = Robolectric.buildActivity(FragmentActivity.class)
                 .create()
@@ -103,11 +118,13 @@ public class BrowseFragmentNavigationTest {
     }
 
     @After
-    public void tearDown() {
+    public void tearDown() throws Exception {
+        resetEventFeed();
         mockedAuthStatic.close();
         mockedDbStatic.close();
         mockedImageManagerStatic.close();
         mockedWaitlistManagerStatic.close();
+        mockedMembershipCacheStatic.close();
     }
 
     @Test
@@ -117,7 +134,6 @@ public class BrowseFragmentNavigationTest {
         when(mockEventDoc.getId()).thenReturn(testEventId);
         when(mockEventDoc.getString("eventName")).thenReturn("Navigation Test Event");
         when(mockEventDoc.getString("price")).thenReturn("20.0");
-        when(mockEventDoc.get("waitlistUsers")).thenReturn(new ArrayList<>());
         when(mockEventDoc.getString("organizerName")).thenReturn("Test Org");
         when(mockEventDoc.getString("location")).thenReturn("Test Loc");
         when(mockEventDoc.getString("startDate")).thenReturn("2025-01-01");
@@ -129,13 +145,11 @@ public class BrowseFragmentNavigationTest {
 
         List<QueryDocumentSnapshot> mockDocs = Collections.singletonList(mockEventDoc);
 
-        when(mockQuerySnapshot.isEmpty()).thenReturn(false);
-        when(mockQuerySnapshot.iterator()).thenReturn(mockDocs.iterator());
-        doAnswer(invocation -> {
-            Consumer<QueryDocumentSnapshot> consumer = invocation.getArgument(0);
-            mockDocs.forEach(consumer);
-            return null;
-        }).when(mockQuerySnapshot).forEach(any());
+        List<DocumentChange> changes = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : mockDocs) {
+            changes.add(added(doc));
+        }
+        when(mockQuerySnapshot.getDocumentChanges()).thenReturn(changes);
 
 
         fragment = new BrowseFragment();
@@ -144,9 +158,9 @@ public class BrowseFragmentNavigationTest {
         tx.add(android.R.id.content, fragment);
         tx.commitNow();
 
-        ArgumentCaptor<OnSuccessListener> captor = ArgumentCaptor.forClass(OnSuccessListener.class);
-        org.mockito.Mockito.verify(mockQueryTask, org.mockito.Mockito.atLeast(1)).addOnSuccessListener(captor.capture());
-        captor.getValue().onSuccess(mockQuerySnapshot);
+        ArgumentCaptor<EventListener> captor = ArgumentCaptor.forClass(EventListener.class);
+        org.mockito.Mockito.verify(mockPageQuery).addSnapshotListener(captor.capture());
+        captor.getValue().onEvent(mockQuerySnapshot, null);
         shadowOf(Looper.getMainLooper()).runToEndOfTasks();
 
         RecyclerView recyclerView = fragment.getView().findViewById(R.id.events_recycler_view);
@@ -172,4 +186,18 @@ public class BrowseFragmentNavigationTest {
 
         assertEquals(testEventId, startedIntent.getStringExtra("eventId"));
     }
+
+    private DocumentChange added(QueryDocumentSnapshot doc) {
+        DocumentChange change = mock(DocumentChange.class);
+        when(change.getType()).thenReturn(DocumentChange.Type.ADDED);
+        when(change.getDocument()).thenReturn(doc);
+        return change;
+    }
+
+    /** the feed is a singleton that outlives the fragment, start each test without it */
+    private void resetEventFeed() throws Exception {
+        Field instance = EventFeed.class.getDeclaredField("instance");
+        instance.setAccessible(true);
+        instance.set(null, null);
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.managers.CSVDownloadManager;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for CSVDownloadManager
+ * Tests the CSV contents written for entrant lists
+ */
+public class CSVDownloadManagerTest {
+    // TEST 1: Plain lists only have a Name column
+    @Test
+    public void testBuildCSVNamesOnly() {
+        String csv = CSVDownloadManager.buildCSV(Arrays.asList("Alice", "Bob"), false);
+
+        assertEquals("Name\nAlice\nBob\n", csv);
+    }
+    // TEST 2: Waitlists get a real Position column, not "1. Alice" in the name
+    @Test
+    public void testBuildCSVWithPositions() {
+        String csv = CSVDownloadManager.buildCSV(Arrays.asList("Alice", "Bob"), true);
+
+        assertEquals("Position,Name\n1,Alice\n2,Bob\n", csv);
+    }
+    // TEST 3: Commas in names can't shift the columns
+    @Test
+    public void testBuildCSVStripsCommas() {
+        String csv = CSVDownloadManager.buildCSV(Arrays.asList("Smith, Alice"), true);
+
+        assertEquals("Position,Name\n1,Smith  Alice\n", csv);
+    }
+}
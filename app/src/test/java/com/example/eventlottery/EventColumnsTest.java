@@ -0,0 +1,56 @@
+package com.example.eventlottery;
+
+import static com.example.eventlottery.TestEvents.event;
+import static org.junit.Assert.assertEquals;
+
+import com.example.eventlottery.event_classes.EventDates;
+import com.example.eventlottery.utils.EventColumns;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Tests for EventColumns
+ * Tests the parsed columns and filtering by scanning them
+ */
+public class EventColumnsTest {
+
+    private final EventColumns columns = new EventColumns(Arrays.asList(
+            event("Music", 12.5, "10/15/2025", "10/16/2025"),
+            event("Sports", 0.29, "Every Friday", "Every Friday"),
+            event("Music", 40, "2025-11-01", "2025-11-01")));
+
+    // TEST 1: Prices, days and categories are parsed once into the columns
+    @Test
+    public void testColumnsHoldParsedValues() {
+        assertEquals(3, columns.size());
+        assertEquals(1250, columns.priceCents(0));
+        assertEquals(29, columns.priceCents(1));
+        assertEquals(EventDates.parseEpochDay("10/15/2025"), columns.startDay(0));
+        assertEquals(EventColumns.NO_DAY, columns.startDay(1));
+
+        // IDs in the order categories first show up
+        assertEquals(2, columns.categoryCount());
+        assertEquals(columns.categoryId(0), columns.categoryId(2));
+        assertEquals(1, columns.categoryId("Sports"));
+        assertEquals(EventColumns.NO_CATEGORY, columns.categoryId("Yoga"));
+    }
+
+    // TEST 2: Filtering checks every facet against the columns
+    @Test
+    public void testFilterScansColumns() {
+        EventFilter filter = new EventFilter();
+        filter.setActivityType("Music");
+        filter.setMaxPrice(12.5);
+        assertEquals(BitSet.valueOf(new long[]{0b001}), columns.filter(filter));
+
+        filter = new EventFilter();
+        filter.setStartDate("2025-10-01");
+        assertEquals(BitSet.valueOf(new long[]{0b101}), columns.filter(filter));
+
+        filter.setActivityType("Yoga");
+        assertEquals(new BitSet(), columns.filter(filter));
+    }
+}
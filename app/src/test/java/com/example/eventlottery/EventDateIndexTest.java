@@ -0,0 +1,74 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.eventlottery.event_classes.EventDates;
+import com.example.eventlottery.utils.EventDateIndex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for EventDateIndex
+ * Tests date range queries over parsed event days
+ */
+public class EventDateIndexTest {
+
+    private static long day(String date) {
+        return EventDates.parseEpochDay(date);
+    }
+
+    // TEST 1: Only events entirely inside the range match, events without real dates never do
+    @Test
+    public void testOnlyEventsEntirelyInRange() {
+        EventDateIndex index = new EventDateIndex(Arrays.asList(
+                new EventDates("12/20/2024", "01/05/2025"),
+                new EventDates("01/10/2025", "01/12/2025"),
+                new EventDates("Every Friday", "Every Friday"),
+                new EventDates("2025-02-01", "2025-02-01")));
+
+        BitSet january = index.query(day("2025-01-01"), day("2025-01-31"));
+        assertEquals(1, january.cardinality());
+        assertTrue(january.get(1));
+
+        // no limits still leaves out the event with no real dates
+        BitSet all = index.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(3, all.cardinality());
+        assertFalse(all.get(2));
+        assertEquals(4, index.size());
+    }
+
+    // TEST 2: Range queries give the same results as checking every event
+    @Test
+    public void testQueryMatchesFullScan() {
+        Random random = new Random(7);
+        List<EventDates> dates = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (random.nextInt(20) == 0) {
+                dates.add(new EventDates("TBD", "TBD"));
+                continue;
+            }
+            int month = 1 + random.nextInt(12);
+            int start = 1 + random.nextInt(28);
+            int end = Math.min(28, start + random.nextInt(5));
+            dates.add(new EventDates(month + "/" + start + "/2025", month + "/" + end + "/2025"));
+        }
+        EventDateIndex index = new EventDateIndex(dates);
+
+        for (int i = 0; i < 50; i++) {
+            long from = day("2025-01-01") + random.nextInt(365);
+            long to = from + random.nextInt(60);
+            BitSet found = index.query(from, to);
+            for (int position = 0; position < dates.size(); position++) {
+                assertEquals(EventDateIndex.matches(dates.get(position), from, to), found.get(position));
+            }
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.example.eventlottery.event_classes.EventDates;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for EventDates class
@@ -83,4 +85,24 @@ public class EventDatesTest {
                 "2025-10-15 - 2025-10-21",
                 dates.toRangeString());
     }
-}
\ No newline at end of file
+    // TEST 11: Parsed days are in date order, not string order
+    @Test
+    public void testParsedDaysAreChronological() {
+        assertEquals(0, EventDates.parseEpochDay("01/01/1970"));
+        assertEquals(EventDates.parseEpochDay("2025-10-15"), EventDates.parseEpochDay("10/15/2025"));
+        // "12/01/2024" sorts after "01/15/2025" as a string
+        assertTrue(EventDates.parseEpochDay("12/01/2024") < EventDates.parseEpochDay("01/15/2025"));
+        assertEquals(1, EventDates.parseEpochDay("03/01/2024") - EventDates.parseEpochDay("02/29/2024"));
+    }
+    // TEST 12: Values that aren't dates are flagged
+    @Test
+    public void testNonDatesAreFlagged() {
+        assertEquals(EventDates.NOT_A_DATE, EventDates.parseEpochDay("Every Friday"));
+        assertEquals(EventDates.NOT_A_DATE, EventDates.parseEpochDay("02/30/2025"));
+        assertEquals(EventDates.NOT_A_DATE, EventDates.parseEpochDay(null));
+
+        EventDates dates = new EventDates("Every Friday", "10/21/2025");
+        assertFalse(dates.isParsed());
+        assertEquals("Every Friday", dates.getStartDate());
+    }
+}
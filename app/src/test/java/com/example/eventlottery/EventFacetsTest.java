@@ -0,0 +1,78 @@
+package com.example.eventlottery;
+
+import static com.example.eventlottery.TestEvents.event;
+import static org.junit.Assert.assertEquals;
+
+import com.example.eventlottery.event_classes.Event;
+import com.example.eventlottery.event_classes.EventDates;
+import com.example.eventlottery.utils.EventColumns;
+import com.example.eventlottery.utils.EventFacets;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for EventFacets
+ * Tests matching filters with the precomputed facet bitsets
+ */
+public class EventFacetsTest {
+
+    // TEST 1: A filter matches the events in every facet it sets
+    @Test
+    public void testFilterIsAndOfFacets() {
+        EventFacets facets = new EventFacets(new EventColumns(Arrays.asList(
+                event("Music", 0.0, new EventDates("10/15/2025", "10/15/2025")),
+                event("Music", 25.0, new EventDates("11/01/2025", "11/02/2025")),
+                event("Sports", 25.0, new EventDates("10/20/2025", "10/20/2025")),
+                event("Music", 120.0, new EventDates("Every Friday", "Every Friday")))));
+
+        EventFilter filter = new EventFilter();
+        assertEquals(4, facets.match(filter).cardinality());
+
+        filter.setActivityType("Music");
+        filter.setMinPrice(10.0);
+        BitSet musicFromTen = facets.match(filter);
+        assertEquals(2, musicFromTen.cardinality());
+        assertEquals(1, musicFromTen.nextSetBit(0));
+
+        filter.setEndDate("2025-12-31");
+        assertEquals(1, facets.match(filter).cardinality());
+
+        filter.setActivityType("Yoga");
+        assertEquals(0, facets.match(filter).cardinality());
+    }
+
+    // TEST 2: Any combination of facets gives the same events as scanning the columns
+    @Test
+    public void testMatchEqualsColumnScan() {
+        Random random = new Random(11);
+        String[] categories = {"Sports", "Music", "Arts", "Tech", "Other"};
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(28);
+            events.add(event(categories[random.nextInt(categories.length)],
+                    random.nextInt(4) == 0 ? 0.0 : random.nextInt(30000) / 100.0,
+                    new EventDates(month + "/" + day + "/2025", month + "/" + Math.min(28, day + 2) + "/2025")));
+        }
+        EventColumns columns = new EventColumns(events);
+        EventFacets facets = new EventFacets(columns);
+
+        for (int i = 0; i < 100; i++) {
+            EventFilter filter = new EventFilter();
+            if (random.nextBoolean()) filter.setActivityType(categories[random.nextInt(categories.length)]);
+            if (random.nextBoolean()) filter.setMinPrice(random.nextInt(20000) / 100.0);
+            if (random.nextBoolean()) filter.setMaxPrice(random.nextInt(30000) / 100.0);
+            if (random.nextBoolean()) filter.setStartDate(String.format("2025-%02d-01", 1 + random.nextInt(12)));
+            if (random.nextBoolean()) filter.setEndDate(String.format("2025-%02d-28", 1 + random.nextInt(12)));
+
+            assertEquals(columns.filter(filter), facets.match(filter));
+        }
+        assertEquals(2000, facets.size());
+    }
+}
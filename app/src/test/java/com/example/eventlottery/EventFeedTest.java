@@ -0,0 +1,181 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.eventlottery.event_classes.Event;
+import com.example.eventlottery.managers.EventFeed;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class EventFeedTest {
+
+    @Mock private FirebaseFirestore mockDb;
+    @Mock private CollectionReference mockEventsCollection;
+    @Mock private Query mockQuery;
+
+    private EventFeed feed;
+    private final List<Set<String>> deliveries = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mockDb.collection("events")).thenReturn(mockEventsCollection);
+        when(mockEventsCollection.orderBy(any(FieldPath.class))).thenReturn(mockQuery);
+        when(mockQuery.limit(anyLong())).thenReturn(mockQuery);
+        when(mockQuery.startAfter(any(DocumentSnapshot.class))).thenReturn(mockQuery);
+        when(mockQuery.endAt(any(DocumentSnapshot.class))).thenReturn(mockQuery);
+
+        feed = new EventFeed(mockDb);
+        feed.setPageSize(2);
+        feed.addListener(deliveries::add);
+    }
+
+    /** every page listener attached so far, in order */
+    @SuppressWarnings("unchecked")
+    private List<EventListener<QuerySnapshot>> captureListeners(int count) {
+        ArgumentCaptor<EventListener<QuerySnapshot>> captor = ArgumentCaptor.forClass(EventListener.class);
+        verify(mockQuery, times(count)).addSnapshotListener(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private QueryDocumentSnapshot document(String id, String name) {
+        QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getString("eventName")).thenReturn(name);
+        return document;
+    }
+
+    private DocumentChange change(DocumentChange.Type type, QueryDocumentSnapshot document) {
+        DocumentChange change = mock(DocumentChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getDocument()).thenReturn(document);
+        return change;
+    }
+
+    /**
+     * @param documents what the page holds after this snapshot
+     * @param changes what changed to get there
+     */
+    private QuerySnapshot snapshot(List<DocumentSnapshot> documents, DocumentChange... changes) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(documents);
+        when(snapshot.getDocumentChanges()).thenReturn(Arrays.asList(changes));
+        return snapshot;
+    }
+
+    @Test
+    public void testAppliesOnlyChanges() {
+        QueryDocumentSnapshot a = document("a", "Ramen");
+        QueryDocumentSnapshot b = document("b", "Udon");
+        EventListener<QuerySnapshot> listener = captureListeners(1).get(0);
+        listener.onEvent(snapshot(Arrays.asList(a, b),
+                change(DocumentChange.Type.ADDED, a),
+                change(DocumentChange.Type.ADDED, b)), null);
+
+        assertTrue(feed.isLoaded());
+        assertEquals(2, feed.getEvents().size());
+
+        QueryDocumentSnapshot renamed = document("a", "Ramen Night");
+        listener.onEvent(snapshot(Collections.singletonList(renamed),
+                change(DocumentChange.Type.MODIFIED, renamed),
+                change(DocumentChange.Type.REMOVED, b)), null);
+
+        assertEquals("Ramen Night", feed.get("a").getTitle());
+        assertNull(feed.get("b"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), deliveries.get(1));
+    }
+
+    @Test
+    public void testLaterListenersShareTheLoadedPages() {
+        QueryDocumentSnapshot a = document("a", "Ramen");
+        captureListeners(1).get(0).onEvent(snapshot(Collections.singletonList(a),
+                change(DocumentChange.Type.ADDED, a)), null);
+
+        List<Set<String>> second = new ArrayList<>();
+        feed.addListener(second::add);
+
+        // nothing new is read, the events are already in memory
+        captureListeners(1);
+        assertEquals("Ramen", feed.get("a").getTitle());
+        assertTrue(second.isEmpty());
+    }
+
+    @Test
+    public void testLoadMorePinsFullPageAndStopsAtTheEnd() {
+        QueryDocumentSnapshot a = document("a", "Ramen");
+        QueryDocumentSnapshot b = document("b", "Udon");
+        QueryDocumentSnapshot c = document("c", "Soba");
+
+        assertFalse("first page is still loading", feed.loadMore());
+        captureListeners(1).get(0).onEvent(snapshot(Arrays.asList(a, b),
+                change(DocumentChange.Type.ADDED, a),
+                change(DocumentChange.Type.ADDED, b)), null);
+        assertTrue(feed.hasMore());
+
+        assertTrue(feed.loadMore());
+        verify(mockQuery).endAt(b);
+        verify(mockQuery).startAfter(b);
+
+        // the first page again, pinned to a..b, b was deleted in between
+        List<EventListener<QuerySnapshot>> listeners = captureListeners(3);
+        listeners.get(1).onEvent(snapshot(Collections.singletonList(a),
+                change(DocumentChange.Type.ADDED, a)), null);
+        // the second page isn't full, so it's the last one
+        listeners.get(2).onEvent(snapshot(Collections.singletonList(c),
+                change(DocumentChange.Type.ADDED, c)), null);
+
+        assertNull(feed.get("b"));
+        assertEquals(2, feed.getEvents().size());
+        assertFalse(feed.hasMore());
+        assertFalse(feed.loadMore());
+    }
+
+    @Test
+    public void testEventsStayInDocumentIdOrder() {
+        QueryDocumentSnapshot a = document("a", "Ramen");
+        QueryDocumentSnapshot c = document("c", "Soba");
+        QueryDocumentSnapshot b = document("b", "Udon");
+        EventListener<QuerySnapshot> listener = captureListeners(1).get(0);
+        listener.onEvent(snapshot(Arrays.asList(a, c),
+                change(DocumentChange.Type.ADDED, a),
+                change(DocumentChange.Type.ADDED, c)), null);
+        // created later, but sorts between the two
+        listener.onEvent(snapshot(Arrays.asList(a, b, c),
+                change(DocumentChange.Type.ADDED, b)), null);
+
+        List<String> ids = new ArrayList<>();
+        for (Event event : feed.getEvents()) {
+            ids.add(event.getId());
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), ids);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.eventlottery.utils.EventSearchIndex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for EventSearchIndex
+ * Tests normalizing titles and searching them by word prefix
+ */
+public class EventSearchIndexTest {
+
+    // TEST 1: Accents, case and punctuation don't matter
+    @Test
+    public void testNormalizeFoldsAccentsAndPunctuation() {
+        assertEquals("cafe creme brulee", EventSearchIndex.normalize("  Café  Crème-Brûlée! "));
+        assertEquals("", EventSearchIndex.normalize(null));
+    }
+
+    // TEST 2: Every word of the query has to start a word of the title, in any order
+    @Test
+    public void testMatchesEveryWordInAnyOrder() {
+        EventSearchIndex index = new EventSearchIndex(Arrays.asList(
+                "Ramen Night", "Jazz Café", "Night Market", "Coding Workshop"));
+
+        assertArrayEquals(new int[]{0, 2}, index.search("NIGHT"));
+        assertArrayEquals(new int[]{1}, index.search("cafe jaz"));
+        assertArrayEquals(new int[]{2}, index.search("mark nig"));
+        assertArrayEquals(new int[0], index.search("yoga"));
+        assertNull(index.search("  "));
+    }
+
+    // TEST 3: Typing a query a letter at a time (so later searches narrow the earlier ones)
+    // gives the same results as checking every title
+    @Test
+    public void testNarrowingMatchesFullScan() {
+        Random random = new Random(3);
+        String[] words = {"ramen", "night", "market", "jazz", "café", "yoga", "run", "art"};
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            titles.add(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+        }
+        EventSearchIndex index = new EventSearchIndex(titles);
+
+        for (String query : new String[]{"m", "ma", "mar", "mar n", "mar ni", "r", "ra", "cafe", "j"}) {
+            int[] found = index.search(query);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < titles.size(); i++) {
+                if (EventSearchIndex.matches(titles.get(i), query)) expected.add(i);
+            }
+            assertEquals(query, expected.size(), found.length);
+            for (int i = 0; i < found.length; i++) {
+                assertEquals(query, (int) expected.get(i), found[i]);
+            }
+        }
+        assertEquals(titles.size(), index.size());
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.event_classes.Event;
+import com.example.eventlottery.event_classes.EventDates;
+import com.example.eventlottery.event_classes.EventViewModel;
+import com.example.eventlottery.utils.EventColumns;
+import com.example.eventlottery.utils.EventDateIndex;
+import com.example.eventlottery.utils.EventFacets;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the three ways browse can filter a big catalog, runs on the plain JVM (no firebase):
+ * checking each EventViewModel through its Event, Money and EventDates objects, scanning the
+ * EventColumns arrays, and ANDing EventFacets bitsets.
+ * Every approach gets the same seeded events and filters and their matches are counted, so a
+ * run also checks they agree. Run main() for the full report, EventStoreBenchmarkTest runs a
+ * smaller version on every build.
+ */
+public class EventStoreBenchmark {
+
+    private static final String[] CATEGORIES = {"Sports", "Music", "Arts", "Tech", "Educational", "Workshops", "Other"};
+
+    /**
+     * What to benchmark
+     */
+    public static class Config {
+        /** events in the catalog */
+        public int events = 100_000;
+        /** filters timed per approach */
+        public int filters = 200;
+        /** untimed passes over the filters first, so the JIT has compiled everything */
+        public int warmupRounds = 3;
+        public long seed = 42L;
+    }
+
+    /**
+     * Timings from a run
+     */
+    public static class Report {
+        final int events;
+        final int filters;
+        long objectNanos;
+        long columnNanos;
+        long facetNanos;
+        /** bytes allocated by each approach's timed passes, -1 if the JVM can't tell */
+        long objectBytes = -1;
+        long columnBytes = -1;
+        long facetBytes = -1;
+        /** total matches over every filter, the same for every approach */
+        public long objectMatches;
+        public long columnMatches;
+        public long facetMatches;
+
+        Report(Config config) {
+            events = config.events;
+            filters = config.filters;
+        }
+
+        /** @return nanoseconds per event per filter */
+        private double perEvent(long nanos) {
+            return nanos / ((double) events * filters);
+        }
+
+        public String summary() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.US, "%,d events, %,d filters, %,d matches%n",
+                    events, filters, objectMatches));
+            out.append(String.format(Locale.US, "object graph  %8.2f ms/filter  %6.2f ns/event  %s%n",
+                    objectNanos / 1e6 / filters, perEvent(objectNanos), bytes(objectBytes)));
+            out.append(String.format(Locale.US, "columns       %8.2f ms/filter  %6.2f ns/event  %s%n",
+                    columnNanos / 1e6 / filters, perEvent(columnNanos), bytes(columnBytes)));
+            out.append(String.format(Locale.US, "facets        %8.2f ms/filter  %6.2f ns/event  %s%n",
+                    facetNanos / 1e6 / filters, perEvent(facetNanos), bytes(facetBytes)));
+            return out.toString();
+        }
+
+        private String bytes(long bytes) {
+            return bytes < 0 ? "" : String.format(Locale.US, "%,d bytes/filter", bytes / filters);
+        }
+    }
+
+    /**
+     * Builds the catalog and filters from the seed, then times each approach over them
+     */
+    public static Report run(Config config) {
+        Random random = new Random(config.seed);
+        List<EventViewModel> viewModels = new ArrayList<>(config.events);
+        List<Event> events = new ArrayList<>(config.events);
+        for (int i = 0; i < config.events; i++) {
+            Event event = event(random, i);
+            events.add(event);
+            viewModels.add(new EventViewModel(event, false));
+        }
+        EventFilter[] filters = new EventFilter[config.filters];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = filter(random);
+        }
+        EventColumns columns = new EventColumns(events);
+        EventFacets facets = new EventFacets(columns);
+
+        for (int round = 0; round < config.warmupRounds; round++) {
+            for (EventFilter filter : filters) {
+                objectGraphCount(viewModels, filter);
+                columns.filter(filter).cardinality();
+                facets.match(filter).cardinality();
+            }
+        }
+
+        Report report = new Report(config);
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (EventFilter filter : filters) {
+            report.objectMatches += objectGraphCount(viewModels, filter);
+        }
+        report.objectNanos = System.nanoTime() - start;
+        report.objectBytes = allocatedSince(bytes);
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (EventFilter filter : filters) {
+            report.columnMatches += columns.filter(filter).cardinality();
+        }
+        report.columnNanos = System.nanoTime() - start;
+        report.columnBytes = allocatedSince(bytes);
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        for (EventFilter filter : filters) {
+            report.facetMatches += facets.match(filter).cardinality();
+        }
+        report.facetNanos = System.nanoTime() - start;
+        report.facetBytes = allocatedSince(bytes);
+        return report;
+    }
+
+    /**
+     * How browse filtered before the columns: every check goes through the view model to the
+     * event and its value objects
+     */
+    static int objectGraphCount(List<EventViewModel> viewModels, EventFilter filter) {
+        boolean dateFiltering = filter.getStartDate() != null || filter.getEndDate() != null;
+        long fromDay = filter.getStartDate() != null ? EventDates.parseEpochDay(filter.getStartDate()) : Long.MIN_VALUE;
+        long toDay = filter.getEndDate() != null ? EventDates.parseEpochDay(filter.getEndDate()) : Long.MAX_VALUE;
+        int count = 0;
+        for (EventViewModel eventVM : viewModels) {
+            if (filter.getActivityType() != null && !filter.getActivityType().equals(eventVM.getCategory())) {
+                continue;
+            }
+            // compared in cents, like the columns, so the counts agree exactly
+            long cents = Math.round(eventVM.getPrice() * 100);
+            if ((filter.getMinPrice() != null && cents < Math.round(filter.getMinPrice() * 100)) ||
+                (filter.getMaxPrice() != null && cents > Math.round(filter.getMaxPrice() * 100))) {
+                continue;
+            }
+            if (dateFiltering && !EventDateIndex.matches(eventVM.getEvent().getDates(), fromDay, toDay)) {
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static Event event(Random random, int index) {
+        String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        double price = random.nextInt(4) == 0 ? 0 : random.nextInt(20000) / 100.0;
+        EventDates dates;
+        if (random.nextInt(50) == 0) {
+            dates = new EventDates("Every Friday", "Every Friday");
+        } else {
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(28);
+            dates = new EventDates(month + "/" + day + "/2026", month + "/" + Math.min(28, day + random.nextInt(4)) + "/2026");
+        }
+        return TestEvents.event("event" + index, "Event " + index, category, price, dates);
+    }
+
+    // each facet is set half the time, like someone trying out the filter dialog
+    private static EventFilter filter(Random random) {
+        EventFilter filter = new EventFilter();
+        if (random.nextBoolean()) filter.setActivityType(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        if (random.nextBoolean()) filter.setMinPrice((double) random.nextInt(100));
+        if (random.nextBoolean()) filter.setMaxPrice((double) (50 + random.nextInt(150)));
+        if (random.nextBoolean()) {
+            int month = 1 + random.nextInt(12);
+            filter.setStartDate(String.format(Locale.US, "2026-%02d-01", month));
+            filter.setEndDate(String.format(Locale.US, "2026-%02d-28", Math.min(12, month + random.nextInt(3))));
+        }
+        return filter;
+    }
+
+    // HotSpot can report what the current thread has allocated, other JVMs can't
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long allocatedSince(long before) {
+        return before < 0 ? -1 : allocatedBytes() - before;
+    }
+
+    /**
+     * Runs the full benchmark and prints the report.
+     * Optional args: events, filters
+     */
+    public static void main(String[] args) {
+        Config config = new Config();
+        if (args.length > 0) config.events = Integer.parseInt(args[0]);
+        if (args.length > 1) config.filters = Integer.parseInt(args[1]);
+        System.out.print(run(config).summary());
+    }
+}
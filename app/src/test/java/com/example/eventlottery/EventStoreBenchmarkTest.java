@@ -0,0 +1,28 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Runs a small version of EventStoreBenchmark on every build, checking the approaches agree.
+ * Timings at this size don't mean much, the full report is main()
+ */
+public class EventStoreBenchmarkTest {
+
+    // TEST 1: The object graph, the columns and the facets find the same events
+    @Test
+    public void testApproachesAgree() {
+        EventStoreBenchmark.Config config = new EventStoreBenchmark.Config();
+        config.events = 5_000;
+        config.filters = 100;
+        config.warmupRounds = 0;
+
+        EventStoreBenchmark.Report report = EventStoreBenchmark.run(config);
+
+        assertTrue("Some filters should match something", report.objectMatches > 0);
+        assertEquals(report.objectMatches, report.columnMatches);
+        assertEquals(report.objectMatches, report.facetMatches);
+    }
+}
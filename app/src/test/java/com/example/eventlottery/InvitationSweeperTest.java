@@ -0,0 +1,170 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.util.Log;
+
+import com.example.eventlottery.managers.InvitationSweeper;
+import com.example.eventlottery.managers.LotteryManager;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.MockedStatic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for InvitationSweeper
+ * Uses a fake clock so deadlines can be passed without waiting
+ */
+public class InvitationSweeperTest {
+
+    private MockedStatic<Log> mockedLog;
+    private LotteryManager mockLotteryManager;
+    private long fakeNow;
+    private InvitationSweeper sweeper;
+    private FirebaseFirestore mockDb;
+
+    @Before
+    public void setUp() {
+        mockedLog = mockStatic(Log.class);
+        mockLotteryManager = mock(LotteryManager.class);
+        fakeNow = 1000;
+        mockDb = mock(FirebaseFirestore.class);
+        sweeper = new InvitationSweeper(mockDb, mockLotteryManager, () -> fakeNow);
+    }
+
+    @After
+    public void tearDown() {
+        mockedLog.close();
+    }
+
+    // TEST 1: Invites are not expired before their deadline
+    @Test
+    public void testSweepWaitsForDeadline() {
+        sweeper.schedule("event1", "user1", 5000);
+
+        sweeper.sweep(null);
+
+        verify(mockLotteryManager, never()).expireInvitations(anyString(), anyList(), anyLong(), any());
+        assertEquals("Invite should still be queued", 1, sweeper.size());
+        assertEquals("Next deadline should be the invite's", 5000, sweeper.nextDeadline());
+    }
+
+    // TEST 2: Overdue invites are grouped by event and split into transaction sized chunks
+    @Test
+    public void testSweepGroupsAndChunksOverdueInvites() {
+        for (int i = 0; i < 450; i++) {
+            sweeper.schedule("bigEvent", "user" + i, 2000 + i);
+        }
+        sweeper.schedule("smallEvent", "userX", 2500);
+        sweeper.schedule("laterEvent", "userY", 100_000);
+
+        fakeNow = 10_000;
+        sweeper.sweep(null);
+
+        ArgumentCaptor<List<String>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(mockLotteryManager, times(3)).expireInvitations(eq("bigEvent"), chunks.capture(), eq(10_000L), any());
+        assertEquals(InvitationSweeper.MAX_EXPIRE_PER_TRANSACTION, chunks.getAllValues().get(0).size());
+        assertEquals(InvitationSweeper.MAX_EXPIRE_PER_TRANSACTION, chunks.getAllValues().get(1).size());
+        assertEquals(50, chunks.getAllValues().get(2).size());
+        verify(mockLotteryManager).expireInvitations(eq("smallEvent"), eq(Collections.singletonList("userX")), eq(10_000L), any());
+        verify(mockLotteryManager, never()).expireInvitations(eq("laterEvent"), anyList(), anyLong(), any());
+
+        assertEquals("Only the invite that isn't due stays queued", 1, sweeper.size());
+    }
+
+    // TEST 3: The same invite is only queued once
+    @Test
+    public void testScheduleIgnoresDuplicates() {
+        sweeper.schedule("event1", "user1", 2000);
+
+        assertFalse("Second schedule should be ignored", sweeper.schedule("event1", "user1", 2000));
+        assertEquals(1, sweeper.size());
+    }
+
+    // TEST 4: Queue hands invites back in deadline order
+    @Test
+    public void testTakeOverdueInDeadlineOrder() {
+        sweeper.schedule("event1", "late", 3000);
+        sweeper.schedule("event1", "early", 1500);
+        sweeper.schedule("event1", "middle", 2000);
+
+        List<String> overdue = sweeper.takeOverdue(2500).get("event1");
+
+        assertEquals(Arrays.asList("early", "middle"), overdue);
+        assertEquals(3000, sweeper.nextDeadline());
+    }
+
+    // TEST 5: After a full page the next load carries on past it instead of rereading it
+    @Test
+    public void testLoadPagesPastFullPage() {
+        Query query = mock(Query.class, Mockito.RETURNS_SELF);
+        Task<QuerySnapshot> task = mock(Task.class);
+        when(mockDb.collectionGroup("selections")).thenReturn(query);
+        when(query.get()).thenReturn(task);
+
+        // a full page of overdue invites the lottery keeps skipping, so they stay pending
+        DocumentSnapshot invite = mockInvite("skipped", 500);
+        DocumentSnapshot lastInvite = mockInvite("last", 500);
+        List<DocumentSnapshot> fullPage = new ArrayList<>(Collections.nCopies(InvitationSweeper.LOAD_LIMIT - 1, invite));
+        fullPage.add(lastInvite);
+        QuerySnapshot[] page = {mockPage(fullPage)};
+        when(task.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<QuerySnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(page[0]);
+            return task;
+        });
+
+        sweeper.load(() -> { });
+        verify(query, never()).startAfter(any(DocumentSnapshot.class));
+
+        page[0] = mockPage(Collections.singletonList(mockInvite("later", 900)));
+        sweeper.load(() -> { });
+        verify(query).startAfter(lastInvite);
+
+        // the short page reached the end, the next load starts from the top again
+        sweeper.load(() -> { });
+        verify(query, times(1)).startAfter(any(DocumentSnapshot.class));
+    }
+
+    // Helper: a pending selection document
+    private DocumentSnapshot mockInvite(String userId, long deadline) {
+        DocumentSnapshot invite = mock(DocumentSnapshot.class);
+        when(invite.getId()).thenReturn(userId);
+        when(invite.getString("eventId")).thenReturn("event1");
+        when(invite.getLong("deadline")).thenReturn(deadline);
+        return invite;
+    }
+
+    // Helper: one page of query results
+    private QuerySnapshot mockPage(List<DocumentSnapshot> invites) {
+        QuerySnapshot page = mock(QuerySnapshot.class);
+        when(page.getDocuments()).thenReturn(invites);
+        return page;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.managers.LotteryEngine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for LotteryEngine
+ * Tests the partial shuffle picks winners correctly and is repeatable with a seed
+ */
+public class LotteryEngineTest {
+
+    private List<String> makeEntrants(int count) {
+        List<String> entrants = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entrants.add("user" + i);
+        }
+        return entrants;
+    }
+
+    // TEST 1: Should pick exactly sampleSize distinct winners
+    @Test
+    public void testDrawPicksDistinctWinners() {
+        List<String> entrants = makeEntrants(100);
+        LotteryEngine.Draw draw = new LotteryEngine(42L).draw(entrants, 10);
+
+        Set<String> winners = new HashSet<>(draw.getWinners());
+        assertEquals("Should have 10 winners", 10, draw.getWinners().size());
+        assertEquals("Winners should be distinct", 10, winners.size());
+        assertTrue("Winners should come from the entrants", entrants.containsAll(winners));
+    }
+
+    // TEST 2: Winners plus remaining order should be a permutation of everyone
+    @Test
+    public void testRemainingCompletesPermutation() {
+        List<String> entrants = makeEntrants(50);
+        LotteryEngine.Draw draw = new LotteryEngine(7L).draw(entrants, 5);
+
+        List<String> remaining = draw.remaining();
+        Set<String> everyone = new HashSet<>(draw.getWinners());
+        everyone.addAll(remaining);
+
+        assertEquals("Remaining should hold the 45 losers", 45, remaining.size());
+        assertEquals("Every entrant should appear exactly once", 50, everyone.size());
+        assertFalse("Nothing should be left to draw", draw.hasNext());
+    }
+
+    // TEST 3: Same seed should give the same order
+    @Test
+    public void testSameSeedIsRepeatable() {
+        List<String> entrants = makeEntrants(1000);
+        LotteryEngine.Draw first = new LotteryEngine(123L).draw(entrants, 20);
+        LotteryEngine.Draw second = new LotteryEngine(123L).draw(entrants, 20);
+
+        assertEquals("Same seed should pick the same winners", first.getWinners(), second.getWinners());
+        assertEquals("Same seed should give the same replacement order", first.remaining(), second.remaining());
+    }
+
+    // TEST 4: Drawing should not modify the entrants list
+    @Test
+    public void testEntrantsListIsNotModified() {
+        List<String> entrants = Arrays.asList("a", "b", "c", "d", "e");
+        new LotteryEngine(1L).draw(entrants, 3).remaining();
+
+        assertEquals("Entrants list should be untouched", Arrays.asList("a", "b", "c", "d", "e"), entrants);
+    }
+
+    // TEST 5: Sample size bigger than the list is rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void testSampleSizeTooLargeThrows() {
+        new LotteryEngine(1L).draw(makeEntrants(3), 4);
+    }
+
+    // TEST 6: Weighted draw still gives every entrant exactly once, weight 0 entrants last
+    @Test
+    public void testWeightedDrawIsPermutationWithZeroWeightsLast() {
+        List<String> entrants = makeEntrants(1000);
+        double[] weights = new double[1000];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = i < 100 ? 0 : 1 + (i % 5);
+        }
+
+        LotteryEngine.Draw draw = new LotteryEngine(9L).drawWeighted(entrants, weights, 50);
+        List<String> order = new ArrayList<>(draw.getWinners());
+        order.addAll(draw.remaining());
+
+        assertEquals("Every entrant should appear exactly once", 1000, new HashSet<>(order).size());
+        Set<String> zeroWeight = new HashSet<>(entrants.subList(0, 100));
+        assertEquals("Weight 0 entrants should fill the end of the order",
+                zeroWeight, new HashSet<>(order.subList(900, 1000)));
+    }
+
+    // TEST 7: Heavier entrants should win more often
+    @Test
+    public void testWeightedDrawFavoursHeavierEntrants() {
+        List<String> entrants = Arrays.asList("light", "heavy");
+        double[] weights = {1, 3};
+
+        int heavyWins = 0;
+        for (long seed = 0; seed < 20000; seed++) {
+            if ("heavy".equals(new LotteryEngine(seed).drawWeighted(entrants, weights, 1).getWinners().get(0))) {
+                heavyWins++;
+            }
+        }
+
+        // expected 3/4 of the wins
+        assertTrue("Heavy entrant should win about 75% of the time, won " + heavyWins,
+                heavyWins > 14500 && heavyWins < 15500);
+    }
+
+    // TEST 8: Negative weights are rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightThrows() {
+        new LotteryEngine(1L).drawWeighted(Arrays.asList("a", "b"), new double[]{1, -1}, 1);
+    }
+}
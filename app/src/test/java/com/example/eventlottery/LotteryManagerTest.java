@@ -1,6 +1,7 @@
 package com.example.eventlottery;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -20,12 +21,15 @@ import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.WriteBatch;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
@@ -34,8 +38,11 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class LotteryManagerTest {
 
@@ -49,6 +56,22 @@ public class LotteryManagerTest {
     @Mock private Task<DocumentSnapshot> mockDocTask;
     @Mock private Task<Void> mockVoidTask;
     @Mock private Task<String[]> mockTransactionTask; // For replacement result
+    @Mock private CollectionReference mockLotteryCollection;
+    @Mock private DocumentReference mockLotteryRef;
+    @Mock private DocumentSnapshot mockLotterySnapshot;
+    @Mock private CollectionReference mockPagesCollection;
+    @Mock private DocumentReference mockPageRef;
+    @Mock private DocumentSnapshot mockPageSnapshot;
+    @Mock private CollectionReference mockSelectionsCollection;
+    @Mock private DocumentReference mockSelectionRef;
+    @Mock private DocumentSnapshot mockSelectionSnapshot;
+    @Mock private CollectionReference mockCountersCollection;
+    @Mock private DocumentReference mockCountersRef;
+    @Mock private CollectionReference mockWaitlistCollection;
+    @Mock private Task<QuerySnapshot> mockQueryTask;
+    @Mock private QuerySnapshot mockQuerySnapshot;
+    @Mock private Task<QuerySnapshot> mockSelectionsTask;
+    @Mock private QuerySnapshot mockSelectionsQuery;
 
     private MockedStatic<FirebaseFirestore> mockedFirestoreStatic;
     private MockedStatic<Log> mockedLog;
@@ -70,11 +93,26 @@ public class LotteryManagerTest {
         when(mockCollectionRef.document(anyString())).thenReturn(mockDocRef);
         when(mockDb.batch()).thenReturn(mockBatch);
 
+        // lottery state and order pages
+        when(mockDb.collection("lotteries")).thenReturn(mockLotteryCollection);
+        when(mockLotteryCollection.document(anyString())).thenReturn(mockLotteryRef);
+        when(mockLotteryRef.collection("orderPages")).thenReturn(mockPagesCollection);
+        when(mockPagesCollection.document(anyString())).thenReturn(mockPageRef);
+        when(mockLotteryRef.collection("selections")).thenReturn(mockSelectionsCollection);
+        when(mockSelectionsCollection.document(anyString())).thenReturn(mockSelectionRef);
+        when(mockLotteryRef.collection("counters")).thenReturn(mockCountersCollection);
+        when(mockCountersCollection.document("selections")).thenReturn(mockCountersRef);
+        mockPreviousSelections(Collections.emptyList());
+
         // 4. Instantiate manager
         lotteryManager = new LotteryManager();
 
         // 5. Inject mock NotificationManager
         injectPrivateField(lotteryManager, "notificationManager", mockNotificationManager);
+
+        // 6. Run the background draw inline so the tests stay synchronous
+        injectPrivateField(lotteryManager, "lotteryExecutor", (java.util.concurrent.Executor) Runnable::run);
+        injectPrivateField(lotteryManager, "mainThread", (java.util.concurrent.Executor) Runnable::run);
     }
 
     @After
@@ -103,7 +141,7 @@ public class LotteryManagerTest {
         });
 
         when(mockSnapshot.exists()).thenReturn(true);
-        when(mockSnapshot.get("waitlistUsers")).thenReturn(waitlist);
+        mockWaitlist(waitlist);
         when(mockSnapshot.getString("eventName")).thenReturn("Test Event");
 
         // Mock Batch Commit
@@ -120,8 +158,18 @@ public class LotteryManagerTest {
         lotteryManager.initializeLottery(eventId, sampleSize, callback);
 
         // Assert
-        verify(mockBatch).update(eq(mockDocRef), eq("lotteryOrder"), any());
-        verify(mockBatch).update(eq(mockDocRef), eq("currentDrawIndex"), eq(sampleSize));
+        // 5 entrants fit on one page, written next to the lottery state
+        verify(mockBatch).set(eq(mockPageRef), any());
+        ArgumentCaptor<Map> lotteryData = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch).set(eq(mockLotteryRef), lotteryData.capture());
+        org.junit.Assert.assertEquals(sampleSize, lotteryData.getValue().get("currentDrawIndex"));
+        org.junit.Assert.assertEquals(5, lotteryData.getValue().get("entrantCount"));
+        verify(mockBatch, never()).update(eq(mockDocRef), eq("lotteryOrder"), any());
+        // each winner gets their own selection document, nothing is written to the event
+        verify(mockBatch, org.mockito.Mockito.times(2)).set(eq(mockSelectionRef), any());
+        verify(mockBatch).set(eq(mockCountersRef), any());
+        verify(mockBatch, never()).update(eq(mockDocRef), eq("selected"), any());
+        verify(mockBatch, org.mockito.Mockito.times(1)).commit();
         verify(mockNotificationManager, org.mockito.Mockito.times(2))
                 .sendWinNotification(anyString(), eq(eventId), anyString());
         verify(callback).onSuccess(anyString());
@@ -144,7 +192,7 @@ public class LotteryManagerTest {
             return mockDocTask;
         });
         when(mockSnapshot.exists()).thenReturn(true);
-        when(mockSnapshot.get("waitlistUsers")).thenReturn(waitlist);
+        mockWaitlist(waitlist);
 
         LotteryManager.LotteryCallback callback = mock(LotteryManager.LotteryCallback.class);
 
@@ -163,7 +211,7 @@ public class LotteryManagerTest {
         // Arrange
         String eventId = "event_replace";
         List<String> lotteryOrder = Arrays.asList("UserA", "UserB", "UserC");
-        List<String> retryEntrants = Collections.singletonList("UserC"); // Only C wants retry
+        List<Long> retryPositions = Collections.singletonList(2L); // Only C wants retry
         long currentIndex = 1; // Start looking at UserB
 
         // Mock Transaction
@@ -179,10 +227,8 @@ public class LotteryManagerTest {
         when(mockTransaction.get(mockDocRef)).thenReturn(mockSnapshot);
 
         when(mockSnapshot.exists()).thenReturn(true);
-        when(mockSnapshot.get("lotteryOrder")).thenReturn(lotteryOrder);
-        when(mockSnapshot.get("retryEntrants")).thenReturn(retryEntrants);
-        when(mockSnapshot.getLong("currentDrawIndex")).thenReturn(currentIndex);
         when(mockSnapshot.getString("eventName")).thenReturn("Replacement Event");
+        mockLottery(lotteryOrder, retryPositions, currentIndex);
 
         // Mock Transaction Success
         when(mockTransactionTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
@@ -197,12 +243,451 @@ public class LotteryManagerTest {
         lotteryManager.drawReplacement(eventId, callback);
 
         // Assert
-        verify(mockTransaction).update(eq(mockDocRef), eq("currentDrawIndex"), eq(3));
+        verify(mockTransaction).update(eq(mockLotteryRef), eq("currentDrawIndex"), eq(3));
+        verify(mockTransaction).set(eq(mockSelectionRef), any());
         verify(mockNotificationManager).sendReplacementNotification(eq("UserC"), eq(eventId), anyString());
         verify(callback).onSuccess("UserC");
     }
 
 
+    /**
+     * Test 4: Bulk Replacement Draw
+     * Several replacements are drawn with one write to 'selected' and the index.
+     */
+    @Test
+    public void testDrawReplacements_DrawsSeveralInOneTransaction() throws Exception {
+        String eventId = "event_bulk";
+        List<String> lotteryOrder = Arrays.asList("UserA", "UserB", "UserC", "UserD", "UserE");
+        List<Long> retryPositions = Arrays.asList(4L, 1L, 3L); // UserE, UserB, UserD
+
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> func = invocation.getArgument(0);
+            func.apply(mockTransaction);
+            return mockTransactionTask;
+        });
+        when(mockTransactionTask.addOnSuccessListener(any())).thenReturn(mockTransactionTask);
+
+        when(mockTransaction.get(mockDocRef)).thenReturn(mockSnapshot);
+        when(mockSnapshot.exists()).thenReturn(true);
+        mockLottery(lotteryOrder, retryPositions, 1L);
+
+        LotteryManager.BulkReplacementCallback callback = mock(LotteryManager.BulkReplacementCallback.class);
+
+        lotteryManager.drawReplacements(eventId, 2, callback);
+
+        // UserB (position 1) and UserD (position 3) are drawn, index moves past UserD
+        verify(mockTransaction).update(eq(mockLotteryRef), eq("currentDrawIndex"), eq(4));
+        verify(mockTransaction, org.mockito.Mockito.times(2)).set(eq(mockSelectionRef), any());
+        verify(mockTransaction, org.mockito.Mockito.times(1)).set(eq(mockCountersRef), any(), any(SetOptions.class));
+        // both drawn users are on page 0, so it is only read once
+        verify(mockTransaction, org.mockito.Mockito.times(1)).get(mockPageRef);
+    }
+
+    /**
+     * Test 5: Bulk draw rejects a non-positive count without touching Firestore
+     */
+    @Test
+    public void testDrawReplacements_InvalidCount() {
+        LotteryManager.BulkReplacementCallback callback = mock(LotteryManager.BulkReplacementCallback.class);
+
+        lotteryManager.drawReplacements("event_bulk", 0, callback);
+
+        verify(callback).onError(anyString());
+        verify(mockDb, never()).runTransaction(any());
+    }
+
+    /**
+     * Test 6: Response Queue
+     * Accepts and declines that arrive together are written in a single transaction,
+     * with the replacement for the declines drawn in that same transaction.
+     */
+    @Test
+    public void testResponses_CoalescedIntoOneTransaction() throws Exception {
+        String eventId = "event_hot";
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        injectPrivateField(lotteryManager, "responseScheduler", scheduler);
+
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> func = invocation.getArgument(0);
+            func.apply(mockTransaction);
+            return mockTransactionTask;
+        });
+        when(mockTransactionTask.addOnSuccessListener(any())).thenReturn(mockTransactionTask);
+        when(mockTransaction.get(mockDocRef)).thenReturn(mockSnapshot);
+        when(mockSnapshot.exists()).thenReturn(true);
+        when(mockTransaction.get(mockSelectionRef)).thenReturn(mockSelectionSnapshot);
+        when(mockSelectionSnapshot.exists()).thenReturn(true);
+        when(mockSelectionSnapshot.getString("status")).thenReturn("pending");
+        mockLottery(Arrays.asList("UserA", "UserB", "UserC", "UserD", "UserE"),
+                Collections.singletonList(4L), 3L);
+
+        LotteryManager.StatusCallback callback = mock(LotteryManager.StatusCallback.class);
+        lotteryManager.declineInvitation(eventId, "UserA", callback);
+        lotteryManager.declineInvitation(eventId, "UserB", callback);
+        lotteryManager.acceptInvitation(eventId, "UserC", callback);
+
+        // only the first response opens the window
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, org.mockito.Mockito.times(1)).schedule(flush.capture(), anyLong(), any(TimeUnit.class));
+        flush.getValue().run();
+
+        verify(mockDb, org.mockito.Mockito.times(1)).runTransaction(any());
+        verify(mockTransaction).update(eq(mockLotteryRef), eq("currentDrawIndex"), eq(5));
+        // responses only touch the responders' selection documents and the counters
+        verify(mockTransaction, org.mockito.Mockito.times(2)).update(eq(mockSelectionRef),
+                eq("status"), eq("declined"), eq("timestamp"), anyString());
+        verify(mockTransaction).update(eq(mockSelectionRef),
+                eq("status"), eq("accepted"), eq("timestamp"), anyString());
+        verify(mockTransaction, never()).update(eq(mockDocRef), anyString(), any());
+    }
+
+    /**
+     * Test 7: Accepting twice in the same window only counts once
+     */
+    @Test
+    public void testResponses_DuplicateAcceptRejected() throws Exception {
+        String eventId = "event_double_tap";
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        injectPrivateField(lotteryManager, "responseScheduler", scheduler);
+
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> func = invocation.getArgument(0);
+            func.apply(mockTransaction);
+            return mockTransactionTask;
+        });
+        when(mockTransactionTask.addOnSuccessListener(any())).thenReturn(mockTransactionTask);
+        when(mockTransaction.get(mockSelectionRef)).thenReturn(mockSelectionSnapshot);
+        when(mockSelectionSnapshot.exists()).thenReturn(true);
+        when(mockSelectionSnapshot.getString("status")).thenReturn("pending");
+
+        LotteryManager.StatusCallback callback = mock(LotteryManager.StatusCallback.class);
+        lotteryManager.acceptInvitation(eventId, "UserA", callback);
+        lotteryManager.acceptInvitation(eventId, "UserA", callback);
+
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(flush.capture(), anyLong(), any(TimeUnit.class));
+        flush.getValue().run();
+
+        // selection is read once and written once, no lottery or event reads for accepts
+        verify(mockTransaction, org.mockito.Mockito.times(1)).get(mockSelectionRef);
+        verify(mockTransaction, org.mockito.Mockito.times(1)).update(eq(mockSelectionRef),
+                eq("status"), eq("accepted"), eq("timestamp"), anyString());
+        verify(mockTransaction, never()).get(mockDocRef);
+        verify(mockTransaction, never()).get(mockLotteryRef);
+    }
+
+    /**
+     * Test 8: Weighted Lottery
+     * The mode and every entrant's weight are saved with the lottery for auditing.
+     */
+    @Test
+    public void testInitializeLottery_WeightedRecordsWeights() {
+        String eventId = "event_weighted";
+        List<String> waitlist = Arrays.asList("user1", "user2", "user3");
+
+        when(mockDocRef.get()).thenReturn(mockDocTask);
+        when(mockDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockSnapshot);
+            return mockDocTask;
+        });
+        when(mockSnapshot.exists()).thenReturn(true);
+        mockWaitlist(waitlist);
+        when(mockBatch.commit()).thenReturn(mockVoidTask);
+        when(mockVoidTask.addOnSuccessListener(any())).thenReturn(mockVoidTask);
+
+        Map<String, Long> losses = Collections.singletonMap("user2", 2L);
+        LotteryManager.LotteryCallback callback = mock(LotteryManager.LotteryCallback.class);
+        lotteryManager.initializeLottery(eventId, 1, LotteryManager.weightsFromLosses(losses), callback);
+
+        ArgumentCaptor<Map> lotteryData = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch).set(eq(mockLotteryRef), lotteryData.capture());
+        org.junit.Assert.assertEquals("weighted", lotteryData.getValue().get("mode"));
+        // user1 and user3 default to 1, user2 lost twice so gets 3
+        org.junit.Assert.assertEquals(5.0, (Double) lotteryData.getValue().get("totalWeight"), 0.0001);
+
+        ArgumentCaptor<Map> pageData = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch).set(eq(mockPageRef), pageData.capture());
+        List<String> entrants = (List<String>) pageData.getValue().get("entrants");
+        List<Double> weights = (List<Double>) pageData.getValue().get("weights");
+        org.junit.Assert.assertEquals(3.0, weights.get(entrants.indexOf("user2")), 0.0001);
+    }
+
+    /**
+     * Test 9: Big Lottery
+     * The order is drawn page by page: the pages hold everyone once, winners first, and the
+     * losers notified are everyone after the winners in the same order.
+     */
+    @Test
+    public void testInitializeLottery_DrawsOrderPageByPage() {
+        String eventId = "event_big";
+        List<String> waitlist = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            waitlist.add("user" + i);
+        }
+
+        when(mockDocRef.get()).thenReturn(mockDocTask);
+        when(mockDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockSnapshot);
+            return mockDocTask;
+        });
+        when(mockSnapshot.exists()).thenReturn(true);
+        mockWaitlist(waitlist);
+        when(mockBatch.commit()).thenReturn(mockVoidTask);
+        when(mockVoidTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<Void> listener = invocation.getArgument(0);
+            listener.onSuccess(null);
+            return mockVoidTask;
+        });
+
+        LotteryManager.LotteryCallback callback = mock(LotteryManager.LotteryCallback.class);
+        lotteryManager.initializeLottery(eventId, 10, callback);
+
+        ArgumentCaptor<Map> pageData = ArgumentCaptor.forClass(Map.class);
+        verify(mockBatch, org.mockito.Mockito.times(3)).set(eq(mockPageRef), pageData.capture());
+        List<String> order = new ArrayList<>();
+        for (Map page : pageData.getAllValues()) {
+            org.junit.Assert.assertEquals(order.size(), page.get("start"));
+            order.addAll((List<String>) page.get("entrants"));
+        }
+        org.junit.Assert.assertEquals(2500, order.size());
+        org.junit.Assert.assertEquals(2500, new java.util.HashSet<>(order).size());
+
+        ArgumentCaptor<String> winners = ArgumentCaptor.forClass(String.class);
+        verify(mockNotificationManager, org.mockito.Mockito.times(10))
+                .sendWinNotification(winners.capture(), eq(eventId), anyString());
+        org.junit.Assert.assertEquals(order.subList(0, 10), winners.getAllValues());
+
+        ArgumentCaptor<List> losers = ArgumentCaptor.forClass(List.class);
+        verify(mockNotificationManager).notifyAllLosers(eq(eventId), anyString(), any(), losers.capture(), any());
+        org.junit.Assert.assertEquals(order.subList(10, 2500), new ArrayList<>(losers.getValue()));
+        verify(callback).onSuccess(anyString());
+    }
+
+    /**
+     * Test 10: Bad Weights
+     * A negative weight fails the draw with a message about the weights, nothing is saved.
+     */
+    @Test
+    public void testInitializeLottery_InvalidWeights() {
+        when(mockDocRef.get()).thenReturn(mockDocTask);
+        when(mockDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockSnapshot);
+            return mockDocTask;
+        });
+        when(mockSnapshot.exists()).thenReturn(true);
+        mockWaitlist(Arrays.asList("user1", "user2"));
+
+        LotteryManager.LotteryCallback callback = mock(LotteryManager.LotteryCallback.class);
+        lotteryManager.initializeLottery("event_bad_weights", 1,
+                Collections.singletonMap("user1", -1.0), callback);
+
+        verify(callback).onError(org.mockito.ArgumentMatchers.startsWith("Invalid lottery weights"));
+        verify(mockBatch, never()).commit();
+    }
+
+    /**
+     * Test 11: Retrying A Failed Draw
+     * Selections left by an attempt that didn't finish are deleted, and the lottery document is
+     * written last with its status and draw ID, the same draw ID as the pages and selections.
+     */
+    @Test
+    public void testInitializeLottery_RetryDeletesStaleSelections() {
+        String eventId = "event_retry";
+        when(mockDocRef.get()).thenReturn(mockDocTask);
+        when(mockDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockSnapshot);
+            return mockDocTask;
+        });
+        when(mockSnapshot.exists()).thenReturn(true);
+        mockWaitlist(Arrays.asList("user1", "user2", "user3"));
+        // "gone" won the failed attempt and left the waitlist since
+        mockPreviousSelections(Collections.singletonList("gone"));
+        DocumentReference staleRef = mock(DocumentReference.class);
+        when(mockSelectionsCollection.document("gone")).thenReturn(staleRef);
+        when(mockBatch.commit()).thenReturn(mockVoidTask);
+        when(mockVoidTask.addOnSuccessListener(any())).thenReturn(mockVoidTask);
+
+        LotteryManager.LotteryCallback callback = mock(LotteryManager.LotteryCallback.class);
+        lotteryManager.initializeLottery(eventId, 1, callback);
+
+        org.mockito.InOrder inOrder = org.mockito.Mockito.inOrder(mockBatch);
+        inOrder.verify(mockBatch).delete(staleRef);
+        ArgumentCaptor<Map> pageData = ArgumentCaptor.forClass(Map.class);
+        inOrder.verify(mockBatch).set(eq(mockPageRef), pageData.capture());
+        ArgumentCaptor<Map> selectionData = ArgumentCaptor.forClass(Map.class);
+        inOrder.verify(mockBatch).set(eq(mockSelectionRef), selectionData.capture());
+        ArgumentCaptor<Map> lotteryData = ArgumentCaptor.forClass(Map.class);
+        inOrder.verify(mockBatch).set(eq(mockLotteryRef), lotteryData.capture());
+        inOrder.verify(mockBatch).commit();
+
+        Object drawId = lotteryData.getValue().get(LotteryManager.DRAW_ID_FIELD);
+        org.junit.Assert.assertNotNull(drawId);
+        org.junit.Assert.assertEquals(LotteryManager.STATUS_DRAWN, lotteryData.getValue().get("status"));
+        org.junit.Assert.assertEquals(drawId, pageData.getValue().get(LotteryManager.DRAW_ID_FIELD));
+        org.junit.Assert.assertEquals(drawId, selectionData.getValue().get(LotteryManager.DRAW_ID_FIELD));
+    }
+
+    /**
+     * Test 12: Decline While The Lottery Can't Be Drawn From
+     * The decline gets no replacement, and the accept in the same window still goes through.
+     */
+    @Test
+    public void testResponses_AcceptSurvivesUndrawnLottery() throws Exception {
+        String eventId = "event_redrawing";
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        injectPrivateField(lotteryManager, "responseScheduler", scheduler);
+
+        Object[] result = new Object[1];
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> func = invocation.getArgument(0);
+            result[0] = func.apply(mockTransaction);
+            return mockTransactionTask;
+        });
+        when(mockTransactionTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<Object> listener = invocation.getArgument(0);
+            listener.onSuccess(result[0]);
+            return mockTransactionTask;
+        });
+        when(mockTransaction.get(mockDocRef)).thenReturn(mockSnapshot);
+        when(mockSnapshot.exists()).thenReturn(true);
+        when(mockTransaction.get(mockSelectionRef)).thenReturn(mockSelectionSnapshot);
+        when(mockSelectionSnapshot.exists()).thenReturn(true);
+        when(mockSelectionSnapshot.getString("status")).thenReturn("pending");
+        // the lottery document isn't there, e.g. a redraw hasn't finished saving
+        when(mockTransaction.get(mockLotteryRef)).thenReturn(mockLotterySnapshot);
+        when(mockLotterySnapshot.exists()).thenReturn(false);
+
+        LotteryManager.StatusCallback accept = mock(LotteryManager.StatusCallback.class);
+        LotteryManager.StatusCallback decline = mock(LotteryManager.StatusCallback.class);
+        lotteryManager.acceptInvitation(eventId, "UserA", accept);
+        lotteryManager.declineInvitation(eventId, "UserB", decline);
+
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(flush.capture(), anyLong(), any(TimeUnit.class));
+        flush.getValue().run();
+
+        verify(accept).onSuccess("Status updated to accepted");
+        verify(decline).onSuccess("Declined (no replacement available)");
+        verify(accept, never()).onError(anyString());
+        verify(decline, never()).onError(anyString());
+    }
+
+    /**
+     * Test 13: Lottery Drawn Under The Old Schema
+     * The event still holds lotteryOrder, selected and currentDrawIndex. Checking the lottery moves
+     * it into the lottery document, selections and counters, and drops the old fields.
+     */
+    @Test
+    public void testCheckLotteryDrawn_MigratesLegacyEvent() {
+        String eventId = "event_legacy";
+        // no lottery document yet
+        when(mockLotteryRef.get()).thenReturn(mockDocTask);
+        when(mockDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockLotterySnapshot);
+            return mockDocTask;
+        });
+        when(mockLotterySnapshot.exists()).thenReturn(false);
+
+        Object[] result = new Object[1];
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> func = invocation.getArgument(0);
+            result[0] = func.apply(mockTransaction);
+            return mockTransactionTask;
+        });
+        when(mockTransactionTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<Object> listener = invocation.getArgument(0);
+            listener.onSuccess(result[0]);
+            return mockTransactionTask;
+        });
+
+        Map<String, Object> selected = new HashMap<>();
+        selected.put("user1", Map.of("status", "accepted", "timestamp", "1000"));
+        selected.put("user3", Map.of("status", "pending", "timestamp", "2000"));
+        when(mockTransaction.get(mockDocRef)).thenReturn(mockSnapshot);
+        when(mockTransaction.get(mockLotteryRef)).thenReturn(mockLotterySnapshot);
+        when(mockSnapshot.exists()).thenReturn(true);
+        when(mockSnapshot.get("lotteryOrder")).thenReturn(Arrays.asList("user1", "user2", "user3", "user4"));
+        when(mockSnapshot.get("selected")).thenReturn(selected);
+        when(mockSnapshot.getLong("currentDrawIndex")).thenReturn(3L);
+        when(mockSnapshot.get("retryEntrants")).thenReturn(Collections.singletonList("user2"));
+
+        LotteryManager.DrawnCallback callback = mock(LotteryManager.DrawnCallback.class);
+        lotteryManager.checkLotteryDrawn(eventId, callback);
+
+        verify(callback).onResult(true);
+        verify(mockTransaction).set(eq(mockPageRef), any());
+        ArgumentCaptor<Map> lotteryData = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockLotteryRef), lotteryData.capture());
+        org.junit.Assert.assertEquals("drawn", lotteryData.getValue().get("status"));
+        org.junit.Assert.assertEquals(4, lotteryData.getValue().get("entrantCount"));
+        org.junit.Assert.assertEquals(3L, lotteryData.getValue().get("currentDrawIndex"));
+        org.junit.Assert.assertEquals(Collections.singletonList(1L), lotteryData.getValue().get("retryPositions"));
+
+        // one selection document per entry in the old map, counted by status
+        verify(mockTransaction, org.mockito.Mockito.times(2)).set(eq(mockSelectionRef), any());
+        ArgumentCaptor<Map> counters = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockCountersRef), counters.capture());
+        org.junit.Assert.assertEquals(1, counters.getValue().get("pending"));
+        org.junit.Assert.assertEquals(1, counters.getValue().get("accepted"));
+        org.junit.Assert.assertEquals(0, counters.getValue().get("declined"));
+
+        verify(mockTransaction).update(eq(mockDocRef), eq("lotteryOrder"), any(),
+                eq("selected"), any(), eq("currentDrawIndex"), any());
+    }
+
+    // Helper: the event's waitlist entries, one document per user
+    private void mockWaitlist(List<String> userIds) {
+        List<DocumentSnapshot> entries = new ArrayList<>();
+        for (String userId : userIds) {
+            DocumentSnapshot entry = mock(DocumentSnapshot.class);
+            when(entry.getId()).thenReturn(userId);
+            entries.add(entry);
+        }
+        when(mockQuerySnapshot.getDocuments()).thenReturn(entries);
+        when(mockDocRef.collection("waitlist")).thenReturn(mockWaitlistCollection);
+        when(mockWaitlistCollection.get()).thenReturn(mockQueryTask);
+        when(mockQueryTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<QuerySnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockQuerySnapshot);
+            return mockQueryTask;
+        });
+    }
+
+    // Helper: selection documents already saved for the event before a draw
+    private void mockPreviousSelections(List<String> userIds) {
+        List<DocumentSnapshot> selections = new ArrayList<>();
+        for (String userId : userIds) {
+            DocumentSnapshot selection = mock(DocumentSnapshot.class);
+            when(selection.getId()).thenReturn(userId);
+            selections.add(selection);
+        }
+        when(mockSelectionsQuery.getDocuments()).thenReturn(selections);
+        when(mockSelectionsCollection.get()).thenReturn(mockSelectionsTask);
+        when(mockSelectionsTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<QuerySnapshot> listener = invocation.getArgument(0);
+            listener.onSuccess(mockSelectionsQuery);
+            return mockSelectionsTask;
+        });
+    }
+
+    // Helper: lottery document plus a single order page holding the whole order
+    private void mockLottery(List<String> lotteryOrder, List<Long> retryPositions, long currentIndex) throws Exception {
+        when(mockTransaction.get(mockLotteryRef)).thenReturn(mockLotterySnapshot);
+        when(mockLotterySnapshot.exists()).thenReturn(true);
+        when(mockLotterySnapshot.getLong("currentDrawIndex")).thenReturn(currentIndex);
+        when(mockLotterySnapshot.getLong("entrantCount")).thenReturn((long) lotteryOrder.size());
+        when(mockLotterySnapshot.getLong("pageSize")).thenReturn(1000L);
+        when(mockLotterySnapshot.get("retryPositions")).thenReturn(retryPositions);
+
+        when(mockTransaction.get(mockPageRef)).thenReturn(mockPageSnapshot);
+        when(mockPageSnapshot.get("entrants")).thenReturn(lotteryOrder);
+    }
+
     // Helper for Reflection
     private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
         Field field = target.getClass().getDeclaredField(fieldName);
@@ -0,0 +1,376 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.managers.LotteryEngine;
+import com.example.eventlottery.managers.ReplacementIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo harness for the lottery logic, runs on the plain JVM (no firebase).
+ * Runs a lot of seeded draws in parallel on a ForkJoinPool and checks that every entrant is
+ * equally likely to land at every position and to be picked as a replacement, using
+ * chi-square tests, and measures how many draws per second the shuffle and replacement code do.
+ * Run main() for the full report, LotterySimulationTest runs a smaller version on every build.
+ */
+public class LotterySimulation {
+
+    /**
+     * What to simulate
+     */
+    public static class Config {
+        /** entrants on the waitlist */
+        public int entrants = 20;
+        /** winners per lottery */
+        public int sampleSize = 5;
+        /** the first retryPoolSize entrants join the retry pool */
+        public int retryPoolSize = 8;
+        /** number of lotteries to run */
+        public int trials = 1_000_000;
+        /** trials run by one task before it stops splitting */
+        public int leafSize = 10_000;
+        /** trial i's seed is derived from seed and i, so results don't depend on how the work was split */
+        public long seed = 42L;
+        public int parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Result of a chi-square goodness of fit test against a uniform distribution
+     */
+    public static class ChiSquare {
+        public final double statistic;
+        public final int degreesOfFreedom;
+        public final double pValue;
+
+        ChiSquare(double statistic, int degreesOfFreedom, double pValue) {
+            this.statistic = statistic;
+            this.degreesOfFreedom = degreesOfFreedom;
+            this.pValue = pValue;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "chi2=%.2f df=%d p=%.4f", statistic, degreesOfFreedom, pValue);
+        }
+    }
+
+    /**
+     * Counts and timings from a run
+     */
+    public static class Report {
+        /** positionCounts[p][e] = times entrant e ended up at lottery position p */
+        public final long[][] positionCounts;
+        /** winnerCounts[e] = times entrant e was one of the winners */
+        public final long[] winnerCounts;
+        /** replacementCounts[r] = times retry pool member r was the first replacement drawn */
+        public final long[] replacementCounts;
+        long shuffleNanos;
+        long replacementNanos;
+        long replacementDraws;
+        long wallNanos;
+        final int trials;
+
+        Report(Config config) {
+            positionCounts = new long[config.entrants][config.entrants];
+            winnerCounts = new long[config.entrants];
+            replacementCounts = new long[config.retryPoolSize];
+            trials = config.trials;
+        }
+
+        void add(Report other) {
+            for (int p = 0; p < positionCounts.length; p++) {
+                for (int e = 0; e < positionCounts[p].length; e++) {
+                    positionCounts[p][e] += other.positionCounts[p][e];
+                }
+            }
+            for (int e = 0; e < winnerCounts.length; e++) {
+                winnerCounts[e] += other.winnerCounts[e];
+            }
+            for (int r = 0; r < replacementCounts.length; r++) {
+                replacementCounts[r] += other.replacementCounts[r];
+            }
+            shuffleNanos += other.shuffleNanos;
+            replacementNanos += other.replacementNanos;
+            replacementDraws += other.replacementDraws;
+        }
+
+        /** @return chi-square test of how often each entrant won */
+        public ChiSquare winnerUniformity() {
+            return chiSquareUniform(winnerCounts);
+        }
+
+        /** @return chi-square test of who landed at one lottery position */
+        public ChiSquare positionUniformity(int position) {
+            return chiSquareUniform(positionCounts[position]);
+        }
+
+        /** @return the position test with the lowest p-value */
+        public ChiSquare worstPositionUniformity() {
+            ChiSquare worst = null;
+            for (int p = 0; p < positionCounts.length; p++) {
+                ChiSquare test = positionUniformity(p);
+                if (worst == null || test.pValue < worst.pValue) {
+                    worst = test;
+                }
+            }
+            return worst;
+        }
+
+        /** @return chi-square test of which retry pool member got the replacement spot */
+        public ChiSquare replacementUniformity() {
+            return chiSquareUniform(replacementCounts);
+        }
+
+        /** @return lotteries per second for the shuffle, on one thread */
+        public double drawsPerSecond() {
+            return trials / (shuffleNanos / 1e9);
+        }
+
+        /** @return replacement draws per second, on one thread */
+        public double replacementsPerSecond() {
+            return replacementDraws / (replacementNanos / 1e9);
+        }
+
+        /** @return lotteries per second for the whole run, all threads together */
+        public double wallDrawsPerSecond() {
+            return trials / (wallNanos / 1e9);
+        }
+
+        public String summary() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.US, "%,d lotteries in %.2fs%n", trials, wallNanos / 1e9));
+            builder.append(String.format(Locale.US, "shuffle: %,.0f draws/s per thread, %,.0f lotteries/s overall including counting%n",
+                    drawsPerSecond(), wallDrawsPerSecond()));
+            builder.append(String.format(Locale.US, "replacement: %,.0f draws/s per thread%n", replacementsPerSecond()));
+            builder.append("winners: ").append(winnerUniformity()).append('\n');
+            builder.append("worst position: ").append(worstPositionUniformity()).append('\n');
+            builder.append("replacements: ").append(replacementUniformity()).append('\n');
+            builder.append("position histogram (rows = position, columns = entrant, % of trials):\n");
+            for (long[] row : positionCounts) {
+                for (long count : row) {
+                    builder.append(String.format(Locale.US, "%6.2f", 100.0 * count / trials));
+                }
+                builder.append('\n');
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Runs the simulation
+     * @param config what to simulate
+     * @return counts, timings and uniformity tests
+     */
+    public static Report run(Config config) {
+        if (config.sampleSize > config.entrants || config.retryPoolSize > config.entrants) {
+            throw new IllegalArgumentException("Sample size and retry pool can't be bigger than the entrants");
+        }
+
+        List<String> entrants = new ArrayList<>();
+        Map<String, Integer> indexOf = new HashMap<>();
+        for (int i = 0; i < config.entrants; i++) {
+            entrants.add("user" + i);
+            indexOf.put("user" + i, i);
+        }
+        List<String> readOnlyEntrants = Collections.unmodifiableList(entrants);
+
+        ForkJoinPool pool = new ForkJoinPool(config.parallelism);
+        try {
+            long start = System.nanoTime();
+            Report report = pool.invoke(new TrialTask(config, readOnlyEntrants, indexOf, 0, config.trials));
+            report.wallNanos = System.nanoTime() - start;
+            return report;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs trials [from, to), splitting in half until the range is small enough
+     */
+    private static class TrialTask extends RecursiveTask<Report> {
+        private final Config config;
+        private final List<String> entrants;
+        private final Map<String, Integer> indexOf;
+        private final int from;
+        private final int to;
+
+        TrialTask(Config config, List<String> entrants, Map<String, Integer> indexOf, int from, int to) {
+            this.config = config;
+            this.entrants = entrants;
+            this.indexOf = indexOf;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Report compute() {
+            if (to - from > config.leafSize) {
+                int middle = (from + to) >>> 1;
+                TrialTask left = new TrialTask(config, entrants, indexOf, from, middle);
+                left.fork();
+                Report report = new TrialTask(config, entrants, indexOf, middle, to).compute();
+                report.add(left.join());
+                return report;
+            }
+
+            Report report = new Report(config);
+            int[] positionOf = new int[config.entrants];
+            List<Integer> retryPositions = new ArrayList<>(config.retryPoolSize);
+
+            for (int trial = from; trial < to; trial++) {
+                long shuffleStart = System.nanoTime();
+                LotteryEngine.Draw draw = new LotteryEngine(trialSeed(config.seed, trial)).draw(entrants, config.sampleSize);
+                List<String> rest = draw.remaining();
+                report.shuffleNanos += System.nanoTime() - shuffleStart;
+
+                int position = 0;
+                for (String winner : draw.getWinners()) {
+                    int entrant = indexOf.get(winner);
+                    report.winnerCounts[entrant]++;
+                    report.positionCounts[position][entrant]++;
+                    positionOf[entrant] = position++;
+                }
+                for (String loser : rest) {
+                    int entrant = indexOf.get(loser);
+                    report.positionCounts[position][entrant]++;
+                    positionOf[entrant] = position++;
+                }
+
+                // same path drawReplacement takes: fold the retry positions, take the next one
+                retryPositions.clear();
+                for (int r = 0; r < config.retryPoolSize; r++) {
+                    retryPositions.add(positionOf[r]);
+                }
+                long replacementStart = System.nanoTime();
+                ReplacementIndex index = new ReplacementIndex();
+                index.fold(retryPositions, config.sampleSize);
+                int replacementPosition = index.nextEligible(config.sampleSize);
+                report.replacementNanos += System.nanoTime() - replacementStart;
+                report.replacementDraws++;
+
+                if (replacementPosition >= 0) {
+                    int entrant = indexOf.get(entrantAt(draw, rest, replacementPosition));
+                    report.replacementCounts[entrant]++;
+                }
+            }
+            return report;
+        }
+
+        private String entrantAt(LotteryEngine.Draw draw, List<String> rest, int position) {
+            int winners = draw.getWinners().size();
+            return position < winners ? draw.getWinners().get(position) : rest.get(position - winners);
+        }
+    }
+
+    /**
+     * Seed for one trial. java.util.Random seeds that are close together give correlated first
+     * numbers, which shows up as position bias, so seed + trial is scrambled first (SplitMix64)
+     */
+    static long trialSeed(long seed, int trial) {
+        long z = seed + (trial + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Chi-square goodness of fit against every bucket being equally likely
+     */
+    static ChiSquare chiSquareUniform(long[] observed) {
+        long total = 0;
+        for (long count : observed) {
+            total += count;
+        }
+        double expected = (double) total / observed.length;
+        double statistic = 0;
+        for (long count : observed) {
+            double diff = count - expected;
+            statistic += diff * diff / expected;
+        }
+        int degreesOfFreedom = observed.length - 1;
+        return new ChiSquare(statistic, degreesOfFreedom, chiSquarePValue(statistic, degreesOfFreedom));
+    }
+
+    /**
+     * P(X >= statistic) for a chi-square distribution, the regularized upper incomplete gamma
+     * function Q(df/2, statistic/2)
+     */
+    static double chiSquarePValue(double statistic, int degreesOfFreedom) {
+        double a = degreesOfFreedom / 2.0;
+        double x = statistic / 2.0;
+        if (x <= 0) {
+            return 1;
+        }
+        if (x < a + 1) {
+            return 1 - lowerGammaSeries(a, x);
+        }
+        return upperGammaContinuedFraction(a, x);
+    }
+
+    // P(a, x) by its series, converges quickly for x < a + 1
+    private static double lowerGammaSeries(double a, double x) {
+        double term = 1 / a;
+        double sum = term;
+        for (int n = 1; n < 500; n++) {
+            term *= x / (a + n);
+            sum += term;
+            if (Math.abs(term) < Math.abs(sum) * 1e-15) break;
+        }
+        return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+    }
+
+    // Q(a, x) by Lentz's continued fraction, converges quickly for x >= a + 1
+    private static double upperGammaContinuedFraction(double a, double x) {
+        double tiny = 1e-300;
+        double b = x + 1 - a;
+        double c = 1 / tiny;
+        double d = 1 / b;
+        double h = d;
+        for (int i = 1; i < 500; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < tiny) d = tiny;
+            c = b + an / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-15) break;
+        }
+        return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+    }
+
+    // Lanczos approximation
+    private static double logGamma(double x) {
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+
+    /**
+     * Runs the full simulation and prints the report.
+     * Optional args: trials, entrants, sampleSize
+     */
+    public static void main(String[] args) {
+        Config config = new Config();
+        if (args.length > 0) config.trials = Integer.parseInt(args[0]);
+        if (args.length > 1) config.entrants = Integer.parseInt(args[1]);
+        if (args.length > 2) config.sampleSize = Integer.parseInt(args[2]);
+        System.out.print(run(config).summary());
+    }
+}
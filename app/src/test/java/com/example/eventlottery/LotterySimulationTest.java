@@ -0,0 +1,67 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Runs a small version of LotterySimulation on every build.
+ * Seeds are fixed so the p-values are the same every run, the full report is main()
+ */
+public class LotterySimulationTest {
+
+    private LotterySimulation.Config smallConfig() {
+        LotterySimulation.Config config = new LotterySimulation.Config();
+        config.entrants = 10;
+        config.sampleSize = 3;
+        config.retryPoolSize = 4;
+        config.trials = 50_000;
+        config.leafSize = 5_000;
+        return config;
+    }
+
+    // TEST 1: Every entrant is equally likely to win, land at each position, and be the replacement
+    @Test
+    public void testDrawsAreUniform() {
+        LotterySimulation.Report report = LotterySimulation.run(smallConfig());
+
+        assertTrue("Winners should be uniform: " + report.winnerUniformity(),
+                report.winnerUniformity().pValue > 0.001);
+        assertTrue("Every position should be uniform: " + report.worstPositionUniformity(),
+                report.worstPositionUniformity().pValue > 0.001 / 10);
+        assertTrue("Replacements should be uniform: " + report.replacementUniformity(),
+                report.replacementUniformity().pValue > 0.001);
+    }
+
+    // TEST 2: Splitting the work differently gives exactly the same counts
+    @Test
+    public void testResultsDoNotDependOnParallelism() {
+        LotterySimulation.Config parallel = smallConfig();
+        LotterySimulation.Config single = smallConfig();
+        single.parallelism = 1;
+        single.leafSize = single.trials;
+
+        LotterySimulation.Report a = LotterySimulation.run(parallel);
+        LotterySimulation.Report b = LotterySimulation.run(single);
+
+        for (int p = 0; p < a.positionCounts.length; p++) {
+            for (int e = 0; e < a.positionCounts[p].length; e++) {
+                assertEquals(a.positionCounts[p][e], b.positionCounts[p][e]);
+            }
+        }
+        for (int r = 0; r < a.replacementCounts.length; r++) {
+            assertEquals(a.replacementCounts[r], b.replacementCounts[r]);
+        }
+    }
+
+    // TEST 3: The chi-square p-value matches known table values
+    @Test
+    public void testChiSquarePValue() {
+        // critical values for p = 0.05
+        assertEquals(0.05, LotterySimulation.chiSquarePValue(3.841, 1), 1e-3);
+        assertEquals(0.05, LotterySimulation.chiSquarePValue(16.919, 9), 1e-3);
+        // a perfectly even histogram
+        assertEquals(1.0, LotterySimulation.chiSquareUniform(new long[]{5, 5, 5, 5}).pValue, 1e-9);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.eventlottery.managers.MembershipCache;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class MembershipCacheTest {
+
+    @Mock private FirebaseFirestore mockDb;
+    @Mock private FirebaseAuth mockAuth;
+    @Mock private FirebaseUser mockUser;
+    @Mock private CollectionReference mockUsersCollection;
+    @Mock private DocumentReference mockUserDocRef;
+
+    private MembershipCache cache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mockAuth.getCurrentUser()).thenReturn(mockUser);
+        when(mockUser.getUid()).thenReturn("user1");
+        when(mockDb.collection("users")).thenReturn(mockUsersCollection);
+        when(mockUsersCollection.document("user1")).thenReturn(mockUserDocRef);
+
+        cache = new MembershipCache(mockDb, mockAuth);
+    }
+
+    @SuppressWarnings("unchecked")
+    private EventListener<DocumentSnapshot> captureListener() {
+        ArgumentCaptor<EventListener<DocumentSnapshot>> captor = ArgumentCaptor.forClass(EventListener.class);
+        verify(mockUserDocRef).addSnapshotListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private DocumentSnapshot userDocument(Map<String, Object> data) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getData()).thenReturn(data);
+        when(snapshot.get("waitingLists")).thenReturn(data.get("waitingLists"));
+        return snapshot;
+    }
+
+    @Test
+    public void testEventIds_ReadsMapAndLegacyFields() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("waitingLists", Collections.singletonMap("eventA", Collections.emptyMap()));
+        data.put("waitingLists.eventB", Collections.emptyMap());
+        data.put("name", "Someone");
+
+        assertEquals(new HashSet<>(Arrays.asList("eventA", "eventB")),
+                MembershipCache.eventIds(userDocument(data)));
+    }
+
+    @Test
+    public void testUserDocumentReadOnce() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("waitingLists", Collections.singletonMap("eventA", Collections.emptyMap()));
+
+        assertFalse(cache.isLoaded());
+        captureListener().onEvent(userDocument(data), null);
+
+        assertTrue(cache.isLoaded());
+        assertTrue(cache.contains("eventA"));
+        assertFalse(cache.contains("eventB"));
+        // every check after the first is served from the cache
+        verify(mockUserDocRef, times(1)).addSnapshotListener(any());
+    }
+
+    @Test
+    public void testWhenLoaded_WaitsForDocument() {
+        Runnable callback = mock(Runnable.class);
+        cache.whenLoaded(callback);
+        verify(callback, times(0)).run();
+
+        captureListener().onEvent(userDocument(new HashMap<>()), null);
+        verify(callback, times(1)).run();
+    }
+
+    @Test
+    public void testOptimisticJoinAndRevert() {
+        cache.ensureStarted();
+        captureListener().onEvent(userDocument(new HashMap<>()), null);
+        MembershipCache.Listener listener = mock(MembershipCache.Listener.class);
+        cache.addListener(listener);
+
+        cache.markJoining("eventA");
+        assertTrue(cache.contains("eventA"));
+
+        cache.revert("eventA");
+        assertFalse(cache.contains("eventA"));
+
+        cache.markJoining("eventA");
+        cache.settle("eventA", true);
+        assertTrue(cache.contains("eventA"));
+
+        cache.markLeaving("eventA");
+        assertFalse(cache.contains("eventA"));
+        assertTrue(cache.getEventIds().isEmpty());
+
+        verify(listener, times(5)).onMembershipChanged();
+    }
+}
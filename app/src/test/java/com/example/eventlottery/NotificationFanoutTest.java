@@ -0,0 +1,122 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.util.Log;
+
+import com.example.eventlottery.managers.NotificationFanout;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class NotificationFanoutTest {
+
+    @Mock private FirebaseFirestore mockDb;
+    @Mock private CollectionReference mockNotificationsCollection;
+    @Mock private DocumentReference mockUserDoc;
+    @Mock private CollectionReference mockMessagesCollection;
+    @Mock private DocumentReference mockMessageDoc;
+    @Mock private WriteBatch mockBatch;
+    @Mock private Task<Void> mockVoidTask;
+
+    private MockedStatic<Log> mockedLog;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockedLog = mockStatic(Log.class);
+
+        when(mockDb.collection("notifications")).thenReturn(mockNotificationsCollection);
+        when(mockNotificationsCollection.document(anyString())).thenReturn(mockUserDoc);
+        when(mockUserDoc.collection("messages")).thenReturn(mockMessagesCollection);
+        when(mockMessagesCollection.document()).thenReturn(mockMessageDoc);
+        when(mockDb.batch()).thenReturn(mockBatch);
+        when(mockBatch.commit()).thenReturn(mockVoidTask);
+    }
+
+    @After
+    public void tearDown() {
+        mockedLog.close();
+    }
+
+    private List<String> makeUsers(int count) {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add("user" + i);
+        }
+        return users;
+    }
+
+    /**
+     * Test 1: 1200 users should be written as 3 batches, not 1200 adds
+     */
+    @Test
+    public void testSend_SplitsIntoBatches() {
+        when(mockVoidTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
+            OnSuccessListener<Void> listener = invocation.getArgument(0);
+            listener.onSuccess(null);
+            return mockVoidTask;
+        });
+
+        NotificationFanout.FanoutCallback callback = mock(NotificationFanout.FanoutCallback.class);
+        new NotificationFanout(mockDb).send(makeUsers(1200), new HashMap<>(), callback);
+
+        verify(mockBatch, times(3)).commit();
+        verify(mockBatch, times(1200)).set(any(DocumentReference.class), any());
+        verify(callback).onProgress(1200, 1200);
+        verify(callback).onComplete(1200, new ArrayList<>());
+    }
+
+    /**
+     * Test 2: A failed batch is reported back with its users
+     */
+    @Test
+    public void testSend_ReportsFailedUsers() {
+        when(mockVoidTask.addOnSuccessListener(any())).thenReturn(mockVoidTask);
+        when(mockVoidTask.addOnFailureListener(any())).thenAnswer(invocation -> {
+            OnFailureListener listener = invocation.getArgument(0);
+            listener.onFailure(new Exception("offline"));
+            return mockVoidTask;
+        });
+
+        List<String> users = makeUsers(10);
+        final List<String> failed = new ArrayList<>();
+        new NotificationFanout(mockDb, 4, 2).send(users, new HashMap<>(), new NotificationFanout.FanoutCallback() {
+            @Override
+            public void onProgress(int sent, int total) { }
+
+            @Override
+            public void onComplete(int sent, List<String> failedUserIds) {
+                assertEquals("Nothing should be sent", 0, sent);
+                failed.addAll(failedUserIds);
+            }
+        });
+
+        verify(mockBatch, times(3)).commit();
+        assertEquals("All users should be reported as failed", 10, failed.size());
+        assertTrue("Failed list should hold the users", failed.containsAll(users));
+    }
+}
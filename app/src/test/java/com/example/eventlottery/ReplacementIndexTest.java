@@ -0,0 +1,63 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.managers.ReplacementIndex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for ReplacementIndex
+ * Tests finding the next retry pool entrant and saving/restoring the bitmap
+ */
+public class ReplacementIndexTest {
+
+    // Positions are in lottery order, e.g. order A, B, C, D, E puts D at 3
+
+    // TEST 1: Should skip people who are not in the retry pool
+    @Test
+    public void testNextEligibleSkipsNonRetryUsers() {
+        ReplacementIndex index = new ReplacementIndex();
+        index.fold(Arrays.asList(3, 1), 1);
+
+        assertEquals("B is the first retry entrant after position 1", 1, index.nextEligible(1));
+        index.consume(1);
+        assertEquals("D should be next after B is drawn", 3, index.nextEligible(2));
+    }
+
+    // TEST 2: No eligible entrants returns -1
+    @Test
+    public void testNoEligibleReturnsMinusOne() {
+        ReplacementIndex index = new ReplacementIndex();
+        index.fold(Collections.<Integer>emptyList(), 0);
+
+        assertEquals("Empty retry pool should have no replacements", -1, index.nextEligible(0));
+    }
+
+    // TEST 3: Entrants already drawn (before the cursor) are ignored
+    @Test
+    public void testFoldIgnoresPositionsBeforeCursor() {
+        ReplacementIndex index = new ReplacementIndex();
+        index.fold(Arrays.asList(0, 4), 3);
+
+        assertEquals("Only E is after the cursor", 1, index.eligibleCount());
+        assertEquals("E is at position 4", 4, index.nextEligible(3));
+    }
+
+    // TEST 4: Saved index only folds in people who joined after it was saved
+    @Test
+    public void testRestoreAndFoldNewEntrants() {
+        ReplacementIndex index = new ReplacementIndex();
+        index.fold(Collections.singletonList(2L), 0);
+
+        ReplacementIndex restored = ReplacementIndex.fromBytes(index.toBytes(), index.getFoldedCount());
+        restored.fold(Arrays.asList(2L, 4L), 0);
+
+        assertEquals("Both C and E should be eligible", 2, restored.eligibleCount());
+        assertEquals("Folded count should cover both entrants", 2, restored.getFoldedCount());
+        assertEquals("C comes first", 2, restored.nextEligible(0));
+    }
+}
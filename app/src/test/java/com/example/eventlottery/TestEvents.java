@@ -0,0 +1,38 @@
+package com.example.eventlottery;
+
+import com.example.eventlottery.event_classes.Event;
+import com.example.eventlottery.event_classes.EventDates;
+import com.example.eventlottery.event_classes.EventStatus;
+import com.example.eventlottery.event_classes.Location;
+import com.example.eventlottery.event_classes.Money;
+import com.example.eventlottery.event_classes.Waitlist;
+
+/**
+ * Open events for the search and filter tests, only the parts filters look at are set
+ */
+public final class TestEvents {
+
+    private TestEvents() { }
+
+    /**
+     * @return an open event in Edmonton with the given category, price and dates
+     */
+    public static Event event(String category, double price, EventDates dates) {
+        return event("id", "Event", category, price, dates);
+    }
+
+    /**
+     * @return an open event in Edmonton with the given category, price and date range
+     */
+    public static Event event(String category, double price, String start, String end) {
+        return event(category, price, new EventDates(start, end));
+    }
+
+    /**
+     * @return an open event in Edmonton with its own ID and title
+     */
+    public static Event event(String id, String title, String category, double price, EventDates dates) {
+        return new Event(id, title, "Organizer", "", "", new Location("Edmonton"), dates, "",
+                new Waitlist(0, 10, 10), new Money(price), EventStatus.OPEN, false, category);
+    }
+}
@@ -1,35 +1,52 @@
 package com.example.eventlottery;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import com.example.eventlottery.managers.MembershipCache;
+import com.example.eventlottery.managers.WaitlistCounter;
 import com.example.eventlottery.managers.WaitlistManager;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.example.eventlottery.WaitlistEntry;
+import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.WriteBatch;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class WaitlistManagerTest {
 
@@ -53,6 +70,17 @@ public class WaitlistManagerTest {
     @Mock private Task<Void> mockVoidTask;
     @Mock private Task<DocumentSnapshot> mockEventDocTask;
     @Mock private Task<DocumentSnapshot> mockUserDocTask;
+    @Mock private Transaction mockTransaction;
+    @Mock private CollectionReference mockShardsCollection;
+    @Mock private DocumentReference mockShardRef;
+    @Mock private DocumentSnapshot mockShardSnapshot;
+    @Mock private Task<Object> mockTransactionTask;
+    @Mock private CollectionReference mockOpsCollection;
+    @Mock private DocumentReference mockOpRef;
+    @Mock private DocumentSnapshot mockOpSnapshot;
+    @Mock private Context mockContext;
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
 
     private MockedStatic<FirebaseFirestore> mockedFirestoreStatic;
     private MockedStatic<FirebaseAuth> mockedAuthStatic;
@@ -88,10 +116,25 @@ public class WaitlistManagerTest {
         when(mockEventDocRef.collection("waitlist")).thenReturn(mockWaitlistCollection);
         when(mockWaitlistCollection.document(TEST_USER_ID)).thenReturn(mockUserWaitlistDocRef);
 
+        // every counter shard resolves to the same mock, each holding a count of 1
+        when(mockEventDocRef.collection(WaitlistCounter.SHARDS_COLLECTION)).thenReturn(mockShardsCollection);
+        when(mockShardsCollection.document(anyString())).thenReturn(mockShardRef);
+        when(mockShardSnapshot.exists()).thenReturn(true);
+        when(mockShardSnapshot.getLong("count")).thenReturn(1L);
+        // events are already sharded unless a test says otherwise
+        when(mockEventSnapshot.getLong(WaitlistCounter.SHARD_COUNT_FIELD))
+                .thenReturn((long) WaitlistCounter.DEFAULT_SHARDS);
+
         // This prevents the NPE when performJoinWaitlist accesses db.collection("users")
         when(mockDb.collection("users")).thenReturn(mockUsersCollection);
         when(mockUsersCollection.document(TEST_USER_ID)).thenReturn(mockUserDocRef);
 
+        // applied-operation markers, none exist unless a test says so
+        when(mockUserDocRef.collection("waitlistOps")).thenReturn(mockOpsCollection);
+        when(mockOpsCollection.document(anyString())).thenReturn(mockOpRef);
+        when(mockTransaction.get(mockOpRef)).thenReturn(mockOpSnapshot);
+        when(mockOpSnapshot.exists()).thenReturn(false);
+
         waitlistManager = WaitlistManager.getInstance();
     }
 
@@ -103,45 +146,268 @@ public class WaitlistManagerTest {
         resetSingleton();
     }
 
+    /**
+     * Makes runTransaction run the function against mockTransaction and hand its result to the
+     * success listener, like a transaction that commits first try
+     */
+    private void runTransactionsInline() {
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> func = invocation.getArgument(0);
+            Object result = func.apply(mockTransaction);
+            when(mockTransactionTask.addOnSuccessListener(any())).thenAnswer(listenerInvocation -> {
+                OnSuccessListener<Object> listener = listenerInvocation.getArgument(0);
+                listener.onSuccess(result);
+                return mockTransactionTask;
+            });
+            return mockTransactionTask;
+        });
+    }
+
     @Test
-    public void testJoinWaitlist_Success() {
+    public void testJoinWaitlist_Success() throws Exception {
         WaitlistManager.WaitlistCallback callback = mock(WaitlistManager.WaitlistCallback.class);
+        runTransactionsInline();
 
-        when(mockUserWaitlistDocRef.get()).thenReturn(mockUserDocTask);
-        when(mockUserDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
-            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
-            when(mockUserSnapshot.exists()).thenReturn(false);
-            listener.onSuccess(mockUserSnapshot);
-            return mockUserDocTask;
-        });
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
+        when(mockEventSnapshot.getLong("waitlistCapacity")).thenReturn(100L);
+        when(mockTransaction.get(mockShardRef)).thenReturn(mockShardSnapshot);
 
-        when(mockEventDocRef.get()).thenReturn(mockEventDocTask);
-        when(mockEventDocTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
-            OnSuccessListener<DocumentSnapshot> listener = invocation.getArgument(0);
-            when(mockEventSnapshot.exists()).thenReturn(true);
-            when(mockEventSnapshot.getLong("waitlistCapacity")).thenReturn(100L);
-            when(mockEventSnapshot.getLong("waitlistCount")).thenReturn(10L);
-            listener.onSuccess(mockEventSnapshot);
-            return mockEventDocTask;
-        });
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, null, null, callback);
 
-        when(mockBatch.commit()).thenReturn(mockVoidTask);
-        when(mockVoidTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
-            OnSuccessListener<Void> listener = invocation.getArgument(0);
-            listener.onSuccess(null);
-            return mockVoidTask;
-        });
+        verify(callback).onSuccess();
+        verify(mockDb, times(1)).runTransaction(any());
+        verify(mockTransaction).set(eq(mockUserWaitlistDocRef), any(WaitlistEntry.class));
+        // the count goes to one shard, not the event document
+        verify(mockTransaction).set(eq(mockShardRef), any(), any(SetOptions.class));
+        verify(mockTransaction, never()).update(eq(mockEventDocRef), eq("waitlistCount"), any());
+    }
+
+    /**
+     * The capacity check happens inside the join transaction, a full waitlist writes nothing.
+     * The count comes from the shards: 10 default shards holding 1 each
+     */
+    @Test
+    public void testJoinWaitlist_FullWritesNothing() throws Exception {
+        WaitlistManager.WaitlistCallback callback = mock(WaitlistManager.WaitlistCallback.class);
+        runTransactionsInline();
+
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
+        when(mockEventSnapshot.getString("waitlistLimit")).thenReturn("10");
+        when(mockTransaction.get(mockShardRef)).thenReturn(mockShardSnapshot);
+
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, null, null, callback);
+
+        verify(callback).onFailure("Waitlist is full");
+        verify(callback, never()).onSuccess();
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any());
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any(), any(SetOptions.class));
+        verify(mockTransaction, never()).update(any(DocumentReference.class), anyString(), any());
+    }
+
+    /**
+     * An event from before the count was sharded has its count only in waitlistCount. That
+     * count still fills the waitlist, and it's moved into a shard by the first change
+     */
+    @Test
+    public void testJoinWaitlist_LegacyCountIsCarriedOver() throws Exception {
+        runTransactionsInline();
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
+        when(mockEventSnapshot.getLong(WaitlistCounter.SHARD_COUNT_FIELD)).thenReturn(null);
+        when(mockEventSnapshot.getString("waitlistLimit")).thenReturn("10");
+        when(mockTransaction.get(mockShardRef)).thenReturn(mockShardSnapshot);
+        when(mockShardSnapshot.exists()).thenReturn(false); // no shards yet
+
+        // 10 people joined before sharding, the list is full
+        when(mockEventSnapshot.getLong(WaitlistCounter.COUNT_FIELD)).thenReturn(10L);
+        WaitlistManager.WaitlistCallback full = mock(WaitlistManager.WaitlistCallback.class);
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, null, null, full);
+
+        verify(full).onFailure("Waitlist is full");
+        verify(mockTransaction, never()).set(eq(mockUserWaitlistDocRef), any(WaitlistEntry.class));
+
+        // 9 joined before, one spot left: the join takes it and the 9 go into shard 0
+        when(mockEventSnapshot.getLong(WaitlistCounter.COUNT_FIELD)).thenReturn(9L);
+        WaitlistManager.WaitlistCallback joined = mock(WaitlistManager.WaitlistCallback.class);
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, null, null, joined);
+
+        verify(joined).onSuccess();
+        verify(mockTransaction).set(eq(mockUserWaitlistDocRef), any(WaitlistEntry.class));
+        // the mock event stays unmigrated, so both transactions carried the old count over,
+        // plus this join's own increment
+        verify(mockTransaction, times(3)).set(eq(mockShardRef), any(), any(SetOptions.class));
+        verify(mockTransaction, times(2)).update(mockEventDocRef, WaitlistCounter.SHARD_COUNT_FIELD,
+                WaitlistCounter.DEFAULT_SHARDS);
+    }
+
+    /**
+     * A join resent after its first attempt went through (but the reply was lost) finds its
+     * marker and writes nothing
+     */
+    @Test
+    public void testJoinWaitlist_AlreadyAppliedWritesNothing() throws Exception {
+        WaitlistManager.WaitlistCallback callback = mock(WaitlistManager.WaitlistCallback.class);
+        runTransactionsInline();
+
+        when(mockOpSnapshot.exists()).thenReturn(true);
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
 
         waitlistManager.joinWaitlist(TEST_EVENT_ID, null, null, callback);
 
         verify(callback).onSuccess();
-        verify(mockBatch).set(eq(mockUserWaitlistDocRef), any(WaitlistEntry.class));
-        verify(mockBatch).update(eq(mockEventDocRef), eq("waitlistCount"), any());
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any());
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any(), any(SetOptions.class));
+    }
+
+    /**
+     * Offline joins go to the outbox and are sent, with their marker, on the next replay
+     */
+    @Test
+    public void testJoinWaitlist_OfflineQueuesAndReplays() throws Exception {
+        when(mockContext.getApplicationContext()).thenReturn(mockContext);
+        when(mockContext.getFilesDir()).thenReturn(tempFolder.getRoot());
+        waitlistManager.enableOutbox(mockContext);
+
+        when(mockDb.runTransaction(any())).thenReturn(mockTransactionTask);
+        when(mockTransactionTask.addOnSuccessListener(any())).thenReturn(mockTransactionTask);
+        when(mockTransactionTask.addOnFailureListener(any())).thenAnswer(invocation -> {
+            OnFailureListener listener = invocation.getArgument(0);
+            listener.onFailure(new FirebaseFirestoreException("offline",
+                    FirebaseFirestoreException.Code.UNAVAILABLE));
+            return mockTransactionTask;
+        });
+
+        WaitlistManager.WaitlistCallback callback = mock(WaitlistManager.WaitlistCallback.class);
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, null, null, callback);
+
+        verify(callback).onQueued();
+        verify(callback, never()).onFailure(anyString());
+        verify(mockTransaction, never()).set(any(DocumentReference.class), any());
+
+        // back online
+        runTransactionsInline();
+        when(mockTransactionTask.addOnFailureListener(any())).thenReturn(mockTransactionTask);
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
+
+        waitlistManager.replayOutbox();
+
+        verify(mockTransaction).set(eq(mockUserWaitlistDocRef), any(WaitlistEntry.class));
+        ArgumentCaptor<Map> marker = ArgumentCaptor.forClass(Map.class);
+        verify(mockTransaction).set(eq(mockOpRef), marker.capture());
+        // the TTL policy deletes the marker once it can't be needed anymore
+        long appliedAt = (Long) marker.getValue().get("appliedAt");
+        assertEquals(appliedAt + WaitlistManager.MARKER_TTL_MS,
+                ((Timestamp) marker.getValue().get("expireAt")).toDate().getTime());
+        // the outbox is empty again
+        waitlistManager.replayOutbox();
+        verify(mockDb, times(2)).runTransaction(any());
+    }
+
+    /**
+     * Makes runTransaction hold each transaction until its commit is run from the returned list,
+     * like a slow network while the user keeps tapping
+     */
+    @SuppressWarnings("unchecked")
+    private List<Runnable> holdTransactions() {
+        List<Runnable> commits = new ArrayList<>();
+        when(mockDb.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<Object> func = invocation.getArgument(0);
+            Task<Object> task = mock(Task.class);
+            when(task.addOnSuccessListener(any())).thenAnswer(listenerInvocation -> {
+                OnSuccessListener<Object> listener = listenerInvocation.getArgument(0);
+                commits.add(() -> {
+                    try {
+                        listener.onSuccess(func.apply(mockTransaction));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                return task;
+            });
+            when(task.addOnFailureListener(any())).thenReturn(task);
+            return task;
+        });
+        return commits;
+    }
+
+    /**
+     * Join, leave, join while the first join is still going: only that join is ever sent and
+     * the last tap gets the result
+     */
+    @Test
+    public void testRapidToggles_CancelledTapsSendNothing() throws Exception {
+        List<Runnable> commits = holdTransactions();
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
+
+        WaitlistManager.WaitlistCallback first = mock(WaitlistManager.WaitlistCallback.class);
+        WaitlistManager.WaitlistCallback second = mock(WaitlistManager.WaitlistCallback.class);
+        WaitlistManager.WaitlistCallback third = mock(WaitlistManager.WaitlistCallback.class);
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, first);
+        waitlistManager.leaveWaitlist(TEST_EVENT_ID, second);
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, third);
+
+        assertEquals(1, commits.size());
+        commits.get(0).run();
+
+        verify(mockDb, times(1)).runTransaction(any());
+        verify(first).onSuperseded();
+        verify(second).onSuperseded();
+        verify(third).onSuccess();
+        verify(first, never()).onSuccess();
+    }
+
+    /**
+     * Join then leave while the join is going: the leave is sent once the join lands
+     */
+    @Test
+    public void testRapidToggles_NetOperationSentAfterInFlight() throws Exception {
+        List<Runnable> commits = holdTransactions();
+        when(mockTransaction.get(mockUserWaitlistDocRef)).thenReturn(mockUserSnapshot);
+        when(mockUserSnapshot.exists()).thenReturn(false);
+        when(mockTransaction.get(mockEventDocRef)).thenReturn(mockEventSnapshot);
+        when(mockEventSnapshot.exists()).thenReturn(true);
+
+        WaitlistManager.WaitlistCallback join = mock(WaitlistManager.WaitlistCallback.class);
+        WaitlistManager.WaitlistCallback leave = mock(WaitlistManager.WaitlistCallback.class);
+        waitlistManager.joinWaitlist(TEST_EVENT_ID, join);
+        waitlistManager.leaveWaitlist(TEST_EVENT_ID, leave);
+
+        commits.get(0).run();
+        assertEquals(2, commits.size());
+
+        when(mockUserSnapshot.exists()).thenReturn(true); // the join landed
+        commits.get(1).run();
+
+        verify(join).onSuperseded();
+        verify(leave).onSuccess();
+        verify(mockTransaction).delete(mockUserWaitlistDocRef);
     }
 
     private void resetSingleton() throws Exception {
         Field instance = WaitlistManager.class.getDeclaredField("instance");
         instance.setAccessible(true);
         instance.set(null, null);
+
+        // the manager keeps the membership cache it was made with, give each test a fresh one
+        Field cacheInstance = MembershipCache.class.getDeclaredField("instance");
+        cacheInstance.setAccessible(true);
+        cacheInstance.set(null, null);
     }
 }
\ No newline at end of file
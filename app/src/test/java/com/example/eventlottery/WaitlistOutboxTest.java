@@ -0,0 +1,149 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.eventlottery.managers.WaitlistOutbox;
+import com.google.firebase.firestore.GeoPoint;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+public class WaitlistOutboxTest {
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(tempFolder.getRoot(), WaitlistOutbox.FILE_NAME);
+    }
+
+    @Test
+    public void testJoinThenLeaveCancelsOut() {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+
+        assertTrue(outbox.add(WaitlistOutbox.Operation.join("event1", "user1", null, null)));
+        assertFalse(outbox.add(WaitlistOutbox.Operation.leave("event1", "user1")));
+
+        assertTrue(outbox.getPending().isEmpty());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testSameOperationTwiceKeepsFirst() {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+        WaitlistOutbox.Operation first = WaitlistOutbox.Operation.join("event1", "user1", null, null);
+
+        outbox.add(first);
+        outbox.add(WaitlistOutbox.Operation.join("event1", "user1", null, null));
+
+        assertEquals(Collections.singletonList(first), outbox.getPending());
+    }
+
+    @Test
+    public void testInFlightOperationIsNotCancelled() {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+        outbox.add(WaitlistOutbox.Operation.join("event1", "user1", null, null));
+        outbox.nextBatch(10);
+
+        assertTrue(outbox.add(WaitlistOutbox.Operation.leave("event1", "user1")));
+        assertEquals(2, outbox.getPending().size());
+        // the leave waits for the join to finish
+        assertTrue(outbox.nextBatch(10).isEmpty());
+    }
+
+    /**
+     * Join, go offline while it's being sent, leave, replay: the join and the leave go out in
+     * order in separate batches, so the leave sees the join's entry
+     */
+    @Test
+    public void testToggleOfflineToggleReplaysInOrder() {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+        WaitlistOutbox.Operation join = WaitlistOutbox.Operation.join("event1", "user1", null, null);
+        WaitlistOutbox.Operation leave = WaitlistOutbox.Operation.leave("event1", "user1");
+        outbox.add(join);
+        List<WaitlistOutbox.Operation> sending = outbox.nextBatch(10);
+        assertTrue(outbox.add(leave));
+        outbox.release(sending); // went offline
+
+        List<WaitlistOutbox.Operation> first = outbox.nextBatch(10);
+        assertEquals(Collections.singletonList(join), first);
+        // a tap now compares against the queued leave, not the join
+        assertFalse(outbox.add(WaitlistOutbox.Operation.join("event1", "user1", null, null)));
+        assertTrue(outbox.add(WaitlistOutbox.Operation.leave("event1", "user1")));
+        assertTrue(outbox.nextBatch(10).isEmpty());
+        outbox.complete(first);
+
+        assertEquals(1, outbox.getPending().size());
+        List<WaitlistOutbox.Operation> second = outbox.nextBatch(10);
+        assertEquals(1, second.size());
+        assertFalse(second.get(0).isJoin());
+        outbox.complete(second);
+        assertTrue(outbox.getPending().isEmpty());
+    }
+
+    @Test
+    public void testPendingSurvivesReopen() {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+        WaitlistOutbox.Operation join = WaitlistOutbox.Operation.join("event1", "user1",
+                new GeoPoint(53.5, -113.5), "Tab\tName");
+        WaitlistOutbox.Operation leave = WaitlistOutbox.Operation.leave("event2", "user1");
+        outbox.add(join);
+        outbox.add(leave);
+        outbox.complete(Collections.singletonList(leave));
+
+        List<WaitlistOutbox.Operation> reopened = new WaitlistOutbox(file).getPending();
+
+        assertEquals(1, reopened.size());
+        WaitlistOutbox.Operation restored = reopened.get(0);
+        assertEquals(join.getId(), restored.getId());
+        assertTrue(restored.isJoin());
+        assertEquals("event1", restored.getEventId());
+        assertEquals(join.getCreatedAt(), restored.getCreatedAt());
+        assertEquals(53.5, restored.getLocation().getLatitude(), 0.0);
+        assertEquals("Tab Name", restored.getUserName());
+    }
+
+    @Test
+    public void testCompleteEverythingClearsFile() {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+        outbox.add(WaitlistOutbox.Operation.leave("event1", "user1"));
+
+        outbox.complete(outbox.nextBatch(10));
+
+        assertFalse(file.exists());
+        assertTrue(new WaitlistOutbox(file).getPending().isEmpty());
+    }
+
+    @Test
+    public void testCompactionReplacesLogWithoutTempFile() throws Exception {
+        WaitlistOutbox outbox = new WaitlistOutbox(file);
+        WaitlistOutbox.Operation join = WaitlistOutbox.Operation.join("event1", "user1", null, null);
+        WaitlistOutbox.Operation leave = WaitlistOutbox.Operation.leave("event2", "user1");
+        outbox.add(join);
+        outbox.add(leave);
+        outbox.complete(Collections.singletonList(leave));
+        // left behind by a crash during an earlier compaction
+        File temp = new File(file.getPath() + ".tmp");
+        Files.write(temp.toPath(), Collections.singletonList("half written"));
+
+        // reopening compacts the log down to the one queued join
+        assertEquals(1, new WaitlistOutbox(file).getPending().size());
+
+        assertFalse(temp.exists());
+        assertEquals(1, Files.readAllLines(file.toPath()).size());
+        List<WaitlistOutbox.Operation> reopened = new WaitlistOutbox(file).getPending();
+        assertEquals(1, reopened.size());
+        assertEquals(join.getId(), reopened.get(0).getId());
+    }
+}
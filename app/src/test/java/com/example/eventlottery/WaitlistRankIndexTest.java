@@ -0,0 +1,124 @@
+package com.example.eventlottery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.eventlottery.managers.WaitlistRankIndex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class WaitlistRankIndexTest {
+
+    @Test
+    public void testRanksFollowJoinOrder() {
+        WaitlistRankIndex index = new WaitlistRankIndex();
+        index.put("carol", 300);
+        index.put("alice", 100);
+        index.put("bob", 200);
+
+        assertEquals(1, index.rank("alice"));
+        assertEquals(2, index.rank("bob"));
+        assertEquals(3, index.rank("carol"));
+        assertEquals(0, index.rank("dave"));
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList("alice", "bob", "carol"), index.inOrder());
+    }
+
+    @Test
+    public void testRemoveMovesEveryoneBehindUp() {
+        WaitlistRankIndex index = new WaitlistRankIndex();
+        for (int i = 0; i < 100; i++) {
+            index.put("user" + i, i);
+        }
+
+        assertTrue(index.remove("user10"));
+        assertFalse(index.remove("user10"));
+
+        assertEquals(10, index.rank("user9"));
+        assertEquals(11, index.rank("user11"));
+        assertEquals(99, index.rank("user99"));
+        assertEquals(99, index.size());
+    }
+
+    @Test
+    public void testTiesBrokenByUserId() {
+        WaitlistRankIndex index = new WaitlistRankIndex();
+        index.put("b", 5);
+        index.put("a", 5);
+
+        assertEquals(1, index.rank("a"));
+        assertEquals(2, index.rank("b"));
+    }
+
+    /**
+     * Random joins (mostly in time order, some late), leaves and rejoins checked against
+     * sorting the same entries
+     */
+    @Test
+    public void testMatchesSortedOrder() {
+        Random random = new Random(7);
+        WaitlistRankIndex index = new WaitlistRankIndex();
+        Map<String, Long> joined = new HashMap<>();
+        long clock = 0;
+
+        for (int step = 0; step < 5000; step++) {
+            String userId = "user" + random.nextInt(300);
+            int action = random.nextInt(10);
+            if (action < 6) {
+                long joinedAt = action == 0 ? random.nextInt(1000) : (clock += random.nextInt(3));
+                index.put(userId, joinedAt);
+                joined.put(userId, joinedAt);
+            } else {
+                assertEquals(joined.remove(userId) != null, index.remove(userId));
+            }
+
+            if (step % 50 == 0) {
+                List<String> expected = new ArrayList<>(joined.keySet());
+                expected.sort((a, b) -> {
+                    int byTime = Long.compare(joined.get(a), joined.get(b));
+                    return byTime != 0 ? byTime : a.compareTo(b);
+                });
+                assertEquals(expected, index.inOrder());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(i + 1, index.rank(expected.get(i)));
+                }
+            }
+        }
+    }
+
+    /**
+     * A whole list loaded at once, in no particular order, ranks the same as joining one by
+     * one and keeps taking joins and leaves afterwards
+     */
+    @Test
+    public void testLoadMatchesOneByOne() {
+        Random random = new Random(11);
+        Map<String, Long> joined = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            joined.put("user" + i, (long) random.nextInt(500));
+        }
+        WaitlistRankIndex oneByOne = new WaitlistRankIndex();
+        for (Map.Entry<String, Long> entry : joined.entrySet()) {
+            oneByOne.put(entry.getKey(), entry.getValue());
+        }
+        WaitlistRankIndex loaded = new WaitlistRankIndex();
+        loaded.put("gone", 1);
+        loaded.load(joined);
+
+        assertEquals(joined.size(), loaded.size());
+        assertEquals(0, loaded.rank("gone"));
+        assertEquals(oneByOne.inOrder(), loaded.inOrder());
+
+        loaded.put("late", 1000);
+        assertTrue(loaded.remove("user0"));
+        assertEquals(joined.size(), loaded.rank("late"));
+    }
+}